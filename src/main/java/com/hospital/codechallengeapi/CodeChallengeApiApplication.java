@@ -2,9 +2,11 @@ package com.hospital.codechallengeapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class CodeChallengeApiApplication {
 
     public static void main(String[] args) {
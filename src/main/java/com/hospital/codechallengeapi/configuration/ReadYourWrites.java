@@ -0,0 +1,53 @@
+package com.hospital.codechallengeapi.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers who wrote something in the last {@code replica.read-your-writes-window}, so their
+ * reads can be kept on the primary until the replica has caught up with their own changes.
+ */
+@Component
+@Slf4j
+public class ReadYourWrites {
+
+  private final Clock clock;
+  private final Duration window;
+
+  private final Map<String, Instant> lastWrites = new ConcurrentHashMap<>();
+
+  @Autowired
+  public ReadYourWrites(
+      Clock clock, @Value("${replica.read-your-writes-window:PT5S}") Duration window) {
+    this.clock = clock;
+    this.window = window;
+  }
+
+  public void recordWrite(String username) {
+    lastWrites.put(username, clock.instant());
+  }
+
+  public boolean wroteRecently(String username) {
+    Instant lastWrite = lastWrites.get(username);
+    return lastWrite != null && lastWrite.plus(window).isAfter(clock.instant());
+  }
+
+  @Scheduled(fixedDelayString = "${replica.read-your-writes-window:PT5S}")
+  public void purge() {
+    Instant oldest = clock.instant().minus(window);
+    lastWrites.values().removeIf(lastWrite -> !lastWrite.isAfter(oldest));
+  }
+
+  int size() {
+    return lastWrites.size();
+  }
+}
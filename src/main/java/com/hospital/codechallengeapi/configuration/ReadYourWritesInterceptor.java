@@ -0,0 +1,81 @@
+package com.hospital.codechallengeapi.configuration;
+
+import com.hospital.codechallengeapi.repository.ReplicaRouting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Keeps on the primary every request that writes, so its checks see the latest data, and every
+ * read of a user who wrote something within the read-your-writes window.
+ *
+ * <p>A write is recorded before its handler runs: a JSON body is flushed while the handler is
+ * invoked, so by {@code postHandle} or {@code afterCompletion} the client may already have the
+ * response and be sending its next read. Failed writes are recorded too, which only keeps that
+ * user's reads on the primary a little longer.
+ */
+@Component
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+  private static final String PINNED = ReadYourWritesInterceptor.class.getName() + ".PINNED";
+
+  private final ReadYourWrites readYourWrites;
+
+  @Autowired
+  public ReadYourWritesInterceptor(ReadYourWrites readYourWrites) {
+    this.readYourWrites = readYourWrites;
+  }
+
+  @Override
+  public boolean preHandle(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    String username = username();
+    if (isWrite(request) && username != null) {
+      readYourWrites.recordWrite(username);
+    }
+    if (isWrite(request) || username != null && readYourWrites.wroteRecently(username)) {
+      ReplicaRouting.pin();
+      request.setAttribute(PINNED, Boolean.TRUE);
+    }
+    return true;
+  }
+
+  @Override
+  public void afterConcurrentHandlingStarted(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    // The rest of the request runs on another thread; release this one.
+    unpin(request);
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    unpin(request);
+  }
+
+  private static void unpin(HttpServletRequest request) {
+    if (request.getAttribute(PINNED) != null) {
+      request.removeAttribute(PINNED);
+      ReplicaRouting.unpin();
+    }
+  }
+
+  private static boolean isWrite(HttpServletRequest request) {
+    return !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+  }
+
+  private static String username() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication == null
+            || authentication instanceof AnonymousAuthenticationToken
+            || !authentication.isAuthenticated()
+        ? null
+        : authentication.getName();
+  }
+}
@@ -0,0 +1,49 @@
+package com.hospital.codechallengeapi.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Adds a read replica when {@code replica.datasource.jdbc-url} is set: the {@code
+ * spring.datasource} pool stays the primary and read-only transactions are routed to the {@code
+ * replica.datasource} pool. Without the property the single auto-configured pool is used.
+ */
+@Configuration
+@ConditionalOnProperty("replica.datasource.jdbc-url")
+public class ReplicaDataSourceConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource dataSource =
+        properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    dataSource.setPoolName("primary");
+    return dataSource;
+  }
+
+  @Bean
+  @ConfigurationProperties("replica.datasource")
+  public HikariDataSource replicaDataSource() {
+    HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setPoolName("replica");
+    dataSource.setReadOnly(true);
+    return dataSource;
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      @Qualifier("primaryDataSource") DataSource primary,
+      @Qualifier("replicaDataSource") DataSource replica) {
+    return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica));
+  }
+}
@@ -0,0 +1,36 @@
+package com.hospital.codechallengeapi.configuration;
+
+import com.hospital.codechallengeapi.repository.ReplicaRouting;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything
+ * else. It must sit behind a {@link
+ * org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so the connection is only
+ * picked once the transaction's read-only flag is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  enum Target {
+    PRIMARY,
+    REPLICA
+  }
+
+  public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+    setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+            && !ReplicaRouting.isPinned()
+        ? Target.REPLICA
+        : Target.PRIMARY;
+  }
+}
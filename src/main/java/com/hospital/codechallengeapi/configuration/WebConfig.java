@@ -0,0 +1,22 @@
+package com.hospital.codechallengeapi.configuration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+  private final ReadYourWritesInterceptor readYourWritesInterceptor;
+
+  @Autowired
+  public WebConfig(ReadYourWritesInterceptor readYourWritesInterceptor) {
+    this.readYourWritesInterceptor = readYourWritesInterceptor;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(readYourWritesInterceptor);
+  }
+}
@@ -5,6 +5,7 @@ import com.hospital.codechallengeapi.model.request.LoginRequest;
 import com.hospital.codechallengeapi.model.request.PatientRegisterRequest;
 import com.hospital.codechallengeapi.model.response.IdResponse;
 import com.hospital.codechallengeapi.model.response.JwtResponse;
+import com.hospital.codechallengeapi.service.IdempotencyStore;
 import com.hospital.codechallengeapi.service.UserManagementService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,17 +21,27 @@ public class AuthController {
 
   private final UserManagementService userManagementService;
 
+  private final IdempotencyStore idempotencyStore;
+
   @Autowired
-  private AuthController(UserManagementService userManagementService) {
+  private AuthController(
+      UserManagementService userManagementService, IdempotencyStore idempotencyStore) {
     this.userManagementService = userManagementService;
+    this.idempotencyStore = idempotencyStore;
   }
 
   @PostMapping("/register")
   @ResponseStatus(HttpStatus.CREATED)
-  public IdResponse register(@RequestBody @Valid PatientRegisterRequest request)
+  public IdResponse register(
+      @RequestBody @Valid PatientRegisterRequest request,
+      @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey)
       throws UserAlreadyExistsException {
     log.debug("Going to create a new patient with payload {}", request);
-    return userManagementService.createPatient(request);
+    return idempotencyStore.execute(
+        "register",
+        idempotencyKey,
+        IdempotencyStore.fingerprint(request),
+        () -> userManagementService.createPatient(request));
   }
 
   @PostMapping("/login")
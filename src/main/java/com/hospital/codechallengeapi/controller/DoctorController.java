@@ -2,28 +2,58 @@ package com.hospital.codechallengeapi.controller;
 
 import com.hospital.codechallengeapi.exception.UserAlreadyExistsException;
 import com.hospital.codechallengeapi.model.request.AppointmentRequest;
+import com.hospital.codechallengeapi.model.request.BulkAppointmentRequest;
 import com.hospital.codechallengeapi.model.request.DoctorRegisterRequest;
 import com.hospital.codechallengeapi.model.request.LeaveRequest;
+import com.hospital.codechallengeapi.model.request.WorkingHoursRequest;
+import com.hospital.codechallengeapi.model.response.AppointmentCursorPage;
 import com.hospital.codechallengeapi.model.response.AppointmentResponse;
+import com.hospital.codechallengeapi.model.response.AvailabilitySearchResponse;
+import com.hospital.codechallengeapi.model.response.BulkAppointmentResponse;
 import com.hospital.codechallengeapi.model.response.AvailabilityResponse;
 import com.hospital.codechallengeapi.model.response.DoctorResponse;
+import com.hospital.codechallengeapi.model.response.DoctorUtilization;
 import com.hospital.codechallengeapi.model.response.IdResponse;
+import com.hospital.codechallengeapi.model.response.SliceResponse;
+import com.hospital.codechallengeapi.model.response.SlotHoldResponse;
+import com.hospital.codechallengeapi.model.response.TimeSlot;
 import com.hospital.codechallengeapi.security.services.UserPrinciple;
+import com.hospital.codechallengeapi.service.AppointmentExportFormat;
+import com.hospital.codechallengeapi.service.AppointmentExportService;
+import com.hospital.codechallengeapi.service.AvailabilitySearchService;
+import com.hospital.codechallengeapi.service.BulkBookingService;
+import com.hospital.codechallengeapi.service.DoctorDirectory;
 import com.hospital.codechallengeapi.service.DoctorService;
+import com.hospital.codechallengeapi.service.IdempotencyStore;
+import com.hospital.codechallengeapi.service.LeaveSeriesService;
+import com.hospital.codechallengeapi.service.NextAvailabilityService;
+import com.hospital.codechallengeapi.service.SlotHoldService;
 import com.hospital.codechallengeapi.service.UserManagementService;
+import com.hospital.codechallengeapi.service.UtilizationReportService;
+import com.hospital.codechallengeapi.service.WorkingHoursService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/v1/doctors")
@@ -33,13 +63,54 @@ public class DoctorController {
 
   private final DoctorService doctorService;
 
+  private final DoctorDirectory doctorDirectory;
+
   private final UserManagementService userManagementService;
 
+  private final AvailabilitySearchService availabilitySearchService;
+
+  private final NextAvailabilityService nextAvailabilityService;
+
+  private final WorkingHoursService workingHoursService;
+
+  private final BulkBookingService bulkBookingService;
+
+  private final AppointmentExportService appointmentExportService;
+
+  private final UtilizationReportService utilizationReportService;
+
+  private final LeaveSeriesService leaveSeriesService;
+
+  private final IdempotencyStore idempotencyStore;
+
+  private final SlotHoldService slotHoldService;
+
   @Autowired
   public DoctorController(
-      DoctorService doctorService, UserManagementService userManagementService) {
+      DoctorService doctorService,
+      DoctorDirectory doctorDirectory,
+      UserManagementService userManagementService,
+      AvailabilitySearchService availabilitySearchService,
+      NextAvailabilityService nextAvailabilityService,
+      WorkingHoursService workingHoursService,
+      BulkBookingService bulkBookingService,
+      AppointmentExportService appointmentExportService,
+      UtilizationReportService utilizationReportService,
+      LeaveSeriesService leaveSeriesService,
+      IdempotencyStore idempotencyStore,
+      SlotHoldService slotHoldService) {
     this.doctorService = doctorService;
+    this.doctorDirectory = doctorDirectory;
     this.userManagementService = userManagementService;
+    this.availabilitySearchService = availabilitySearchService;
+    this.nextAvailabilityService = nextAvailabilityService;
+    this.workingHoursService = workingHoursService;
+    this.bulkBookingService = bulkBookingService;
+    this.appointmentExportService = appointmentExportService;
+    this.utilizationReportService = utilizationReportService;
+    this.leaveSeriesService = leaveSeriesService;
+    this.idempotencyStore = idempotencyStore;
+    this.slotHoldService = slotHoldService;
   }
 
   @PostMapping
@@ -53,12 +124,40 @@ public class DoctorController {
 
   @GetMapping
   @PreAuthorize("hasRole('ADMIN') or hasRole('PATIENT') or hasRole('DOCTOR')")
-  public Page<DoctorResponse> getDoctors(
+  public ResponseEntity<Page<DoctorResponse>> getDoctors(
       @RequestParam(required = false, defaultValue = "1") @Min(1) int page,
       @RequestParam(required = false, defaultValue = "10", name = "page_size") @Min(5)
-          int pageSize) {
-    log.debug("Going to get page {} with size {} of doctors", page, pageSize);
-    return this.doctorService.getDoctors(page, pageSize);
+          int pageSize,
+      @RequestParam(required = false) String specialty,
+      @RequestParam(required = false) String name,
+      WebRequest webRequest) {
+    log.debug(
+        "Going to get page {} with size {} of doctors with specialty {} and name {}",
+        page,
+        pageSize,
+        specialty,
+        name);
+    return conditionally(
+        webRequest,
+        this.doctorDirectory.getTag(),
+        () -> this.doctorDirectory.find(specialty, name, page, pageSize));
+  }
+
+  @GetMapping(params = "count=false")
+  @PreAuthorize("hasRole('ADMIN') or hasRole('PATIENT') or hasRole('DOCTOR')")
+  public ResponseEntity<SliceResponse<DoctorResponse>> getDoctorSlice(
+      @RequestParam(required = false, defaultValue = "1") @Min(1) int page,
+      @RequestParam(required = false, defaultValue = "10", name = "page_size") @Min(5)
+          int pageSize,
+      @RequestParam(required = false) String specialty,
+      @RequestParam(required = false) String name,
+      WebRequest webRequest) {
+    log.debug("Going to get slice {} with size {} of doctors", page, pageSize);
+    return conditionally(
+        webRequest,
+        this.doctorDirectory.getTag(),
+        () ->
+            SliceResponse.of(this.doctorDirectory.findSlice(specialty, name, page, pageSize)));
   }
 
   @GetMapping("/appointments")
@@ -76,6 +175,72 @@ public class DoctorController {
     return this.doctorService.getAppointments(doctorId, page, pageSize);
   }
 
+  @GetMapping(value = "/appointments", params = {"count=false", "!cursor"})
+  @PreAuthorize("hasRole('DOCTOR')")
+  public SliceResponse<AppointmentResponse> getDoctorAppointmentSlice(
+      @RequestParam(required = false, defaultValue = "1") @Min(1) int page,
+      @RequestParam(required = false, defaultValue = "10", name = "page_size") @Min(5)
+          int pageSize) {
+    UUID doctorId = getLoggedUserId();
+    log.debug(
+        "Going to get slice {} with size {} of appointments for doctor {}",
+        page,
+        pageSize,
+        doctorId);
+    return SliceResponse.of(this.doctorService.getAppointmentSlice(doctorId, page, pageSize));
+  }
+
+  @GetMapping(value = "/appointments", params = "cursor")
+  @PreAuthorize("hasRole('DOCTOR')")
+  public AppointmentCursorPage getDoctorAppointmentsAfter(
+      @RequestParam String cursor,
+      @RequestParam(required = false, defaultValue = "10", name = "page_size") @Min(5) @Max(100)
+          int pageSize) {
+    UUID doctorId = getLoggedUserId();
+    log.debug(
+        "Going to get {} appointments for doctor {} after cursor {}", pageSize, doctorId, cursor);
+    return this.doctorService.getAppointmentsAfter(doctorId, cursor, pageSize);
+  }
+
+  @PostMapping("/appointments/bulk")
+  @PreAuthorize("hasRole('ADMIN')")
+  public BulkAppointmentResponse createAppointmentsInBulk(
+      @RequestBody @Valid BulkAppointmentRequest bulkAppointmentRequest) {
+    log.debug(
+        "Going to create {} appointments in bulk",
+        bulkAppointmentRequest.getAppointments().size());
+    return this.bulkBookingService.createAppointments(bulkAppointmentRequest);
+  }
+
+  @GetMapping("/appointments/export")
+  @PreAuthorize("hasRole('ADMIN')")
+  public ResponseEntity<StreamingResponseBody> exportAppointments(
+      @RequestParam Instant from,
+      @RequestParam Instant to,
+      @RequestParam(required = false, defaultValue = "ndjson") String format) {
+    log.debug("Going to export the appointments between {} and {} as {}", from, to, format);
+    AppointmentExportFormat exportFormat = AppointmentExportFormat.of(format);
+    this.appointmentExportService.validate(from, to);
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+        .body(
+            outputStream ->
+                this.appointmentExportService.export(from, to, exportFormat, outputStream));
+  }
+
+  @GetMapping("/utilization")
+  @PreAuthorize("hasRole('ADMIN')")
+  public Page<DoctorUtilization> getUtilization(
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      @RequestParam(required = false) String specialty,
+      @RequestParam(required = false, defaultValue = "1") @Min(1) int page,
+      @RequestParam(required = false, defaultValue = "10", name = "page_size") @Min(5) @Max(100)
+          int pageSize) {
+    log.debug("Going to report the utilization of doctors between {} and {}", from, to);
+    return this.utilizationReportService.report(from, to, specialty, page, pageSize);
+  }
+
   @PostMapping("/schedule-leave")
   @PreAuthorize("hasRole('DOCTOR')")
   @ResponseStatus(HttpStatus.CREATED)
@@ -83,29 +248,104 @@ public class DoctorController {
     UUID doctorId = getLoggedUserId();
     log.debug(
         "Going to schedule a leave for doctor {} with the payload {}", doctorId, leaveRequest);
+    if (leaveRequest.getRecurrence() != null) {
+      return this.leaveSeriesService.scheduleRecurringLeave(doctorId, leaveRequest);
+    }
     return this.doctorService.scheduleLeave(doctorId, leaveRequest);
   }
 
   @GetMapping("/{doctorId}/appointments")
   @PreAuthorize("hasRole('PATIENT')")
-  public AvailabilityResponse getDoctorAvailability(@PathVariable UUID doctorId) {
+  public ResponseEntity<AvailabilityResponse> getDoctorAvailability(
+      @PathVariable UUID doctorId, WebRequest webRequest) {
     log.debug("Going to get availability for doctor {}", doctorId);
-    return this.doctorService.getAvailability(doctorId);
+    return conditionally(
+        webRequest,
+        this.doctorService.getAvailabilityTag(doctorId),
+        () -> this.doctorService.getAvailability(doctorId));
+  }
+
+  @PutMapping("/{doctorId}/working-hours")
+  @PreAuthorize("hasRole('ADMIN')")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  public void updateWorkingHours(
+      @PathVariable UUID doctorId, @RequestBody @Valid WorkingHoursRequest workingHoursRequest) {
+    log.debug(
+        "Going to update the working hours of doctor {} with payload {}",
+        doctorId,
+        workingHoursRequest);
+    this.workingHoursService.updateWorkingHours(doctorId, workingHoursRequest);
+  }
+
+  @GetMapping("/{doctorId}/next-available")
+  @PreAuthorize("hasRole('ADMIN') or hasRole('PATIENT')")
+  public TimeSlot getNextAvailableSlot(
+      @PathVariable UUID doctorId, @RequestParam(required = false) Instant after) {
+    log.debug("Going to get the next free slot of doctor {} after {}", doctorId, after);
+    return this.nextAvailabilityService.getNextAvailableSlot(doctorId, after);
+  }
+
+  @GetMapping("/availability")
+  @PreAuthorize("hasRole('PATIENT')")
+  public AvailabilitySearchResponse searchAvailability(
+      @RequestParam String specialty,
+      @RequestParam(required = false) Instant from,
+      @RequestParam(required = false) Instant to,
+      @RequestParam(required = false, defaultValue = "20") @Min(1) @Max(100) int limit) {
+    log.debug(
+        "Going to search {} slots of specialty {} between {} and {}", limit, specialty, from, to);
+    return this.availabilitySearchService.search(specialty, from, to, limit);
   }
 
   @PostMapping("/{doctorId}/appointments")
   @PreAuthorize("hasRole('PATIENT')")
   @ResponseStatus(HttpStatus.CREATED)
   public IdResponse createDoctorAppointments(
-      @PathVariable UUID doctorId, @RequestBody @Valid AppointmentRequest appointmentRequest) {
+      @PathVariable UUID doctorId,
+      @RequestBody @Valid AppointmentRequest appointmentRequest,
+      @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
     UUID patientId = getLoggedUserId();
     log.debug(
         "Going to create an appointment for patient {} with doctor {} with payload {}",
         patientId,
         doctorId,
         appointmentRequest);
-    return doctorService.createAppointment(
-        doctorId, patientId, appointmentRequest.getAppointmentDate());
+    return idempotencyStore.execute(
+        "appointment:" + patientId,
+        idempotencyKey,
+        doctorId + "|" + appointmentRequest.getAppointmentDate(),
+        () ->
+            doctorService.createAppointment(
+                doctorId, patientId, appointmentRequest.getAppointmentDate()));
+  }
+
+  @PostMapping("/{doctorId}/holds")
+  @PreAuthorize("hasRole('PATIENT')")
+  @ResponseStatus(HttpStatus.CREATED)
+  public SlotHoldResponse holdSlot(
+      @PathVariable UUID doctorId, @RequestBody @Valid AppointmentRequest appointmentRequest) {
+    UUID patientId = getLoggedUserId();
+    log.debug(
+        "Going to hold a slot for patient {} with doctor {} with payload {}",
+        patientId,
+        doctorId,
+        appointmentRequest);
+    return slotHoldService.hold(doctorId, patientId, appointmentRequest.getAppointmentDate());
+  }
+
+  /**
+   * Answers 304 when the client already holds {@code etag}, otherwise computes the body. The tag
+   * must be read before the body so a concurrent change can only make it older, never newer.
+   */
+  private static <T> ResponseEntity<T> conditionally(
+      WebRequest webRequest, String etag, Supplier<T> body) {
+    if (webRequest.checkNotModified(etag)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(etag)
+          .cacheControl(CacheControl.noCache())
+          .build();
+    }
+    return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(body.get());
   }
 
   private UUID getLoggedUserId() {
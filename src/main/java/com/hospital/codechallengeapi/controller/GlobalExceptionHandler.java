@@ -1,6 +1,10 @@
 package com.hospital.codechallengeapi.controller;
 
 import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.exception.BookingRejectedException;
+import com.hospital.codechallengeapi.exception.IdempotencyConflictException;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.exception.NoAvailabilityException;
 import com.hospital.codechallengeapi.exception.UserAlreadyExistsException;
 import com.hospital.codechallengeapi.model.response.ErrorResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +30,18 @@ public class GlobalExceptionHandler {
     return new ErrorResponse(exception.getMessage());
   }
 
+  @ExceptionHandler(BookingRejectedException.class)
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public ErrorResponse onBookingRejectedException(BookingRejectedException exception) {
+    return new ErrorResponse(exception.getMessage());
+  }
+
+  @ExceptionHandler(IdempotencyConflictException.class)
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public ErrorResponse onIdempotencyConflictException(IdempotencyConflictException exception) {
+    return new ErrorResponse(exception.getMessage());
+  }
+
   @ExceptionHandler(ConstraintViolationException.class)
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   public ErrorResponse onConstraintViolationException(ConstraintViolationException exception) {
@@ -43,6 +59,18 @@ public class GlobalExceptionHandler {
     return new ErrorResponse(exception.getMessage());
   }
 
+  @ExceptionHandler(InvalidRequestException.class)
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public ErrorResponse onInvalidRequestException(InvalidRequestException exception) {
+    return new ErrorResponse(exception.getMessage());
+  }
+
+  @ExceptionHandler(NoAvailabilityException.class)
+  @ResponseStatus(HttpStatus.NOT_FOUND)
+  public ErrorResponse onNoAvailabilityException(NoAvailabilityException exception) {
+    return new ErrorResponse(exception.getMessage());
+  }
+
   @ExceptionHandler(MethodArgumentNotValidException.class)
   @ResponseStatus(HttpStatus.BAD_REQUEST)
   public ErrorResponse onMethodArgumentNotValidException(MethodArgumentNotValidException exception) {
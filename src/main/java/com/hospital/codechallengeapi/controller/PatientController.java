@@ -0,0 +1,54 @@
+package com.hospital.codechallengeapi.controller;
+
+import com.hospital.codechallengeapi.model.response.AppointmentCursorPage;
+import com.hospital.codechallengeapi.security.services.UserPrinciple;
+import com.hospital.codechallengeapi.service.AppointmentPeriod;
+import com.hospital.codechallengeapi.service.PatientService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/v1/patients")
+@Validated
+@Slf4j
+public class PatientController {
+
+  private final PatientService patientService;
+
+  @Autowired
+  public PatientController(PatientService patientService) {
+    this.patientService = patientService;
+  }
+
+  @GetMapping("/appointments")
+  @PreAuthorize("hasRole('PATIENT')")
+  public AppointmentCursorPage getPatientAppointments(
+      @RequestParam(required = false, defaultValue = "upcoming") String period,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false, defaultValue = "10", name = "page_size") @Min(5) @Max(100)
+          int pageSize) {
+    UUID patientId = getLoggedUserId();
+    log.debug(
+        "Going to get {} {} appointments for patient {} after cursor {}",
+        pageSize,
+        period,
+        patientId,
+        cursor);
+    return this.patientService.getAppointments(
+        patientId, AppointmentPeriod.of(period), cursor, pageSize);
+  }
+
+  private UUID getLoggedUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return ((UserPrinciple) authentication.getPrincipal()).getId();
+  }
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.time.Instant;
@@ -18,7 +19,8 @@ import java.util.UUID;
 public class AppointmentEntity {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
+  @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
+  @GenericGenerator(name = TimeOrderedIdGenerator.NAME, strategy = TimeOrderedIdGenerator.STRATEGY)
   private UUID id;
 
   @ManyToOne(fetch = FetchType.LAZY)
@@ -36,4 +38,7 @@ public class AppointmentEntity {
   private Instant endDate;
 
   @Column private String reason;
+
+  @Column(name = "series_id")
+  private UUID seriesId;
 }
@@ -26,4 +26,7 @@ public class DoctorEntity {
   private HospitalUserEntity hospitalUserEntity;
 
   @Column private String specialty;
+
+  @Column(name = "time_zone")
+  private String timeZone;
 }
@@ -0,0 +1,34 @@
+package com.hospital.codechallengeapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.util.UUID;
+
+@Entity
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Table(name = "doctor_working_hours")
+public class DoctorWorkingHoursEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private Integer id;
+
+  @Column(name = "doctor_id")
+  private UUID doctorId;
+
+  @Column(name = "day_of_week")
+  private Short dayOfWeek;
+
+  @Column(name = "start_hour")
+  private Short startHour;
+
+  @Column(name = "end_hour")
+  private Short endHour;
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.util.HashSet;
@@ -19,7 +20,8 @@ import java.util.UUID;
 public class HospitalUserEntity {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
+  @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
+  @GenericGenerator(name = TimeOrderedIdGenerator.NAME, strategy = TimeOrderedIdGenerator.STRATEGY)
   private UUID id;
 
   @Column(nullable = false)
@@ -0,0 +1,49 @@
+package com.hospital.codechallengeapi.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+@Table(name = "leave_series")
+public class LeaveSeriesEntity {
+
+  @Id
+  @GeneratedValue(generator = TimeOrderedIdGenerator.NAME)
+  @GenericGenerator(name = TimeOrderedIdGenerator.NAME, strategy = TimeOrderedIdGenerator.STRATEGY)
+  private UUID id;
+
+  @Column(name = "doctor_id")
+  private UUID doctorId;
+
+  @Column private String reason;
+
+  @Column(columnDefinition = "TIMESTAMP", name = "start_date")
+  private Instant startDate;
+
+  @Column(columnDefinition = "TIMESTAMP", name = "end_date")
+  private Instant endDate;
+
+  @Column private String frequency;
+
+  @Column(name = "interval_length")
+  private Integer intervalLength;
+
+  @Column(columnDefinition = "TIMESTAMP", name = "until_date")
+  private Instant untilDate;
+
+  @Column private Integer occurrences;
+
+  @Column(name = "time_zone")
+  private String timeZone;
+}
@@ -0,0 +1,23 @@
+package com.hospital.codechallengeapi.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.io.Serializable;
+
+/**
+ * Hibernate generator of {@link TimeOrderedUuid} ids. Entities refer to it by {@link #NAME} and
+ * {@link #STRATEGY}, so pointing the strategy at another generator changes every one of them.
+ */
+public class TimeOrderedIdGenerator implements IdentifierGenerator {
+
+  public static final String NAME = "time-ordered";
+
+  public static final String STRATEGY =
+      "com.hospital.codechallengeapi.entity.TimeOrderedIdGenerator";
+
+  @Override
+  public Serializable generate(SharedSessionContractImplementor session, Object object) {
+    return TimeOrderedUuid.next();
+  }
+}
@@ -0,0 +1,43 @@
+package com.hospital.codechallengeapi.entity;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * UUIDs laid out as UUIDv7: the first 48 bits are the creation time in milliseconds, so new keys
+ * land at the right edge of a primary key index instead of on a random page of it. A 12-bit
+ * counter keeps the ids of one millisecond increasing; the remaining 62 bits are random.
+ */
+public final class TimeOrderedUuid {
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  /** The millisecond of the last id in the high bits and its counter in the low 12. */
+  private static final AtomicLong LAST = new AtomicLong();
+
+  private TimeOrderedUuid() {}
+
+  public static UUID next() {
+    return next(System.currentTimeMillis());
+  }
+
+  static UUID next(long millis) {
+    long previous;
+    long sequence;
+    do {
+      previous = LAST.get();
+      // Past 4096 ids in a millisecond, or if the clock goes back, borrow from the next one.
+      sequence = millis > previous >>> 12 ? millis << 12 : previous + 1;
+    } while (!LAST.compareAndSet(previous, sequence));
+
+    long mostSignificant = (sequence >>> 12) << 16 | 0x7000L | sequence & 0xFFFL;
+    long leastSignificant = RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+    return new UUID(mostSignificant, leastSignificant);
+  }
+
+  /** The millisecond a time-ordered id was created in. */
+  public static long timestamp(UUID uuid) {
+    return uuid.getMostSignificantBits() >>> 16;
+  }
+}
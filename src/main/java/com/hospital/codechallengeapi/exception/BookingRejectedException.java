@@ -0,0 +1,8 @@
+package com.hospital.codechallengeapi.exception;
+
+public class BookingRejectedException extends RuntimeException {
+
+  public BookingRejectedException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package com.hospital.codechallengeapi.exception;
+
+public class NoAvailabilityException extends RuntimeException {
+
+  public NoAvailabilityException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,39 @@
+package com.hospital.codechallengeapi.model.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkAppointmentRequest {
+
+  @NotEmpty
+  @Size(max = 1000)
+  private List<Item> appointments;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  @Builder
+  public static class Item {
+
+    @JsonProperty("doctor_id")
+    private UUID doctorId;
+
+    @JsonProperty("patient_id")
+    private UUID patientId;
+
+    @JsonProperty("appointment_date")
+    private Instant appointmentDate;
+  }
+}
@@ -0,0 +1,40 @@
+package com.hospital.codechallengeapi.model.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class LeaveRecurrence {
+
+  @NotNull
+  @JsonProperty("frequency")
+  private Frequency frequency;
+
+  @Min(1)
+  @Max(365)
+  @JsonProperty("interval")
+  private Integer interval;
+
+  @JsonProperty("until")
+  private Instant until;
+
+  @Min(1)
+  @JsonProperty("count")
+  private Integer count;
+
+  public enum Frequency {
+    DAILY,
+    WEEKLY
+  }
+}
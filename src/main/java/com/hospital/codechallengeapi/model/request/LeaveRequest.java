@@ -7,6 +7,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.ToString;
 
+import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import java.time.Instant;
@@ -29,4 +30,8 @@ public class LeaveRequest {
   @TimeSlotValidation
   @JsonProperty("end_date")
   Instant endDate;
+
+  @Valid
+  @JsonProperty("recurrence")
+  LeaveRecurrence recurrence;
 }
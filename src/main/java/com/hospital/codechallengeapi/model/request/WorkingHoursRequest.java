@@ -0,0 +1,44 @@
+package com.hospital.codechallengeapi.model.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.DayOfWeek;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WorkingHoursRequest {
+
+  @JsonProperty("time_zone")
+  private String timeZone;
+
+  @NotNull @Valid private List<DailyHours> hours;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class DailyHours {
+
+    @NotNull
+    @JsonProperty("day_of_week")
+    private DayOfWeek dayOfWeek;
+
+    @Min(0)
+    @Max(23)
+    @JsonProperty("start_hour")
+    private int startHour;
+
+    @Min(1)
+    @Max(24)
+    @JsonProperty("end_hour")
+    private int endHour;
+  }
+}
@@ -0,0 +1,17 @@
+package com.hospital.codechallengeapi.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AppointmentCursorPage {
+
+  private List<AppointmentResponse> content;
+
+  @JsonProperty("next_cursor")
+  private String nextCursor;
+}
@@ -0,0 +1,37 @@
+package com.hospital.codechallengeapi.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class AppointmentExportRow {
+
+  private UUID id;
+
+  @JsonProperty("doctor_id")
+  private UUID doctorId;
+
+  @JsonProperty("doctor_name")
+  private String doctorName;
+
+  private String specialty;
+
+  @JsonProperty("patient_id")
+  private UUID patientId;
+
+  @JsonProperty("patient_name")
+  private String patientName;
+
+  @JsonProperty("start_date")
+  private Instant startDate;
+
+  @JsonProperty("end_date")
+  private Instant endDate;
+
+  private String reason;
+}
@@ -0,0 +1,15 @@
+package com.hospital.codechallengeapi.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class AvailabilitySearchResponse {
+
+  @JsonProperty("available_time_slots")
+  private List<DoctorTimeSlot> availableTimeSlots;
+}
@@ -0,0 +1,13 @@
+package com.hospital.codechallengeapi.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class BulkAppointmentResponse {
+
+  private List<BulkAppointmentResult> results;
+}
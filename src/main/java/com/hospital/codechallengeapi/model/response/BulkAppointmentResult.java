@@ -0,0 +1,37 @@
+package com.hospital.codechallengeapi.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+public class BulkAppointmentResult {
+
+  private int index;
+
+  private Status status;
+
+  private UUID id;
+
+  private String message;
+
+  public static BulkAppointmentResult created(int index, UUID id) {
+    return new BulkAppointmentResult(index, Status.CREATED, id, null);
+  }
+
+  public static BulkAppointmentResult conflict(int index, String message) {
+    return new BulkAppointmentResult(index, Status.CONFLICT, null, message);
+  }
+
+  public static BulkAppointmentResult invalid(int index, String message) {
+    return new BulkAppointmentResult(index, Status.INVALID, null, message);
+  }
+
+  public enum Status {
+    CREATED,
+    CONFLICT,
+    INVALID
+  }
+}
@@ -0,0 +1,30 @@
+package com.hospital.codechallengeapi.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class DayUtilization {
+
+  private LocalDate date;
+
+  private int appointments;
+
+  @JsonProperty("working_hours")
+  private double workingHours;
+
+  @JsonProperty("booked_hours")
+  private double bookedHours;
+
+  @JsonProperty("leave_hours")
+  private double leaveHours;
+
+  @JsonProperty("free_hours")
+  private double freeHours;
+}
@@ -0,0 +1,29 @@
+package com.hospital.codechallengeapi.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class DoctorTimeSlot {
+
+  @JsonProperty("doctor_id")
+  private UUID doctorId;
+
+  @JsonProperty("doctor_name")
+  private String doctorName;
+
+  private String specialty;
+
+  @JsonProperty("start_date")
+  private Instant startDate;
+
+  @JsonProperty("end_date")
+  private Instant endDate;
+}
@@ -0,0 +1,28 @@
+package com.hospital.codechallengeapi.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class DoctorUtilization {
+
+  @JsonProperty("doctor_id")
+  private UUID doctorId;
+
+  @JsonProperty("doctor_name")
+  private String doctorName;
+
+  private String specialty;
+
+  /** Booked hours over working hours for the whole range. */
+  private double utilization;
+
+  private List<DayUtilization> days;
+}
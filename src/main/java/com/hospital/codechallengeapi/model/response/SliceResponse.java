@@ -0,0 +1,29 @@
+package com.hospital.codechallengeapi.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/** A page without a total count, for clients that only need to know whether there is more. */
+@Data
+@AllArgsConstructor
+public class SliceResponse<T> {
+
+  private List<T> content;
+
+  private int page;
+
+  @JsonProperty("page_size")
+  private int pageSize;
+
+  @JsonProperty("has_next")
+  private boolean hasNext;
+
+  public static <T> SliceResponse<T> of(Slice<T> slice) {
+    return new SliceResponse<>(
+        slice.getContent(), slice.getNumber() + 1, slice.getSize(), slice.hasNext());
+  }
+}
@@ -0,0 +1,26 @@
+package com.hospital.codechallengeapi.model.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class SlotHoldResponse {
+
+  private UUID id;
+
+  @JsonProperty("start_date")
+  private Instant startDate;
+
+  @JsonProperty("end_date")
+  private Instant endDate;
+
+  @JsonProperty("expires_at")
+  private Instant expiresAt;
+}
@@ -0,0 +1,112 @@
+package com.hospital.codechallengeapi.repository;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.entity.LeaveSeriesEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/** Writes appointments with plain JDBC batches, bypassing the per-entity work done by JPA. */
+@Repository
+public class AppointmentBatchWriter {
+
+  private static final int BATCH_SIZE = 500;
+
+  private static final Comparator<AppointmentEntity> BY_DOCTOR =
+      Comparator.comparing(appointment -> appointment.getDoctor().getId());
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String insertSql;
+  private final String insertSeriesSql;
+
+  @Autowired
+  public AppointmentBatchWriter(
+      JdbcTemplate jdbcTemplate,
+      @Value("${spring.jpa.properties.hibernate.default_schema:healthcare}") String schema) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.insertSql =
+        "INSERT INTO "
+            + schema
+            + ".appointment (id, doctor_id, patient_id, start_date, end_date, reason, series_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    this.insertSeriesSql =
+        "INSERT INTO "
+            + schema
+            + ".leave_series (id, doctor_id, reason, start_date, end_date, frequency, "
+            + "interval_length, until_date, occurrences, time_zone) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+  }
+
+  /**
+   * Inserts a single appointment with one statement, leaving overlap and foreign key checks to the
+   * database constraints.
+   */
+  public void insert(AppointmentEntity appointment) {
+    jdbcTemplate.update(insertSql, statement -> setParameters(statement, appointment));
+  }
+
+  /**
+   * Inserts every appointment in one transaction; they must already carry their ids. Rows are
+   * written in doctor order so that concurrent batches take the per-doctor locks of the overlap
+   * trigger in the same order and cannot deadlock.
+   */
+  @Transactional
+  public void insertAll(List<AppointmentEntity> appointments) {
+    List<AppointmentEntity> byDoctor = new ArrayList<>(appointments);
+    byDoctor.sort(BY_DOCTOR);
+    jdbcTemplate.batchUpdate(
+        insertSql,
+        byDoctor,
+        BATCH_SIZE,
+        AppointmentBatchWriter::setParameters);
+  }
+
+  /** Inserts a leave series and every one of its occurrences in one transaction. */
+  @Transactional
+  public void insertSeries(LeaveSeriesEntity series, List<AppointmentEntity> occurrences) {
+    jdbcTemplate.update(
+        insertSeriesSql,
+        statement -> {
+          statement.setObject(1, series.getId());
+          statement.setObject(2, series.getDoctorId());
+          statement.setString(3, series.getReason());
+          statement.setTimestamp(4, Timestamp.from(series.getStartDate()));
+          statement.setTimestamp(5, Timestamp.from(series.getEndDate()));
+          statement.setString(6, series.getFrequency());
+          statement.setInt(7, series.getIntervalLength());
+          if (series.getUntilDate() != null) {
+            statement.setTimestamp(8, Timestamp.from(series.getUntilDate()));
+          } else {
+            statement.setNull(8, Types.TIMESTAMP);
+          }
+          statement.setInt(9, series.getOccurrences());
+          statement.setString(10, series.getTimeZone());
+        });
+    insertAll(occurrences);
+  }
+
+  private static void setParameters(PreparedStatement statement, AppointmentEntity appointment)
+      throws SQLException {
+    statement.setObject(1, appointment.getId());
+    statement.setObject(2, appointment.getDoctor().getId());
+    if (appointment.getPatient() != null) {
+      statement.setObject(3, appointment.getPatient().getId());
+    } else {
+      statement.setNull(3, Types.OTHER);
+    }
+    statement.setTimestamp(4, Timestamp.from(appointment.getStartDate()));
+    statement.setTimestamp(5, Timestamp.from(appointment.getEndDate()));
+    statement.setString(6, appointment.getReason());
+    statement.setObject(7, appointment.getSeriesId(), Types.OTHER);
+  }
+}
@@ -0,0 +1,72 @@
+package com.hospital.codechallengeapi.repository;
+
+import com.hospital.codechallengeapi.model.response.AppointmentExportRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Reads appointments for export through a forward-only cursor. Postgres only honours the fetch
+ * size inside a transaction, so rows arrive {@code fetchSize} at a time instead of all at once.
+ */
+@Repository
+public class AppointmentExportReader {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String selectSql;
+
+  @Autowired
+  public AppointmentExportReader(
+      JdbcTemplate jdbcTemplate,
+      @Value("${spring.jpa.properties.hibernate.default_schema:healthcare}") String schema,
+      @Value("${appointment-export.fetch-size:1000}") int fetchSize) {
+    this.jdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+    this.jdbcTemplate.setFetchSize(fetchSize);
+    // The join already drops leaves, but the planner only uses the partial index on
+    // (start_date, id) when the query repeats its predicate.
+    this.selectSql =
+        "SELECT a.id, a.doctor_id, du.name AS doctor_name, d.specialty, a.patient_id, "
+            + "pu.name AS patient_name, a.start_date, a.end_date, a.reason FROM "
+            + schema
+            + ".appointment a JOIN "
+            + schema
+            + ".doctor d ON d.id = a.doctor_id JOIN "
+            + schema
+            + ".hospital_user du ON du.id = d.id JOIN "
+            + schema
+            + ".hospital_user pu ON pu.id = a.patient_id "
+            + "WHERE a.start_date >= ? AND a.start_date < ? AND a.patient_id IS NOT NULL "
+            + "ORDER BY a.start_date, a.id";
+  }
+
+  /** Hands every appointment starting in {@code [from, to)} to {@code consumer}, in order. */
+  @Transactional(readOnly = true)
+  public void forEach(Instant from, Instant to, Consumer<AppointmentExportRow> consumer) {
+    jdbcTemplate.query(
+        selectSql,
+        statement -> {
+          statement.setTimestamp(1, Timestamp.from(from));
+          statement.setTimestamp(2, Timestamp.from(to));
+        },
+        resultSet -> {
+          consumer.accept(
+              new AppointmentExportRow(
+                  resultSet.getObject("id", UUID.class),
+                  resultSet.getObject("doctor_id", UUID.class),
+                  resultSet.getString("doctor_name"),
+                  resultSet.getString("specialty"),
+                  resultSet.getObject("patient_id", UUID.class),
+                  resultSet.getString("patient_name"),
+                  resultSet.getTimestamp("start_date").toInstant(),
+                  resultSet.getTimestamp("end_date").toInstant(),
+                  resultSet.getString("reason")));
+        });
+  }
+}
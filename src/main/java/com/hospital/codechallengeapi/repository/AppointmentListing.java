@@ -0,0 +1,20 @@
+package com.hospital.codechallengeapi.repository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** One row of a doctor's appointment listing, read with a single joined select. */
+public interface AppointmentListing {
+
+  UUID getId();
+
+  String getDoctorName();
+
+  String getPatientName();
+
+  String getSpecialty();
+
+  Instant getStartDate();
+
+  Instant getEndDate();
+}
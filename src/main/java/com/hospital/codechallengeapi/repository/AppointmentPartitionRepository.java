@@ -0,0 +1,39 @@
+package com.hospital.codechallengeapi.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.util.List;
+
+/** Creates and detaches the monthly partitions of the appointment table. */
+@Repository
+public class AppointmentPartitionRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String createSql;
+  private final String detachSql;
+
+  @Autowired
+  public AppointmentPartitionRepository(
+      JdbcTemplate jdbcTemplate,
+      @Value("${spring.jpa.properties.hibernate.default_schema:healthcare}") String schema) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.createSql = "SELECT " + schema + ".create_appointment_partition(?)";
+    this.detachSql = "SELECT " + schema + ".detach_appointment_partitions(?)";
+  }
+
+  /** Creates the partition of the month; returns {@code false} if it already exists. */
+  public boolean createPartition(YearMonth month) {
+    return Boolean.TRUE.equals(
+        jdbcTemplate.queryForObject(createSql, Boolean.class, Date.valueOf(month.atDay(1))));
+  }
+
+  /** Detaches every partition of a month before {@code month} and returns their names. */
+  public List<String> detachPartitionsBefore(YearMonth month) {
+    return jdbcTemplate.queryForList(detachSql, String.class, Date.valueOf(month.atDay(1)));
+  }
+}
@@ -3,9 +3,13 @@ package com.hospital.codechallengeapi.repository;
 import com.hospital.codechallengeapi.entity.AppointmentEntity;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
@@ -13,11 +17,117 @@ import java.util.UUID;
 @Repository
 public interface AppointmentRepository extends JpaRepository<AppointmentEntity, UUID> {
 
-    Page<AppointmentEntity> findAppointmentEntitiesByDoctorIdAndPatientIdIsNotNullOrderByStartDate(
-            UUID doctorId, Pageable pageable);
+    /** The longest a single appointment row may last; longer leaves are stored in pieces. */
+    Duration MAX_SPAN = Duration.ofDays(31);
 
-    List<AppointmentEntity>
-    findAppointmentEntitiesByDoctorIdAndStartDateIsLessThanAndEndDateGreaterThan(
-            UUID doctorId, Instant startDate, Instant endDate);
+    String LISTING_SELECT =
+            "select a.id as id, du.name as doctorName, pu.name as patientName, "
+                    + "d.specialty as specialty, a.startDate as startDate, a.endDate as endDate "
+                    + "from AppointmentEntity a "
+                    + "join a.doctor d join d.hospitalUserEntity du "
+                    + "join a.patient p join p.hospitalUserEntity pu ";
+
+    // Listings only show bookings, never leaves; the count query has no join that drops them.
+    String DOCTOR_LISTING =
+            LISTING_SELECT + "where a.doctor.id = :doctorId and a.patient.id is not null ";
+
+    String PATIENT_LISTING = LISTING_SELECT + "where a.patient.id = :patientId ";
+
+    // Keyset conditions on (startDate, id). The leading range on startDate repeats what the OR
+    // implies so that Postgres can turn it into an index bound instead of a filter.
+    String AFTER_CURSOR =
+            "and a.startDate >= :startDate "
+                    + "and (a.startDate > :startDate or (a.startDate = :startDate and a.id > :id)) ";
+
+    String BEFORE_CURSOR =
+            "and a.startDate <= :startDate "
+                    + "and (a.startDate < :startDate or (a.startDate = :startDate and a.id < :id)) ";
+
+    @Query(
+            value = DOCTOR_LISTING + "order by a.startDate, a.id",
+            countQuery =
+                    "select count(a) from AppointmentEntity a "
+                            + "where a.doctor.id = :doctorId and a.patient.id is not null")
+    Page<AppointmentListing> findAppointmentListings(
+            @Param("doctorId") UUID doctorId, Pageable pageable);
+
+    @Query(DOCTOR_LISTING + "order by a.startDate, a.id")
+    Slice<AppointmentListing> findAppointmentListingSlice(
+            @Param("doctorId") UUID doctorId, Pageable pageable);
+
+    @Query(DOCTOR_LISTING + "order by a.startDate, a.id")
+    List<AppointmentListing> findFirstAppointments(
+            @Param("doctorId") UUID doctorId, Pageable pageable);
+
+    @Query(DOCTOR_LISTING
+            + AFTER_CURSOR
+            + "order by a.startDate, a.id")
+    List<AppointmentListing> findAppointmentsAfter(
+            @Param("doctorId") UUID doctorId,
+            @Param("startDate") Instant startDate,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query(PATIENT_LISTING + "and a.startDate >= :now order by a.startDate, a.id")
+    List<AppointmentListing> findFirstUpcomingPatientAppointments(
+            @Param("patientId") UUID patientId, @Param("now") Instant now, Pageable pageable);
+
+    @Query(PATIENT_LISTING
+            + AFTER_CURSOR
+            + "order by a.startDate, a.id")
+    List<AppointmentListing> findUpcomingPatientAppointmentsAfter(
+            @Param("patientId") UUID patientId,
+            @Param("startDate") Instant startDate,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    @Query(PATIENT_LISTING + "and a.startDate < :now order by a.startDate desc, a.id desc")
+    List<AppointmentListing> findFirstPastPatientAppointments(
+            @Param("patientId") UUID patientId, @Param("now") Instant now, Pageable pageable);
+
+    @Query(PATIENT_LISTING
+            + BEFORE_CURSOR
+            + "order by a.startDate desc, a.id desc")
+    List<AppointmentListing> findPastPatientAppointmentsBefore(
+            @Param("patientId") UUID patientId,
+            @Param("startDate") Instant startDate,
+            @Param("id") UUID id,
+            Pageable pageable);
+
+    /**
+     * The appointments of the doctor overlapping [from, to). No row spans more than
+     * {@link #MAX_SPAN}, so callers pass {@code from.minus(MAX_SPAN)} as the earliest start, which
+     * lets Postgres skip older partitions.
+     */
+    @Query("select a from AppointmentEntity a where a.doctor.id = :doctorId "
+            + "and a.startDate > :earliestStart and a.startDate < :to and a.endDate > :from")
+    List<AppointmentEntity> findOverlapping(
+            @Param("doctorId") UUID doctorId,
+            @Param("earliestStart") Instant earliestStart,
+            @Param("from") Instant from,
+            @Param("to") Instant to);
+
+    /** The appointments of the doctor ending after endDate, bounded the same way. */
+    @Query("select a from AppointmentEntity a where a.doctor.id = :doctorId "
+            + "and a.startDate > :earliestStart and a.endDate > :endDate "
+            + "order by a.startDate, a.id")
+    List<AppointmentEntity> findEndingAfter(
+            @Param("doctorId") UUID doctorId,
+            @Param("earliestStart") Instant earliestStart,
+            @Param("endDate") Instant endDate,
+            Pageable pageable);
+
+    /** Like {@link #findEndingAfter}, continuing after the row at (startDate, id). */
+    @Query("select a from AppointmentEntity a where a.doctor.id = :doctorId "
+            + "and a.startDate > :earliestStart and a.endDate > :endDate "
+            + AFTER_CURSOR
+            + "order by a.startDate, a.id")
+    List<AppointmentEntity> findEndingAfterCursor(
+            @Param("doctorId") UUID doctorId,
+            @Param("earliestStart") Instant earliestStart,
+            @Param("endDate") Instant endDate,
+            @Param("startDate") Instant startDate,
+            @Param("id") UUID id,
+            Pageable pageable);
 
 }
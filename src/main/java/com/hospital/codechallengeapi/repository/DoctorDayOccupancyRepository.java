@@ -0,0 +1,73 @@
+package com.hospital.codechallengeapi.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/** Reads the per doctor and day summary that a trigger maintains on every appointment change. */
+@Repository
+public class DoctorDayOccupancyRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String findSql;
+
+  @Autowired
+  public DoctorDayOccupancyRepository(
+      JdbcTemplate jdbcTemplate,
+      @Value("${spring.jpa.properties.hibernate.default_schema:healthcare}") String schema) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.findSql =
+        "SELECT doctor_id, day, appointments, booked_minutes, leave_minutes FROM "
+            + schema
+            + ".doctor_day_occupancy WHERE doctor_id = ANY (?) AND day >= ? AND day < ?";
+  }
+
+  /** The days in [from, to) on which the doctors have any appointment or leave. */
+  @Transactional(readOnly = true)
+  public List<DoctorDayOccupancy> find(Collection<UUID> doctorIds, LocalDate from, LocalDate to) {
+    if (doctorIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return jdbcTemplate.query(
+        findSql,
+        statement -> {
+          statement.setArray(
+              1, statement.getConnection().createArrayOf("uuid", doctorIds.toArray()));
+          statement.setDate(2, Date.valueOf(from));
+          statement.setDate(3, Date.valueOf(to));
+        },
+        (resultSet, row) ->
+            new DoctorDayOccupancy(
+                resultSet.getObject("doctor_id", UUID.class),
+                resultSet.getDate("day").toLocalDate(),
+                resultSet.getInt("appointments"),
+                resultSet.getInt("booked_minutes"),
+                resultSet.getInt("leave_minutes")));
+  }
+
+  @Data
+  @AllArgsConstructor
+  public static class DoctorDayOccupancy {
+
+    private UUID doctorId;
+
+    private LocalDate day;
+
+    private int appointments;
+
+    private int bookedMinutes;
+
+    private int leaveMinutes;
+  }
+}
@@ -1,10 +1,38 @@
 package com.hospital.codechallengeapi.repository;
 
 import com.hospital.codechallengeapi.entity.DoctorEntity;
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface DoctorRepository extends JpaRepository<DoctorEntity, UUID> {}
+public interface DoctorRepository extends JpaRepository<DoctorEntity, UUID> {
+
+  @Query(
+      "select new com.hospital.codechallengeapi.model.response.DoctorResponse(d.id, u.name, d.specialty) "
+          + "from DoctorEntity d join d.hospitalUserEntity u "
+          + "where lower(d.specialty) = lower(:specialty)")
+  List<DoctorResponse> findDoctorsBySpecialty(@Param("specialty") String specialty);
+
+  @Query(
+      "select new com.hospital.codechallengeapi.model.response.DoctorResponse(d.id, u.name, d.specialty) "
+          + "from DoctorEntity d join d.hospitalUserEntity u")
+  List<DoctorResponse> findAllDoctors();
+
+  @Query("select d.id from DoctorEntity d where d.id in :ids")
+  List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+  @Query("select d.id as id, d.timeZone as timeZone from DoctorEntity d where d.id in :ids")
+  List<DoctorTimeZone> findTimeZonesByIdIn(@Param("ids") Collection<UUID> ids);
+
+  @Modifying
+  @Query("update DoctorEntity d set d.timeZone = :timeZone where d.id = :id")
+  int updateTimeZone(@Param("id") UUID id, @Param("timeZone") String timeZone);
+}
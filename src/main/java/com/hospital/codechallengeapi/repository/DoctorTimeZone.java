@@ -0,0 +1,10 @@
+package com.hospital.codechallengeapi.repository;
+
+import java.util.UUID;
+
+public interface DoctorTimeZone {
+
+  UUID getId();
+
+  String getTimeZone();
+}
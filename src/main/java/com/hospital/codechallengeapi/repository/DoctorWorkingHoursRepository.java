@@ -0,0 +1,20 @@
+package com.hospital.codechallengeapi.repository;
+
+import com.hospital.codechallengeapi.entity.DoctorWorkingHoursEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DoctorWorkingHoursRepository
+    extends JpaRepository<DoctorWorkingHoursEntity, Integer> {
+
+  List<DoctorWorkingHoursEntity> findByDoctorIdIn(Collection<UUID> doctorIds);
+
+  @Modifying
+  void deleteByDoctorId(UUID doctorId);
+}
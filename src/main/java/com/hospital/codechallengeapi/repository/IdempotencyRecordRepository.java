@@ -0,0 +1,99 @@
+package com.hospital.codechallengeapi.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/** Durable side of the idempotency key store, shared by every instance of the service. */
+@Repository
+public class IdempotencyRecordRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final String claimSql;
+  private final String findSql;
+  private final String completeSql;
+  private final String releaseSql;
+  private final String purgeSql;
+
+  @Autowired
+  public IdempotencyRecordRepository(
+      JdbcTemplate jdbcTemplate,
+      @Value("${spring.jpa.properties.hibernate.default_schema:healthcare}") String schema) {
+    this.jdbcTemplate = jdbcTemplate;
+    String table = schema + ".idempotency_record";
+    // A live record is left alone; an expired one is taken over as if it did not exist.
+    this.claimSql =
+        "INSERT INTO "
+            + table
+            + " AS r (scope, idempotency_key, fingerprint, created_at, expires_at) "
+            + "VALUES (?, ?, ?, ?, ?) "
+            + "ON CONFLICT (scope, idempotency_key) DO UPDATE SET "
+            + "fingerprint = EXCLUDED.fingerprint, response_id = NULL, "
+            + "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at "
+            + "WHERE r.expires_at <= EXCLUDED.created_at";
+    this.findSql =
+        "SELECT fingerprint, response_id FROM "
+            + table
+            + " WHERE scope = ? AND idempotency_key = ?";
+    this.completeSql =
+        "UPDATE " + table + " SET response_id = ? WHERE scope = ? AND idempotency_key = ?";
+    this.releaseSql =
+        "DELETE FROM " + table + " WHERE scope = ? AND idempotency_key = ? AND response_id IS NULL";
+    this.purgeSql = "DELETE FROM " + table + " WHERE expires_at <= ?";
+  }
+
+  /** Claims the key for this caller; returns {@code false} if a live record already holds it. */
+  public boolean claim(
+      String scope, String key, String fingerprint, Instant createdAt, Instant expiresAt) {
+    return jdbcTemplate.update(
+            claimSql,
+            scope,
+            key,
+            fingerprint,
+            Timestamp.from(createdAt),
+            Timestamp.from(expiresAt))
+        > 0;
+  }
+
+  public IdempotencyRecord find(String scope, String key) {
+    List<IdempotencyRecord> records =
+        jdbcTemplate.query(
+            findSql,
+            (resultSet, row) ->
+                new IdempotencyRecord(
+                    resultSet.getString("fingerprint"),
+                    resultSet.getObject("response_id", UUID.class)),
+            scope,
+            key);
+    return records.isEmpty() ? null : records.get(0);
+  }
+
+  public void complete(String scope, String key, UUID responseId) {
+    jdbcTemplate.update(completeSql, responseId, scope, key);
+  }
+
+  public void release(String scope, String key) {
+    jdbcTemplate.update(releaseSql, scope, key);
+  }
+
+  public int purgeExpired(Instant now) {
+    return jdbcTemplate.update(purgeSql, Timestamp.from(now));
+  }
+
+  @Data
+  @AllArgsConstructor
+  public static class IdempotencyRecord {
+
+    private String fingerprint;
+
+    private UUID responseId;
+  }
+}
@@ -2,9 +2,17 @@ package com.hospital.codechallengeapi.repository;
 
 import com.hospital.codechallengeapi.entity.PatientEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface PatientRepository extends JpaRepository<PatientEntity, UUID> {}
+public interface PatientRepository extends JpaRepository<PatientEntity, UUID> {
+
+  @Query("select p.id from PatientEntity p where p.id in :ids")
+  List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+}
@@ -0,0 +1,42 @@
+package com.hospital.codechallengeapi.repository;
+
+import java.util.function.Supplier;
+
+/**
+ * Pins the reads of the current thread to the primary database. Read-only transactions normally
+ * go to the replica when one is configured; code that fills an in-memory cache, or that must see
+ * what was just written, runs its reads inside {@link #onPrimary} instead.
+ */
+public final class ReplicaRouting {
+
+  private static final ThreadLocal<Integer> PINS = new ThreadLocal<>();
+
+  private ReplicaRouting() {}
+
+  public static <T> T onPrimary(Supplier<T> read) {
+    pin();
+    try {
+      return read.get();
+    } finally {
+      unpin();
+    }
+  }
+
+  public static void pin() {
+    Integer pins = PINS.get();
+    PINS.set(pins == null ? 1 : pins + 1);
+  }
+
+  public static void unpin() {
+    Integer pins = PINS.get();
+    if (pins == null || pins <= 1) {
+      PINS.remove();
+    } else {
+      PINS.set(pins - 1);
+    }
+  }
+
+  public static boolean isPinned() {
+    return PINS.get() != null;
+  }
+}
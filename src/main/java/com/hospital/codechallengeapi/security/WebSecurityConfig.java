@@ -4,6 +4,7 @@ import com.hospital.codechallengeapi.security.jwt.JwtAuthEntryPoint;
 import com.hospital.codechallengeapi.security.jwt.JwtAuthTokenFilter;
 import com.hospital.codechallengeapi.security.services.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,16 +27,25 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
   private final JwtAuthEntryPoint unauthorizedHandler;
 
+  private final JwtAuthTokenFilter authenticationJwtTokenFilter;
+
   @Autowired
   public WebSecurityConfig(
-      UserDetailsServiceImpl userDetailsService, JwtAuthEntryPoint unauthorizedHandler) {
+      UserDetailsServiceImpl userDetailsService,
+      JwtAuthEntryPoint unauthorizedHandler,
+      JwtAuthTokenFilter authenticationJwtTokenFilter) {
     this.userDetailsService = userDetailsService;
     this.unauthorizedHandler = unauthorizedHandler;
+    this.authenticationJwtTokenFilter = authenticationJwtTokenFilter;
   }
 
+  /** The filter runs inside the security chain only, not a second time as a servlet filter. */
   @Bean
-  public JwtAuthTokenFilter authenticationJwtTokenFilter() {
-    return new JwtAuthTokenFilter();
+  public FilterRegistrationBean<JwtAuthTokenFilter> jwtAuthTokenFilterRegistration() {
+    FilterRegistrationBean<JwtAuthTokenFilter> registration =
+        new FilterRegistrationBean<>(authenticationJwtTokenFilter);
+    registration.setEnabled(false);
+    return registration;
   }
 
   @Override
@@ -58,8 +68,7 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         .anyRequest()
         .authenticated();
 
-    http.addFilterBefore(
-        authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+    http.addFilterBefore(authenticationJwtTokenFilter, UsernamePasswordAuthenticationFilter.class);
   }
 
   @Override
@@ -1,29 +1,63 @@
 package com.hospital.codechallengeapi.security.jwt;
 
 import com.hospital.codechallengeapi.security.services.UserDetailsServiceImpl;
+import com.hospital.codechallengeapi.security.services.UserPrinciple;
+import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.servlet.util.matcher.MvcRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
+/**
+ * Authenticates requests from the claims of their token, without loading the user. Requests to
+ * {@code jwt.recheck-paths} load the user instead, so a removed user or a revoked role is noticed
+ * there before the token expires.
+ */
 @Component
 @Slf4j
 public class JwtAuthTokenFilter extends OncePerRequestFilter {
 
-  @Autowired private JwtProvider tokenProvider;
+  private final JwtProvider tokenProvider;
 
-  @Autowired private UserDetailsServiceImpl userDetailsService;
+  private final UserDetailsServiceImpl userDetailsService;
+
+  private final List<RequestMatcher> recheckPaths;
+
+  @Autowired
+  public JwtAuthTokenFilter(
+      JwtProvider tokenProvider,
+      UserDetailsServiceImpl userDetailsService,
+      HandlerMappingIntrospector introspector,
+      @Value("${jwt.recheck-paths:}") String[] recheckPaths) {
+    this.tokenProvider = tokenProvider;
+    this.userDetailsService = userDetailsService;
+    // Matched the way the dispatcher routes, so variants it maps to the same handler (such as a
+    // trailing slash) cannot skip the re-check.
+    this.recheckPaths =
+        Arrays.stream(recheckPaths)
+            .map(String::trim)
+            .filter(StringUtils::hasText)
+            .map(pattern -> new MvcRequestMatcher(introspector, pattern))
+            .collect(Collectors.toList());
+  }
 
   @Override
   protected void doFilterInternal(
@@ -31,10 +65,9 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = getJwt(request);
-      if (StringUtils.hasText(jwt) && tokenProvider.validateJwtToken(jwt)) {
-        String username = tokenProvider.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseJwtToken(jwt) : null;
+      if (claims != null) {
+        UserDetails userDetails = loadPrincipal(claims, request);
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails, null, userDetails.getAuthorities());
@@ -49,6 +82,32 @@ public class JwtAuthTokenFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private UserDetails loadPrincipal(Claims claims, HttpServletRequest request) {
+    UserPrinciple fromClaims = tokenProvider.getPrincipal(claims);
+    if (fromClaims == null) {
+      return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+    if (!requiresRecheck(request)) {
+      return fromClaims;
+    }
+    UserPrinciple stored =
+        (UserPrinciple) userDetailsService.loadUserByUsername(claims.getSubject());
+    if (!stored.getId().equals(fromClaims.getId())) {
+      throw new IllegalStateException(
+          "User " + claims.getSubject() + " no longer matches the id in the token");
+    }
+    return stored;
+  }
+
+  private boolean requiresRecheck(HttpServletRequest request) {
+    for (RequestMatcher matcher : recheckPaths) {
+      if (matcher.matches(request)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private String getJwt(HttpServletRequest request) {
     String bearerToken = request.getHeader("Authorization");
     if (!StringUtils.hasText(bearerToken) || !bearerToken.startsWith("Bearer ")) return null;
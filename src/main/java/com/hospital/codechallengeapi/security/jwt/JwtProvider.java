@@ -6,17 +6,27 @@ import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class JwtProvider {
 
+  static final String ID_CLAIM = "id";
+  static final String NAME_CLAIM = "name";
+  static final String ROLES_CLAIM = "roles";
+
   private final String jwtSecret;
 
   public JwtProvider(
@@ -33,6 +43,13 @@ public class JwtProvider {
     String compactTokenString =
         Jwts.builder()
             .claim("sub", userPrincipal.getUsername())
+            .claim(ID_CLAIM, userPrincipal.getId().toString())
+            .claim(NAME_CLAIM, userPrincipal.getName())
+            .claim(
+                ROLES_CLAIM,
+                userPrincipal.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .collect(Collectors.toList()))
             .setExpiration(expirationDate)
             .signWith(key, SignatureAlgorithm.HS256)
             .compact();
@@ -48,11 +65,17 @@ public class JwtProvider {
   }
 
   public boolean validateJwtToken(String token) {
+    return parseJwtToken(token) != null;
+  }
+
+  /** The claims of a token whose signature and expiration are valid, or null otherwise. */
+  public Claims parseJwtToken(String token) {
 
     try {
       byte[] secretBytes = jwtSecret.getBytes();
-      Jwts.parserBuilder().setSigningKey(secretBytes).build().parseClaimsJws(token);
-      return true;
+      Jws<Claims> jwsClaims =
+          Jwts.parserBuilder().setSigningKey(secretBytes).build().parseClaimsJws(token);
+      return jwsClaims.getBody();
     } catch (MalformedJwtException e) {
       log.error("Invalid JWT token: {}", e.getMessage());
     } catch (ExpiredJwtException e) {
@@ -63,6 +86,28 @@ public class JwtProvider {
       log.error("JWT claims string is empty: {}", e.getMessage());
     }
 
-    return false;
+    return null;
+  }
+
+  /**
+   * The principal described by verified claims, without loading the user. Returns null for tokens
+   * issued before the id, name and roles were embedded.
+   */
+  public UserPrinciple getPrincipal(Claims claims) {
+    String id = claims.get(ID_CLAIM, String.class);
+    Collection<?> roles = claims.get(ROLES_CLAIM, Collection.class);
+    if (id == null || roles == null) {
+      return null;
+    }
+    List<GrantedAuthority> authorities =
+        roles.stream()
+            .map(role -> new SimpleGrantedAuthority(role.toString()))
+            .collect(Collectors.toList());
+    return new UserPrinciple(
+        UUID.fromString(id),
+        claims.get(NAME_CLAIM, String.class),
+        claims.getSubject(),
+        null,
+        authorities);
   }
 }
@@ -0,0 +1,52 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Turns the constraint violations of an appointment insert into the error the caller should see,
+ * by SQLState and, for foreign keys, by the violated constraint. The foreign keys of the
+ * partitions are named after their column ({@code appointment_2021_04_patient_id_fkey}); any
+ * other one is the doctor's, the only other key the caller can get wrong.
+ */
+final class AppointmentConstraintViolation {
+
+  static final String ALREADY_BOOKED = "The selected date is already booked";
+
+  private static final String FOREIGN_KEY_VIOLATION = "23503";
+  private static final String EXCLUSION_VIOLATION = "23P01";
+
+  private AppointmentConstraintViolation() {}
+
+  static RuntimeException translate(
+      DataIntegrityViolationException e, AppointmentEntity appointment) {
+    Throwable cause = e.getMostSpecificCause();
+    String sqlState = cause instanceof SQLException ? ((SQLException) cause).getSQLState() : null;
+    if (EXCLUSION_VIOLATION.equals(sqlState)) {
+      return new AppointmentCreationException(ALREADY_BOOKED);
+    }
+    if (FOREIGN_KEY_VIOLATION.equals(sqlState)) {
+      String constraint = constraintOf(cause);
+      if (constraint.contains("patient_id") && appointment.getPatient() != null) {
+        return new AppointmentCreationException(
+            "Patient with id " + appointment.getPatient().getId() + " does not exist");
+      }
+      return new AppointmentCreationException(
+          "Doctor with id " + appointment.getDoctor().getId() + " does not exist");
+    }
+    return e;
+  }
+
+  private static String constraintOf(Throwable cause) {
+    if (!(cause instanceof PSQLException)) {
+      return "";
+    }
+    ServerErrorMessage message = ((PSQLException) cause).getServerErrorMessage();
+    return message == null || message.getConstraint() == null ? "" : message.getConstraint();
+  }
+}
@@ -0,0 +1,39 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/** Position of the last appointment of a page, handed to clients as an opaque string. */
+@Value
+public class AppointmentCursor {
+
+  private static final char SEPARATOR = '|';
+
+  Instant startDate;
+
+  UUID id;
+
+  public String encode() {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString((startDate.toString() + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static AppointmentCursor decode(String cursor) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = decoded.indexOf(SEPARATOR);
+      return new AppointmentCursor(
+          Instant.parse(decoded.substring(0, separator)),
+          UUID.fromString(decoded.substring(separator + 1)));
+    } catch (IllegalArgumentException | DateTimeException | IndexOutOfBoundsException e) {
+      throw new InvalidRequestException("Invalid cursor");
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+
+import java.util.Locale;
+
+public enum AppointmentExportFormat {
+  NDJSON("application/x-ndjson"),
+  CSV("text/csv");
+
+  private final String contentType;
+
+  AppointmentExportFormat(String contentType) {
+    this.contentType = contentType;
+  }
+
+  public String getContentType() {
+    return contentType;
+  }
+
+  public static AppointmentExportFormat of(String name) {
+    try {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestException("Unsupported export format " + name);
+    }
+  }
+}
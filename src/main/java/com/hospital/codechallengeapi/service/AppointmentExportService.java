@@ -0,0 +1,113 @@
+package com.hospital.codechallengeapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.response.AppointmentExportRow;
+import com.hospital.codechallengeapi.repository.AppointmentExportReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams every appointment of a date range as NDJSON or CSV. Rows are written as they come off
+ * the database cursor, so memory use does not depend on the size of the range.
+ */
+@Service
+@Slf4j
+public class AppointmentExportService {
+
+  static final String CSV_HEADER =
+      "id,doctor_id,doctor_name,specialty,patient_id,patient_name,start_date,end_date,reason";
+
+  private final AppointmentExportReader appointmentExportReader;
+  private final ObjectWriter objectWriter;
+
+  @Autowired
+  public AppointmentExportService(
+      AppointmentExportReader appointmentExportReader, ObjectMapper objectMapper) {
+    this.appointmentExportReader = appointmentExportReader;
+    this.objectWriter = objectMapper.writerFor(AppointmentExportRow.class);
+  }
+
+  public void validate(Instant from, Instant to) {
+    if (!to.isAfter(from)) {
+      throw new InvalidRequestException("'to' must be after 'from'");
+    }
+  }
+
+  public void export(
+      Instant from, Instant to, AppointmentExportFormat format, OutputStream outputStream)
+      throws IOException {
+    validate(from, to);
+    Writer writer =
+        new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    if (format == AppointmentExportFormat.CSV) {
+      writer.write(CSV_HEADER);
+      writer.write('\n');
+    }
+
+    AtomicLong rows = new AtomicLong();
+    try {
+      appointmentExportReader.forEach(
+          from,
+          to,
+          row -> {
+            try {
+              writer.write(format == AppointmentExportFormat.CSV ? toCsv(row) : toJson(row));
+              writer.write('\n');
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+            rows.incrementAndGet();
+          });
+    } catch (UncheckedIOException e) {
+      // Most likely the client went away; the cursor has been closed by now.
+      throw e.getCause();
+    }
+    writer.flush();
+    log.info("Exported {} appointments between {} and {} as {}", rows.get(), from, to, format);
+  }
+
+  private String toJson(AppointmentExportRow row) throws JsonProcessingException {
+    return objectWriter.writeValueAsString(row);
+  }
+
+  private static String toCsv(AppointmentExportRow row) {
+    return String.join(
+        ",",
+        String.valueOf(row.getId()),
+        String.valueOf(row.getDoctorId()),
+        csvField(row.getDoctorName()),
+        csvField(row.getSpecialty()),
+        String.valueOf(row.getPatientId()),
+        csvField(row.getPatientName()),
+        row.getStartDate().toString(),
+        row.getEndDate().toString(),
+        csvField(row.getReason()));
+  }
+
+  static String csvField(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
@@ -0,0 +1,58 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.repository.AppointmentPartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Keeps the appointment table partitioned ahead of time: the partitions of the coming months are
+ * created before anything is booked in them, and the ones past the retention are detached so
+ * they no longer weigh on the live table.
+ */
+@Service
+@Slf4j
+public class AppointmentPartitionMaintainer {
+
+  private final AppointmentPartitionRepository partitionRepository;
+  private final Clock clock;
+  private final int monthsAhead;
+  private final int retentionMonths;
+
+  @Autowired
+  public AppointmentPartitionMaintainer(
+      AppointmentPartitionRepository partitionRepository,
+      Clock clock,
+      @Value("${appointment-partitions.months-ahead:3}") int monthsAhead,
+      @Value("${appointment-partitions.retention-months:24}") int retentionMonths) {
+    this.partitionRepository = partitionRepository;
+    this.clock = clock;
+    this.monthsAhead = monthsAhead;
+    this.retentionMonths = retentionMonths;
+  }
+
+  @Scheduled(fixedDelayString = "${appointment-partitions.check-interval:PT6H}")
+  public void maintain() {
+    YearMonth current = YearMonth.now(clock);
+    for (int i = 0; i <= monthsAhead; i++) {
+      YearMonth month = current.plusMonths(i);
+      if (partitionRepository.createPartition(month)) {
+        log.info("Created the appointment partition of {}", month);
+      }
+    }
+    // A retention of zero keeps every month attached.
+    if (retentionMonths > 0) {
+      List<String> detached =
+          partitionRepository.detachPartitionsBefore(current.minusMonths(retentionMonths));
+      if (!detached.isEmpty()) {
+        log.info("Detached the appointment partitions {}", detached);
+      }
+    }
+  }
+}
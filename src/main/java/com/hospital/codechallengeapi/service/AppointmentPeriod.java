@@ -0,0 +1,18 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+
+import java.util.Locale;
+
+public enum AppointmentPeriod {
+  UPCOMING,
+  PAST;
+
+  public static AppointmentPeriod of(String name) {
+    try {
+      return valueOf(name.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidRequestException("Unsupported period " + name);
+    }
+  }
+}
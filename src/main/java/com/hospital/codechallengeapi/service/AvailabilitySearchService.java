@@ -0,0 +1,196 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.response.AvailabilitySearchResponse;
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
+import com.hospital.codechallengeapi.model.response.DoctorTimeSlot;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the earliest free slots across every doctor of a specialty. Doctors are split into shards
+ * that are evaluated in parallel against the calendar cache, each shard keeping only its earliest
+ * {@code limit} slots so the merge stays bounded. Hours held for a patient are left out, as in a
+ * single doctor's availability.
+ */
+@Service
+@Slf4j
+public class AvailabilitySearchService implements DisposableBean {
+
+  static final Comparator<DoctorTimeSlot> EARLIEST_FIRST =
+      Comparator.comparing(DoctorTimeSlot::getStartDate)
+          .thenComparing(DoctorTimeSlot::getDoctorName, Comparator.nullsLast(String::compareTo))
+          .thenComparing(DoctorTimeSlot::getDoctorId);
+
+  private final DoctorRepository doctorRepository;
+  private final DoctorCalendarCache calendarCache;
+  private final WorkingHoursService workingHoursService;
+  private final SlotHoldService slotHoldService;
+  private final Clock clock;
+  private final ForkJoinPool pool;
+  private final int shardSize;
+  private final Duration maxWindow;
+
+  @Autowired
+  public AvailabilitySearchService(
+      DoctorRepository doctorRepository,
+      DoctorCalendarCache calendarCache,
+      WorkingHoursService workingHoursService,
+      SlotHoldService slotHoldService,
+      Clock clock,
+      @Value("${availability.search.parallelism:4}") int parallelism,
+      @Value("${availability.search.shard-size:16}") int shardSize,
+      @Value("${availability.search.max-window:P14D}") Duration maxWindow) {
+    this.doctorRepository = doctorRepository;
+    this.calendarCache = calendarCache;
+    this.workingHoursService = workingHoursService;
+    this.slotHoldService = slotHoldService;
+    this.clock = clock;
+    this.pool = new ForkJoinPool(parallelism);
+    this.shardSize = shardSize;
+    this.maxWindow = maxWindow;
+  }
+
+  public AvailabilitySearchResponse search(String specialty, Instant from, Instant to, int limit) {
+    Instant now = clock.instant().truncatedTo(ChronoUnit.HOURS);
+    Instant start = from == null || from.isBefore(now) ? now : from.truncatedTo(ChronoUnit.HOURS);
+    Instant end = to == null ? start.plus(7, ChronoUnit.DAYS) : to;
+
+    if (!end.isAfter(start)) {
+      throw new InvalidRequestException("'to' must be after 'from'");
+    }
+    if (Duration.between(start, end).compareTo(maxWindow) > 0) {
+      throw new InvalidRequestException("The search window cannot be longer than " + maxWindow);
+    }
+
+    List<DoctorResponse> doctors = doctorRepository.findDoctorsBySpecialty(specialty);
+    log.debug(
+        "Searching availability of {} doctors of specialty {} between {} and {}",
+        doctors.size(),
+        specialty,
+        start,
+        end);
+    if (doctors.isEmpty()) {
+      return new AvailabilitySearchResponse(Collections.emptyList());
+    }
+
+    int hours = (int) Math.ceil(Duration.between(start, end).toMinutes() / 60.0);
+    Map<UUID, WorkingHours> workingHours =
+        workingHoursService.forDoctors(
+            doctors.stream().map(DoctorResponse::getId).collect(Collectors.toList()));
+    List<DoctorTimeSlot> slots =
+        pool.invoke(new ShardSearch(doctors, workingHours, start, hours, limit));
+    return new AvailabilitySearchResponse(slots);
+  }
+
+  @Override
+  public void destroy() {
+    pool.shutdown();
+  }
+
+  private List<DoctorTimeSlot> freeSlots(
+      DoctorResponse doctor, WorkingHours workingHours, Instant start, int hours, int limit) {
+    HourlyOccupancy occupancy = calendarCache.getOccupancy(doctor.getId(), start, hours);
+    BitSet free = occupancy.freeHours(workingHours.workingHours(start, hours));
+    List<DoctorTimeSlot> slots = new ArrayList<>();
+    for (int hour = free.nextSetBit(0);
+        hour >= 0 && slots.size() < limit;
+        hour = free.nextSetBit(hour + 1)) {
+      Instant slotStart = start.plus(hour, ChronoUnit.HOURS);
+      if (slotHoldService.isHeld(doctor.getId(), slotStart)) {
+        continue;
+      }
+      slots.add(
+          DoctorTimeSlot.builder()
+              .doctorId(doctor.getId())
+              .doctorName(doctor.getName())
+              .specialty(doctor.getSpecialty())
+              .startDate(slotStart)
+              .endDate(slotStart.plus(1, ChronoUnit.HOURS))
+              .build());
+    }
+    return slots;
+  }
+
+  private static List<DoctorTimeSlot> mergeEarliest(
+      List<DoctorTimeSlot> left, List<DoctorTimeSlot> right, int limit) {
+    List<DoctorTimeSlot> merged = new ArrayList<>(Math.min(limit, left.size() + right.size()));
+    int i = 0;
+    int j = 0;
+    while (merged.size() < limit && (i < left.size() || j < right.size())) {
+      if (j >= right.size()
+          || (i < left.size() && EARLIEST_FIRST.compare(left.get(i), right.get(j)) <= 0)) {
+        merged.add(left.get(i++));
+      } else {
+        merged.add(right.get(j++));
+      }
+    }
+    return merged;
+  }
+
+  private class ShardSearch extends RecursiveTask<List<DoctorTimeSlot>> {
+
+    private final List<DoctorResponse> doctors;
+    private final Map<UUID, WorkingHours> workingHours;
+    private final Instant start;
+    private final int hours;
+    private final int limit;
+
+    private ShardSearch(
+        List<DoctorResponse> doctors,
+        Map<UUID, WorkingHours> workingHours,
+        Instant start,
+        int hours,
+        int limit) {
+      this.doctors = doctors;
+      this.workingHours = workingHours;
+      this.start = start;
+      this.hours = hours;
+      this.limit = limit;
+    }
+
+    @Override
+    protected List<DoctorTimeSlot> compute() {
+      if (doctors.size() > shardSize) {
+        int middle = doctors.size() / 2;
+        ShardSearch left =
+            new ShardSearch(doctors.subList(0, middle), workingHours, start, hours, limit);
+        ShardSearch right =
+            new ShardSearch(
+                doctors.subList(middle, doctors.size()), workingHours, start, hours, limit);
+        left.fork();
+        List<DoctorTimeSlot> rightSlots = right.compute();
+        return mergeEarliest(left.join(), rightSlots, limit);
+      }
+
+      List<DoctorTimeSlot> slots = Collections.emptyList();
+      for (DoctorResponse doctor : doctors) {
+        slots =
+            mergeEarliest(
+                slots,
+                freeSlots(doctor, workingHours.get(doctor.getId()), start, hours, limit),
+                limit);
+      }
+      return slots;
+    }
+  }
+}
@@ -0,0 +1,328 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.exception.BookingRejectedException;
+import com.hospital.codechallengeapi.model.response.IdResponse;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serialises every booking of a doctor on one of a fixed set of single-threaded shards, picked by
+ * hashing the doctor id. A shard checks conflicts against the calendar cache and inserts in
+ * order, so bookings of the same doctor never race each other while different doctors proceed in
+ * parallel. The exclusion constraint still guards against other instances.
+ *
+ * <p>Bookings that reach a shard within a short window are group-committed: they are written in a
+ * single transaction and each caller gets its own outcome back. Every member is claimed before the
+ * group is written, and a claimed booking is never timed out, however long the transaction takes.
+ */
+@Component
+@Slf4j
+public class BookingExecutor implements DisposableBean {
+
+  static final String ALREADY_BOOKED = AppointmentConstraintViolation.ALREADY_BOOKED;
+
+  private final AppointmentBatchWriter appointmentBatchWriter;
+  private final DoctorCalendarCache calendarCache;
+  private final Duration timeout;
+  private final Duration batchWindow;
+  private final int maxBatchSize;
+  private final DistributionSummary batchSize;
+  private final Timer queueWait;
+  private final Shard[] shards;
+
+  @Autowired
+  public BookingExecutor(
+      AppointmentBatchWriter appointmentBatchWriter,
+      DoctorCalendarCache calendarCache,
+      MeterRegistry meterRegistry,
+      @Value("${booking.shards:8}") int shardCount,
+      @Value("${booking.queue-capacity:10000}") int queueCapacity,
+      @Value("${booking.timeout:PT5S}") Duration timeout,
+      @Value("${booking.batch.window:2ms}") Duration batchWindow,
+      @Value("${booking.batch.max-size:64}") int maxBatchSize) {
+    this.appointmentBatchWriter = appointmentBatchWriter;
+    this.calendarCache = calendarCache;
+    this.timeout = timeout;
+    this.batchWindow = batchWindow;
+    this.maxBatchSize = maxBatchSize;
+    this.batchSize =
+        DistributionSummary.builder("booking.batch.size")
+            .description("Bookings written per transaction")
+            .register(meterRegistry);
+    this.queueWait =
+        Timer.builder("booking.queue.wait")
+            .description("Time a booking waits in its shard before being processed")
+            .register(meterRegistry);
+    this.shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(i, queueCapacity);
+    }
+  }
+
+  /**
+   * Books the appointment on its doctor's shard and waits for the outcome. A booking the shard has
+   * not picked up within the timeout is rejected; one it has already claimed is waited for, since
+   * its row may be committed by now.
+   */
+  public IdResponse book(AppointmentEntity appointment) {
+    UUID doctorId = appointment.getDoctor().getId();
+    Booking booking = new Booking(appointment);
+    if (!shardOf(doctorId).mailbox.offer(booking)) {
+      throw new BookingRejectedException("Too many bookings in progress, please retry");
+    }
+    try {
+      return booking.result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      if (booking.abandon()) {
+        throw new BookingRejectedException("The booking could not be processed in time");
+      }
+      return awaitClaimed(booking);
+    } catch (ExecutionException e) {
+      throw unwrap(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      if (booking.abandon()) {
+        throw new BookingRejectedException("The booking was interrupted");
+      }
+      return awaitClaimed(booking);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    for (Shard shard : shards) {
+      shard.thread.interrupt();
+    }
+  }
+
+  private static IdResponse awaitClaimed(Booking booking) {
+    try {
+      return booking.result.join();
+    } catch (CompletionException e) {
+      throw unwrap(e.getCause());
+    }
+  }
+
+  private static RuntimeException unwrap(Throwable cause) {
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    return new IllegalStateException(cause);
+  }
+
+  private Shard shardOf(UUID doctorId) {
+    return shards[Math.floorMod(doctorId.hashCode(), shards.length)];
+  }
+
+  private void process(List<Booking> batch) {
+    long now = System.nanoTime();
+    List<Booking> accepted = new ArrayList<>(batch.size());
+    Map<UUID, List<AppointmentEntity>> acceptedByDoctor = new HashMap<>();
+    for (Booking booking : batch) {
+      // Once claimed the caller waits for the outcome whatever the timeout, so the row is never
+      // committed behind the back of a caller that was told the booking failed.
+      if (!booking.claim()) {
+        continue;
+      }
+      queueWait.record(now - booking.enqueuedAt, TimeUnit.NANOSECONDS);
+      AppointmentEntity appointment = booking.appointment;
+      List<AppointmentEntity> sameDoctor =
+          acceptedByDoctor.computeIfAbsent(
+              appointment.getDoctor().getId(), doctorId -> new ArrayList<>());
+      boolean booked;
+      try {
+        booked = isBooked(appointment);
+      } catch (RuntimeException e) {
+        // A calendar that cannot be loaded only fails its own booking, not the whole group.
+        log.error("Could not check the calendar of doctor {}", appointment.getDoctor().getId(), e);
+        booking.result.completeExceptionally(e);
+        continue;
+      }
+      if (booked || overlapsAny(appointment, sameDoctor)) {
+        booking.result.completeExceptionally(new AppointmentCreationException(ALREADY_BOOKED));
+        continue;
+      }
+      sameDoctor.add(appointment);
+      accepted.add(booking);
+    }
+    if (accepted.isEmpty()) {
+      return;
+    }
+
+    batchSize.record(accepted.size());
+    List<AppointmentEntity> appointments = new ArrayList<>(accepted.size());
+    for (Booking booking : accepted) {
+      appointments.add(booking.appointment);
+    }
+    try {
+      appointmentBatchWriter.insertAll(appointments);
+    } catch (DataIntegrityViolationException e) {
+      // One bad row rolls back the whole group; retry one by one so only that caller fails.
+      log.debug("Group commit of {} bookings failed, retrying one by one", accepted.size(), e);
+      for (Booking booking : accepted) {
+        insertOne(booking);
+      }
+      return;
+    }
+    // Every member is committed: answer them all before touching the cache.
+    for (Booking booking : accepted) {
+      booking.result.complete(new IdResponse(booking.appointment.getId()));
+    }
+    for (Booking booking : accepted) {
+      booked(booking);
+    }
+  }
+
+  private void insertOne(Booking booking) {
+    try {
+      appointmentBatchWriter.insert(booking.appointment);
+    } catch (DataIntegrityViolationException e) {
+      booking.result.completeExceptionally(
+          AppointmentConstraintViolation.translate(e, booking.appointment));
+      return;
+    }
+    booked(booking);
+  }
+
+  private void booked(Booking booking) {
+    AppointmentEntity appointment = booking.appointment;
+    booking.result.complete(new IdResponse(appointment.getId()));
+    calendarCache.markOccupied(
+        appointment.getDoctor().getId(), appointment.getStartDate(), appointment.getEndDate());
+  }
+
+  private boolean isBooked(AppointmentEntity appointment) {
+    Instant start = appointment.getStartDate();
+    Instant end = appointment.getEndDate();
+    int hours = (int) Math.max(ChronoUnit.HOURS.between(start, end), 1);
+    return calendarCache
+        .getOccupancy(appointment.getDoctor().getId(), start, hours)
+        .isOccupied(start, end);
+  }
+
+  private static boolean overlapsAny(
+      AppointmentEntity appointment, List<AppointmentEntity> others) {
+    for (AppointmentEntity other : others) {
+      if (appointment.getStartDate().isBefore(other.getEndDate())
+          && other.getStartDate().isBefore(appointment.getEndDate())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Booking {
+
+    private static final int PENDING = 0;
+    private static final int CLAIMED = 1;
+    private static final int ABANDONED = 2;
+
+    private final AppointmentEntity appointment;
+    private final long enqueuedAt = System.nanoTime();
+    private final CompletableFuture<IdResponse> result = new CompletableFuture<>();
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    private Booking(AppointmentEntity appointment) {
+      this.appointment = appointment;
+    }
+
+    /** Called by the shard before it looks at the booking; false if the caller gave up. */
+    boolean claim() {
+      return state.compareAndSet(PENDING, CLAIMED);
+    }
+
+    /** Called by the caller on timeout; false if the shard already claimed the booking. */
+    boolean abandon() {
+      return state.compareAndSet(PENDING, ABANDONED);
+    }
+  }
+
+  private final class Shard implements Runnable {
+
+    private final BlockingQueue<Booking> mailbox;
+    private final Thread thread;
+
+    private Shard(int index, int queueCapacity) {
+      this.mailbox = new LinkedBlockingQueue<>(queueCapacity);
+      this.thread = new Thread(this, "booking-shard-" + index);
+      this.thread.setDaemon(true);
+      this.thread.start();
+    }
+
+    @Override
+    public void run() {
+      List<Booking> batch = new ArrayList<>(maxBatchSize);
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          collect(batch);
+        } catch (InterruptedException e) {
+          fail(batch, new BookingRejectedException("The booking service is shutting down"));
+          break;
+        }
+        try {
+          process(batch);
+        } catch (RuntimeException e) {
+          log.error("Group commit of {} bookings failed", batch.size(), e);
+          fail(batch, e);
+        }
+        batch.clear();
+      }
+      Booking pending;
+      while ((pending = mailbox.poll()) != null) {
+        pending.result.completeExceptionally(
+            new BookingRejectedException("The booking service is shutting down"));
+      }
+    }
+
+    /** Waits for a booking, then gathers whatever else arrives within the batch window. */
+    private void collect(List<Booking> batch) throws InterruptedException {
+      batch.add(mailbox.take());
+      long deadline = System.nanoTime() + batchWindow.toNanos();
+      while (batch.size() < maxBatchSize) {
+        long remaining = deadline - System.nanoTime();
+        Booking next =
+            remaining > 0 ? mailbox.poll(remaining, TimeUnit.NANOSECONDS) : mailbox.poll();
+        if (next == null) {
+          return;
+        }
+        batch.add(next);
+      }
+    }
+
+    /** Fails the members that have no outcome yet; answered ones keep theirs. */
+    private void fail(List<Booking> batch, RuntimeException e) {
+      for (Booking booking : batch) {
+        if (!booking.result.isDone()) {
+          booking.result.completeExceptionally(e);
+        }
+      }
+    }
+  }
+}
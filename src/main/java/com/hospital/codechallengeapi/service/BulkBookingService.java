@@ -0,0 +1,255 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.entity.DoctorEntity;
+import com.hospital.codechallengeapi.entity.PatientEntity;
+import com.hospital.codechallengeapi.entity.TimeOrderedUuid;
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.model.request.BulkAppointmentRequest;
+import com.hospital.codechallengeapi.model.response.BulkAppointmentResponse;
+import com.hospital.codechallengeapi.model.response.BulkAppointmentResult;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.PatientRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Books many appointments at once. Conflicts are checked with one range query per doctor against
+ * an in-memory occupancy map (which also catches clashes inside the request itself) and the
+ * accepted appointments are inserted with JDBC batches.
+ */
+@Service
+@Slf4j
+public class BulkBookingService {
+
+  private final DoctorRepository doctorRepository;
+  private final PatientRepository patientRepository;
+  private final AppointmentRepository appointmentRepository;
+  private final AppointmentBatchWriter appointmentBatchWriter;
+  private final DoctorCalendarCache calendarCache;
+  private final WorkingHoursService workingHoursService;
+  private final SlotHoldService slotHoldService;
+  private final VersionRegistry versionRegistry;
+  private final Clock clock;
+  private final Duration horizon;
+
+  @Autowired
+  public BulkBookingService(
+      DoctorRepository doctorRepository,
+      PatientRepository patientRepository,
+      AppointmentRepository appointmentRepository,
+      AppointmentBatchWriter appointmentBatchWriter,
+      DoctorCalendarCache calendarCache,
+      WorkingHoursService workingHoursService,
+      SlotHoldService slotHoldService,
+      VersionRegistry versionRegistry,
+      Clock clock,
+      @Value("${booking.horizon:P365D}") Duration horizon) {
+    this.doctorRepository = doctorRepository;
+    this.patientRepository = patientRepository;
+    this.appointmentRepository = appointmentRepository;
+    this.appointmentBatchWriter = appointmentBatchWriter;
+    this.calendarCache = calendarCache;
+    this.workingHoursService = workingHoursService;
+    this.slotHoldService = slotHoldService;
+    this.versionRegistry = versionRegistry;
+    this.clock = clock;
+    this.horizon = horizon;
+  }
+
+  public BulkAppointmentResponse createAppointments(BulkAppointmentRequest request) {
+    List<BulkAppointmentRequest.Item> items = request.getAppointments();
+    BulkAppointmentResult[] results = new BulkAppointmentResult[items.size()];
+
+    Set<UUID> doctorIds = new HashSet<>();
+    Set<UUID> patientIds = new HashSet<>();
+    for (BulkAppointmentRequest.Item item : items) {
+      if (item.getDoctorId() != null) {
+        doctorIds.add(item.getDoctorId());
+      }
+      if (item.getPatientId() != null) {
+        patientIds.add(item.getPatientId());
+      }
+    }
+    Set<UUID> existingDoctors = new HashSet<>(doctorRepository.findExistingIds(doctorIds));
+    Set<UUID> existingPatients = new HashSet<>(patientRepository.findExistingIds(patientIds));
+    Map<UUID, WorkingHours> workingHours = workingHoursService.forDoctors(existingDoctors);
+
+    Instant now = clock.instant();
+    Map<UUID, List<Integer>> byDoctor = new LinkedHashMap<>();
+    for (int index = 0; index < items.size(); index++) {
+      BulkAppointmentRequest.Item item = items.get(index);
+      String invalid = validate(item, now, existingDoctors, existingPatients, workingHours);
+      if (invalid != null) {
+        results[index] = BulkAppointmentResult.invalid(index, invalid);
+      } else {
+        byDoctor.computeIfAbsent(item.getDoctorId(), doctorId -> new ArrayList<>()).add(index);
+      }
+    }
+
+    List<AppointmentEntity> accepted = new ArrayList<>();
+    List<Integer> acceptedIndexes = new ArrayList<>();
+    byDoctor.forEach(
+        (doctorId, indexes) -> {
+          HourlyOccupancy occupancy = loadOccupancy(doctorId, items, indexes);
+          for (int index : indexes) {
+            Instant start = hourOf(items.get(index));
+            if (occupancy.isOccupied(start)) {
+              results[index] =
+                  BulkAppointmentResult.conflict(
+                      index, AppointmentConstraintViolation.ALREADY_BOOKED);
+              continue;
+            }
+            if (slotHoldService.isHeldByAnother(doctorId, items.get(index).getPatientId(), start)) {
+              results[index] = BulkAppointmentResult.conflict(index, SlotHoldService.ON_HOLD);
+              continue;
+            }
+            Instant end = start.plus(1, ChronoUnit.HOURS);
+            occupancy.mark(start, end);
+            accepted.add(
+                AppointmentEntity.builder()
+                    .id(TimeOrderedUuid.next())
+                    .doctor(DoctorEntity.builder().id(doctorId).build())
+                    .patient(PatientEntity.builder().id(items.get(index).getPatientId()).build())
+                    .startDate(start)
+                    .endDate(end)
+                    .build());
+            acceptedIndexes.add(index);
+          }
+        });
+
+    insert(accepted, acceptedIndexes, results);
+
+    log.info(
+        "Bulk booking of {} appointments created {}",
+        items.size(),
+        Arrays.stream(results)
+            .filter(result -> result.getStatus() == BulkAppointmentResult.Status.CREATED)
+            .count());
+    return new BulkAppointmentResponse(Arrays.asList(results));
+  }
+
+  private String validate(
+      BulkAppointmentRequest.Item item,
+      Instant now,
+      Set<UUID> existingDoctors,
+      Set<UUID> existingPatients,
+      Map<UUID, WorkingHours> workingHours) {
+    if (item.getDoctorId() == null
+        || item.getPatientId() == null
+        || item.getAppointmentDate() == null) {
+      return "'doctor_id', 'patient_id' and 'appointment_date' are mandatory";
+    }
+    if (!existingDoctors.contains(item.getDoctorId())) {
+      return "Doctor with id " + item.getDoctorId() + " does not exist";
+    }
+    if (!existingPatients.contains(item.getPatientId())) {
+      return "Patient with id " + item.getPatientId() + " does not exist";
+    }
+    if (item.getAppointmentDate().isBefore(now)) {
+      return "Picked date cannot be in the past";
+    }
+    // Also keeps the occupancy map of a doctor's items to a bounded number of hours.
+    if (item.getAppointmentDate().isAfter(now.plus(horizon))) {
+      return "Picked date cannot be more than " + horizon.toDays() + " days ahead";
+    }
+    if (!workingHours.get(item.getDoctorId()).isWorkingHour(hourOf(item))) {
+      return "The selected date is outside the doctor's working hours";
+    }
+    return null;
+  }
+
+  private HourlyOccupancy loadOccupancy(
+      UUID doctorId, List<BulkAppointmentRequest.Item> items, List<Integer> indexes) {
+    Instant from = null;
+    Instant to = null;
+    for (int index : indexes) {
+      Instant start = hourOf(items.get(index));
+      Instant end = start.plus(1, ChronoUnit.HOURS);
+      from = from == null || start.isBefore(from) ? start : from;
+      to = to == null || end.isAfter(to) ? end : to;
+    }
+    return HourlyOccupancy.of(
+        from,
+        (int) ChronoUnit.HOURS.between(from, to),
+        appointmentRepository.findOverlapping(
+            doctorId, from.minus(AppointmentRepository.MAX_SPAN), from, to));
+  }
+
+  private void insert(
+      List<AppointmentEntity> accepted,
+      List<Integer> acceptedIndexes,
+      BulkAppointmentResult[] results) {
+    if (accepted.isEmpty()) {
+      return;
+    }
+    try {
+      appointmentBatchWriter.insertAll(accepted);
+      for (int i = 0; i < accepted.size(); i++) {
+        created(accepted.get(i), acceptedIndexes.get(i), results);
+      }
+    } catch (DataIntegrityViolationException e) {
+      // Someone booked one of the hours between the check and the insert: retry one by one so
+      // only the clashing items are rejected.
+      log.debug("Batch insert hit a conflict, falling back to single inserts", e);
+      for (int i = 0; i < accepted.size(); i++) {
+        int index = acceptedIndexes.get(i);
+        try {
+          appointmentBatchWriter.insertAll(List.of(accepted.get(i)));
+          created(accepted.get(i), index, results);
+        } catch (DataIntegrityViolationException violation) {
+          results[index] = rejected(index, violation, accepted.get(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * A clash is a conflict and a doctor or patient deleted since the request was validated makes
+   * the item invalid; any other violation is not the caller's doing and fails the request.
+   */
+  private static BulkAppointmentResult rejected(
+      int index, DataIntegrityViolationException violation, AppointmentEntity appointment) {
+    RuntimeException translated = AppointmentConstraintViolation.translate(violation, appointment);
+    if (!(translated instanceof AppointmentCreationException)) {
+      throw translated;
+    }
+    String message = translated.getMessage();
+    return AppointmentConstraintViolation.ALREADY_BOOKED.equals(message)
+        ? BulkAppointmentResult.conflict(index, message)
+        : BulkAppointmentResult.invalid(index, message);
+  }
+
+  private void created(AppointmentEntity appointment, int index, BulkAppointmentResult[] results) {
+    results[index] = BulkAppointmentResult.created(index, appointment.getId());
+    calendarCache.markOccupied(
+        appointment.getDoctor().getId(), appointment.getStartDate(), appointment.getEndDate());
+    slotHoldService.release(
+        appointment.getDoctor().getId(),
+        appointment.getPatient().getId(),
+        appointment.getStartDate());
+    versionRegistry.bumpDoctor(appointment.getDoctor().getId());
+  }
+
+  private static Instant hourOf(BulkAppointmentRequest.Item item) {
+    return item.getAppointmentDate().truncatedTo(ChronoUnit.HOURS);
+  }
+}
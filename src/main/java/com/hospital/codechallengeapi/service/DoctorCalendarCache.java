@@ -0,0 +1,231 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import com.hospital.codechallengeapi.repository.ReplicaRouting;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of each doctor's occupied hours over a rolling horizon. Entries are kept in
+ * access order, bounded in size and dropped after being idle for too long; bookings and leaves
+ * are written through so reads never have to go back to the database while an entry is warm.
+ * Entries are reloaded once they are older than {@code calendar.cache.max-age}, which bounds how
+ * long writes made by other instances or directly in the database stay unseen.
+ */
+@Component
+@Slf4j
+public class DoctorCalendarCache {
+
+  private final AppointmentRepository appointmentRepository;
+  private final Clock clock;
+  private final int horizonHours;
+  private final int maxDoctors;
+  private final Duration idleTimeout;
+  private final Duration maxAge;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong generations = new AtomicLong();
+
+  private final LinkedHashMap<UUID, DoctorCalendar> calendars;
+
+  @Autowired
+  public DoctorCalendarCache(
+      AppointmentRepository appointmentRepository,
+      Clock clock,
+      MeterRegistry meterRegistry,
+      @Value("${calendar.cache.horizon-hours:192}") int horizonHours,
+      @Value("${calendar.cache.max-doctors:10000}") int maxDoctors,
+      @Value("${calendar.cache.idle-timeout:PT30M}") Duration idleTimeout,
+      @Value("${calendar.cache.max-age:PT5M}") Duration maxAge) {
+    this.appointmentRepository = appointmentRepository;
+    this.clock = clock;
+    this.horizonHours = horizonHours;
+    this.maxDoctors = maxDoctors;
+    this.idleTimeout = idleTimeout;
+    this.maxAge = maxAge;
+    this.calendars =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<UUID, DoctorCalendar> eldest) {
+            if (size() > DoctorCalendarCache.this.maxDoctors) {
+              evictions.incrementAndGet();
+              return true;
+            }
+            return false;
+          }
+        };
+
+    FunctionCounter.builder("doctor.calendar.cache.hits", hits, AtomicLong::get)
+        .register(meterRegistry);
+    FunctionCounter.builder("doctor.calendar.cache.misses", misses, AtomicLong::get)
+        .register(meterRegistry);
+    FunctionCounter.builder("doctor.calendar.cache.evictions", evictions, AtomicLong::get)
+        .register(meterRegistry);
+    Gauge.builder("doctor.calendar.cache.size", this, DoctorCalendarCache::size)
+        .register(meterRegistry);
+  }
+
+  /** Returns the occupied hours of {@code [from, from + hours)}, loading them on a miss. */
+  public HourlyOccupancy getOccupancy(UUID doctorId, Instant from, int hours) {
+    DoctorCalendar calendar = calendarFor(doctorId);
+    return calendar.read(from.truncatedTo(ChronoUnit.HOURS), hours, clock.instant());
+  }
+
+  /**
+   * Changes whenever the doctor's cached calendar is loaded or written to. Every value comes from
+   * one increasing counter; a calendar that is not cached or is due for a reload gets a value never
+   * handed out before, so a tag built from it cannot match one a client already holds.
+   */
+  public long generation(UUID doctorId) {
+    DoctorCalendar calendar;
+    synchronized (calendars) {
+      calendar = calendars.get(doctorId);
+    }
+    return calendar == null ? generations.incrementAndGet() : calendar.generation(clock.instant());
+  }
+
+  /** Writes a newly stored appointment or leave through to the doctor's cached calendar. */
+  public void markOccupied(UUID doctorId, Instant start, Instant end) {
+    DoctorCalendar calendar;
+    synchronized (calendars) {
+      calendar = calendars.get(doctorId);
+    }
+    if (calendar != null) {
+      calendar.mark(start, end);
+    }
+  }
+
+  /** Whether a warm calendar already shows the hour as occupied; never goes to the database. */
+  public boolean isKnownOccupied(UUID doctorId, Instant hourStart) {
+    DoctorCalendar calendar;
+    synchronized (calendars) {
+      calendar = calendars.get(doctorId);
+    }
+    return calendar != null && calendar.isOccupied(hourStart);
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  public int size() {
+    synchronized (calendars) {
+      return calendars.size();
+    }
+  }
+
+  private DoctorCalendar calendarFor(UUID doctorId) {
+    Instant now = clock.instant();
+    synchronized (calendars) {
+      evictIdle(now);
+      DoctorCalendar calendar = calendars.computeIfAbsent(doctorId, DoctorCalendar::new);
+      calendar.lastAccess = now;
+      return calendar;
+    }
+  }
+
+  private void evictIdle(Instant now) {
+    Instant idleSince = now.minus(idleTimeout);
+    Iterator<DoctorCalendar> iterator = calendars.values().iterator();
+    while (iterator.hasNext()) {
+      DoctorCalendar calendar = iterator.next();
+      if (!calendar.lastAccess.isBefore(idleSince)) {
+        break;
+      }
+      iterator.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  private class DoctorCalendar {
+
+    private final UUID doctorId;
+    private Instant lastAccess = Instant.EPOCH;
+    private HourlyOccupancy occupancy;
+    private Instant loadedAt;
+    private long generation;
+
+    private DoctorCalendar(UUID doctorId) {
+      this.doctorId = doctorId;
+    }
+
+    /**
+     * The window always starts at the hour it is loaded in and spans {@code horizonHours}. Ranges
+     * that do not fit in it are checked directly against the database, so a request far ahead
+     * neither grows the window nor evicts the hours everyone else reads.
+     */
+    private synchronized HourlyOccupancy read(Instant from, int hours, Instant now) {
+      if (isFresh(now) && occupancy.covers(from, hours)) {
+        hits.incrementAndGet();
+        return occupancy.slice(from, hours);
+      }
+      misses.incrementAndGet();
+      Instant windowStart = now.truncatedTo(ChronoUnit.HOURS);
+      Instant windowEnd = windowStart.plus(horizonHours, ChronoUnit.HOURS);
+      if (from.isBefore(windowStart) || from.plus(hours, ChronoUnit.HOURS).isAfter(windowEnd)) {
+        return load(from, hours);
+      }
+      occupancy = load(windowStart, horizonHours);
+      loadedAt = now;
+      generation = generations.incrementAndGet();
+      return occupancy.slice(from, hours);
+    }
+
+    private HourlyOccupancy load(Instant from, int hours) {
+      Instant to = from.plus(hours, ChronoUnit.HOURS);
+      log.debug("Loading calendar of doctor {} between {} and {}", doctorId, from, to);
+      // Cached until evicted, so it must not come from a lagging replica.
+      return HourlyOccupancy.of(
+          from,
+          hours,
+          ReplicaRouting.onPrimary(
+              () ->
+                  appointmentRepository.findOverlapping(
+                      doctorId, from.minus(AppointmentRepository.MAX_SPAN), from, to)));
+    }
+
+    private synchronized boolean isOccupied(Instant hourStart) {
+      return occupancy != null && occupancy.isOccupied(hourStart);
+    }
+
+    private synchronized void mark(Instant start, Instant end) {
+      if (occupancy != null) {
+        occupancy.mark(start, end);
+        generation = generations.incrementAndGet();
+      }
+    }
+
+    private synchronized long generation(Instant now) {
+      return isFresh(now) ? generation : generations.incrementAndGet();
+    }
+
+    private boolean isFresh(Instant now) {
+      return occupancy != null && loadedAt.plus(maxAge).isAfter(now);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.ReplicaRouting;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Immutable in-memory snapshot of every doctor, sorted by name and indexed by specialty, so the
+ * doctor list and its filters are served without touching the database. New doctors are added
+ * by swapping in a rebuilt snapshot; a periodic reload picks up changes made elsewhere.
+ */
+@Component
+@Slf4j
+public class DoctorDirectory {
+
+  private static final Comparator<DoctorResponse> BY_NAME =
+      Comparator.comparing((DoctorResponse doctor) -> normalize(doctor.getName()))
+          .thenComparing(DoctorResponse::getId);
+
+  private final DoctorRepository doctorRepository;
+  private final VersionRegistry versionRegistry;
+
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+  @Autowired
+  public DoctorDirectory(
+      DoctorRepository doctorRepository,
+      VersionRegistry versionRegistry,
+      MeterRegistry meterRegistry) {
+    this.doctorRepository = doctorRepository;
+    this.versionRegistry = versionRegistry;
+
+    Gauge.builder("doctor.directory.size", this, DoctorDirectory::size).register(meterRegistry);
+  }
+
+  /**
+   * A page of the doctors whose specialty matches {@code specialty} and whose name starts with
+   * {@code namePrefix}, both case-insensitive and optional, ordered by name.
+   */
+  public Page<DoctorResponse> find(String specialty, String namePrefix, int page, int pageSize) {
+    List<DoctorResponse> matches = matches(specialty, namePrefix);
+    PageRequest pageRequest = PageRequest.of(page - 1, pageSize);
+    return new PageImpl<>(slice(matches, pageRequest), pageRequest, matches.size());
+  }
+
+  /** Like {@link #find} but without the total count. */
+  public Slice<DoctorResponse> findSlice(
+      String specialty, String namePrefix, int page, int pageSize) {
+    List<DoctorResponse> matches = matches(specialty, namePrefix);
+    PageRequest pageRequest = PageRequest.of(page - 1, pageSize);
+    return new SliceImpl<>(
+        slice(matches, pageRequest),
+        pageRequest,
+        pageRequest.getOffset() + pageSize < matches.size());
+  }
+
+  public void add(DoctorResponse doctor) {
+    Snapshot updated =
+        snapshot.updateAndGet(current -> current == null ? null : current.with(doctor));
+    versionRegistry.bumpDirectory();
+    if (updated != null) {
+      log.debug("Added doctor {} to the directory", doctor.getId());
+    }
+  }
+
+  /** The ETag of every listing served from the directory; it changes whenever the list does. */
+  public String getTag() {
+    return versionRegistry.tag("doctors", versionRegistry.directoryVersion());
+  }
+
+  @Scheduled(
+      fixedDelayString = "${doctor-directory.refresh-interval:PT5M}",
+      initialDelayString = "${doctor-directory.refresh-interval:PT5M}")
+  public void refresh() {
+    Snapshot loaded = load();
+    Snapshot previous = snapshot.getAndSet(loaded);
+    if (previous == null || !previous.all.doctors.equals(loaded.all.doctors)) {
+      versionRegistry.bumpDirectory();
+    }
+    log.debug("Reloaded the doctor directory with {} doctors", loaded.all.doctors.size());
+  }
+
+  int size() {
+    Snapshot current = snapshot.get();
+    return current == null ? 0 : current.all.doctors.size();
+  }
+
+  private List<DoctorResponse> matches(String specialty, String namePrefix) {
+    Snapshot current = current();
+    Index index = specialty == null ? current.all : current.bySpecialty.get(normalize(specialty));
+    return index == null ? Collections.emptyList() : index.withPrefix(normalize(namePrefix));
+  }
+
+  private static List<DoctorResponse> slice(List<DoctorResponse> matches, PageRequest page) {
+    int from = (int) Math.min(page.getOffset(), matches.size());
+    int to = Math.min(from + page.getPageSize(), matches.size());
+    return matches.subList(from, to);
+  }
+
+  private Snapshot current() {
+    Snapshot current = snapshot.get();
+    if (current != null) {
+      return current;
+    }
+    snapshot.compareAndSet(null, load());
+    return snapshot.get();
+  }
+
+  private Snapshot load() {
+    return Snapshot.of(ReplicaRouting.onPrimary(doctorRepository::findAllDoctors));
+  }
+
+  private static String normalize(String value) {
+    return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static final class Snapshot {
+
+    private final Index all;
+    private final Map<String, Index> bySpecialty;
+
+    private Snapshot(Index all, Map<String, Index> bySpecialty) {
+      this.all = all;
+      this.bySpecialty = bySpecialty;
+    }
+
+    static Snapshot of(Collection<DoctorResponse> doctors) {
+      List<DoctorResponse> sorted = new ArrayList<>(doctors);
+      sorted.sort(BY_NAME);
+
+      Map<String, List<DoctorResponse>> grouped = new HashMap<>();
+      for (DoctorResponse doctor : sorted) {
+        grouped
+            .computeIfAbsent(normalize(doctor.getSpecialty()), specialty -> new ArrayList<>())
+            .add(doctor);
+      }
+      Map<String, Index> bySpecialty = new HashMap<>();
+      grouped.forEach((specialty, group) -> bySpecialty.put(specialty, new Index(group)));
+      return new Snapshot(new Index(sorted), bySpecialty);
+    }
+
+    Snapshot with(DoctorResponse doctor) {
+      List<DoctorResponse> doctors = new ArrayList<>(all.doctors.size() + 1);
+      for (DoctorResponse existing : all.doctors) {
+        if (!existing.getId().equals(doctor.getId())) {
+          doctors.add(existing);
+        }
+      }
+      doctors.add(doctor);
+      return of(doctors);
+    }
+  }
+
+  /** Doctors sorted by name, with their normalized names alongside for prefix lookups. */
+  private static final class Index {
+
+    private final List<DoctorResponse> doctors;
+    private final String[] names;
+
+    private Index(List<DoctorResponse> sorted) {
+      this.doctors = Collections.unmodifiableList(sorted);
+      this.names = new String[sorted.size()];
+      for (int i = 0; i < names.length; i++) {
+        names[i] = normalize(sorted.get(i).getName());
+      }
+    }
+
+    List<DoctorResponse> withPrefix(String prefix) {
+      if (prefix.isEmpty()) {
+        return doctors;
+      }
+      int from = lowerBound(prefix);
+      // Every name starting with the prefix sorts before the prefix followed by the last char.
+      int to = lowerBound(prefix + Character.MAX_VALUE);
+      return doctors.subList(from, to);
+    }
+
+    private int lowerBound(String key) {
+      int index = Arrays.binarySearch(names, key);
+      if (index < 0) {
+        return -index - 1;
+      }
+      // Equal names may repeat; step back to the first one.
+      while (index > 0 && names[index - 1].equals(key)) {
+        index--;
+      }
+      return index;
+    }
+  }
+}
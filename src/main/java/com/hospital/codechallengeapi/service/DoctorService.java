@@ -3,95 +3,149 @@ package com.hospital.codechallengeapi.service;
 import com.hospital.codechallengeapi.entity.AppointmentEntity;
 import com.hospital.codechallengeapi.entity.DoctorEntity;
 import com.hospital.codechallengeapi.entity.PatientEntity;
+import com.hospital.codechallengeapi.entity.TimeOrderedUuid;
 import com.hospital.codechallengeapi.exception.AppointmentCreationException;
 import com.hospital.codechallengeapi.model.request.LeaveRequest;
 import com.hospital.codechallengeapi.model.response.*;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import com.hospital.codechallengeapi.repository.AppointmentListing;
 import com.hospital.codechallengeapi.repository.AppointmentRepository;
-import com.hospital.codechallengeapi.repository.DoctorRepository;
-import com.hospital.codechallengeapi.repository.PatientRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 @Service
 @Slf4j
 public class DoctorService {
 
-    private final DoctorRepository doctorRepository;
+    private static final int AVAILABILITY_DAYS = 7;
+
     private final AppointmentRepository appointmentRepository;
-    private final PatientRepository patientRepository;
+    private final BookingExecutor bookingExecutor;
+    private final AppointmentBatchWriter appointmentBatchWriter;
+    private final DoctorCalendarCache calendarCache;
+    private final SlotHoldService slotHoldService;
+    private final WorkingHoursService workingHoursService;
+    private final VersionRegistry versionRegistry;
     private final Clock clock;
+    private final Duration horizon;
 
     @Autowired
     public DoctorService(
-            DoctorRepository doctorRepository,
             AppointmentRepository appointmentRepository,
-            PatientRepository patientRepository,
-            Clock clock) {
-        this.doctorRepository = doctorRepository;
+            BookingExecutor bookingExecutor,
+            AppointmentBatchWriter appointmentBatchWriter,
+            DoctorCalendarCache calendarCache,
+            SlotHoldService slotHoldService,
+            WorkingHoursService workingHoursService,
+            VersionRegistry versionRegistry,
+            Clock clock,
+            @Value("${booking.horizon:P365D}") Duration horizon) {
         this.appointmentRepository = appointmentRepository;
-        this.patientRepository = patientRepository;
+        this.bookingExecutor = bookingExecutor;
+        this.appointmentBatchWriter = appointmentBatchWriter;
+        this.calendarCache = calendarCache;
+        this.slotHoldService = slotHoldService;
+        this.workingHoursService = workingHoursService;
+        this.versionRegistry = versionRegistry;
         this.clock = clock;
+        this.horizon = horizon;
     }
 
-    public Page<DoctorResponse> getDoctors(int page, int pageSize) {
+    @Transactional(readOnly = true)
+    public Page<AppointmentResponse> getAppointments(UUID doctorId, int page, int pageSize) {
         PageRequest pageRequest = PageRequest.of(page - 1, pageSize);
-        Page<DoctorEntity> doctors = this.doctorRepository.findAll(pageRequest);
-
-        return doctors.map(
-                doctor ->
-                        new DoctorResponse(
-                                doctor.getHospitalUserEntity().getId(),
-                                doctor.getHospitalUserEntity().getName(),
-                                doctor.getSpecialty()));
+        Page<AppointmentListing> appointments =
+                this.appointmentRepository.findAppointmentListings(doctorId, pageRequest);
+
+        return appointments.map(DoctorService::toAppointmentResponse);
     }
 
-    public Page<AppointmentResponse> getAppointments(UUID doctorId, int page, int pageSize) {
+    /** Like {@link #getAppointments} but without the count query. */
+    @Transactional(readOnly = true)
+    public Slice<AppointmentResponse> getAppointmentSlice(UUID doctorId, int page, int pageSize) {
         PageRequest pageRequest = PageRequest.of(page - 1, pageSize);
-        Page<AppointmentEntity> appointments =
-                this.appointmentRepository
-                        .findAppointmentEntitiesByDoctorIdAndPatientIdIsNotNullOrderByStartDate(
-                                doctorId, pageRequest);
-
-        return appointments.map(
-                appointment ->
-                        AppointmentResponse.builder()
-                                .doctorName(appointment.getDoctor().getHospitalUserEntity().getName())
-                                .patientName(appointment.getPatient().getHospitalUserEntity().getName())
-                                .specialty(appointment.getDoctor().getSpecialty())
-                                .startDate(appointment.getStartDate())
-                                .endDate(appointment.getEndDate())
-                                .build());
+        return this.appointmentRepository
+                .findAppointmentListingSlice(doctorId, pageRequest)
+                .map(DoctorService::toAppointmentResponse);
     }
 
-    public IdResponse createAppointment(UUID doctorId, UUID patientId, Instant appointmentDate) {
+    /**
+     * Seeks past {@code cursor} on (start_date, id) instead of skipping rows with an offset, so
+     * every page costs the same no matter how deep it is. No total count is computed.
+     */
+    @Transactional(readOnly = true)
+    public AppointmentCursorPage getAppointmentsAfter(UUID doctorId, String cursor, int pageSize) {
+        // One extra row tells whether there is a next page.
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<AppointmentListing> appointments;
+        if (cursor == null || cursor.isEmpty()) {
+            appointments = this.appointmentRepository.findFirstAppointments(doctorId, limit);
+        } else {
+            AppointmentCursor after = AppointmentCursor.decode(cursor);
+            appointments =
+                    this.appointmentRepository.findAppointmentsAfter(
+                            doctorId, after.getStartDate(), after.getId(), limit);
+        }
 
-        Instant endDate = appointmentDate.plus(1, ChronoUnit.HOURS);
+        return toCursorPage(appointments, pageSize);
+    }
+
+    /** Turns {@code pageSize + 1} listing rows into a page and the cursor of the next one. */
+    static AppointmentCursorPage toCursorPage(List<AppointmentListing> appointments, int pageSize) {
+        String nextCursor = null;
+        if (appointments.size() > pageSize) {
+            appointments = appointments.subList(0, pageSize);
+            AppointmentListing last = appointments.get(pageSize - 1);
+            nextCursor = new AppointmentCursor(last.getStartDate(), last.getId()).encode();
+        }
 
-        validateAppointmentHour(doctorId, appointmentDate, endDate);
+        List<AppointmentResponse> content = new ArrayList<>(appointments.size());
+        for (AppointmentListing appointment : appointments) {
+            content.add(toAppointmentResponse(appointment));
+        }
+        return new AppointmentCursorPage(content, nextCursor);
+    }
 
-        Optional<DoctorEntity> optionalDoctorEntity = doctorRepository.findById(doctorId);
+    public IdResponse createAppointment(UUID doctorId, UUID patientId, Instant appointmentDate) {
 
-        if(optionalDoctorEntity.isEmpty()) {
-          throw new AppointmentCreationException("Doctor with id " + doctorId + " does not exist");
+        Instant endDate = appointmentDate.plus(1, ChronoUnit.HOURS);
+
+        checkHorizon(appointmentDate);
+        if (!workingHoursService.forDoctor(doctorId).isWorkingHour(appointmentDate.truncatedTo(ChronoUnit.HOURS))) {
+            throw new AppointmentCreationException("The selected date is outside the doctor's working hours");
         }
 
-        PatientEntity patientEntity = patientRepository.getOne(patientId);
+        Instant hourStart = appointmentDate.truncatedTo(ChronoUnit.HOURS);
+        if (slotHoldService.isHeldByAnother(doctorId, patientId, hourStart)) {
+            throw new AppointmentCreationException(SlotHoldService.ON_HOLD);
+        }
 
-        return createAppointment(optionalDoctorEntity.get(), patientEntity, appointmentDate, endDate, null);
+        IdResponse idResponse =
+                createAppointment(
+                        DoctorEntity.builder().id(doctorId).build(),
+                        PatientEntity.builder().id(patientId).build(),
+                        appointmentDate,
+                        endDate,
+                        null);
+        slotHoldService.release(doctorId, patientId, hourStart);
+        versionRegistry.bumpDoctor(doctorId);
+        return idResponse;
     }
 
     public IdResponse scheduleLeave(UUID doctorId, LeaveRequest leaveRequest)
@@ -103,45 +157,134 @@ public class DoctorService {
         else if(leaveRequest.getEndDate().isBefore(leaveRequest.getStartDate())) {
             throw new AppointmentCreationException("End date must be after start date");
         }
+        checkHorizon(leaveRequest.getEndDate());
+        Instant leaveEnd = leaveRequest.getEndDate().truncatedTo(ChronoUnit.HOURS);
+        if (slotHoldService.isAnyHeld(doctorId, leaveRequest.getStartDate(), leaveEnd)) {
+            throw new AppointmentCreationException("The selected date is on hold for a patient");
+        }
+
+        IdResponse idResponse;
+        if (Duration.between(leaveRequest.getStartDate(), leaveRequest.getEndDate())
+                .compareTo(AppointmentRepository.MAX_SPAN) > 0) {
+            idResponse =
+                    scheduleLongLeave(
+                            doctorId,
+                            leaveRequest.getStartDate().truncatedTo(ChronoUnit.HOURS),
+                            leaveRequest.getEndDate().truncatedTo(ChronoUnit.HOURS),
+                            leaveRequest.getLeaveType());
+        } else {
+            idResponse =
+                    createAppointment(
+                            DoctorEntity.builder().id(doctorId).build(),
+                            null,
+                            leaveRequest.getStartDate(),
+                            leaveRequest.getEndDate(),
+                            leaveRequest.getLeaveType());
+        }
+        versionRegistry.bumpDoctor(doctorId);
+        return idResponse;
+    }
 
-        validateAppointmentHour(doctorId, leaveRequest.getStartDate(), leaveRequest.getEndDate());
+    /**
+     * Stores a leave longer than {@link AppointmentRepository#MAX_SPAN} as consecutive pieces of at
+     * most that length, as the partitioning migration did with existing ones. The pieces are checked
+     * against the calendar together and written in one transaction, so the leave is stored whole or
+     * not at all; the returned id is the first piece's.
+     */
+    private IdResponse scheduleLongLeave(UUID doctorId, Instant start, Instant end, String reason) {
+        DoctorEntity doctor = DoctorEntity.builder().id(doctorId).build();
+        List<AppointmentEntity> pieces = new ArrayList<>();
+        for (Instant pieceStart = start; pieceStart.isBefore(end); ) {
+            Instant pieceEnd = pieceStart.plus(AppointmentRepository.MAX_SPAN);
+            if (pieceEnd.isAfter(end)) {
+                pieceEnd = end;
+            }
+            pieces.add(
+                    AppointmentEntity.builder()
+                            .id(TimeOrderedUuid.next())
+                            .doctor(doctor)
+                            .startDate(pieceStart)
+                            .endDate(pieceEnd)
+                            .reason(reason)
+                            .build());
+            pieceStart = pieceEnd;
+        }
 
-        DoctorEntity doctorEntity = doctorRepository.getOne(doctorId);
+        int hours = (int) ChronoUnit.HOURS.between(start, end);
+        HourlyOccupancy occupancy = calendarCache.getOccupancy(doctorId, start, hours);
+        if (occupancy.isOccupied(start, end)) {
+            throw new AppointmentCreationException(AppointmentConstraintViolation.ALREADY_BOOKED);
+        }
+        try {
+            appointmentBatchWriter.insertAll(pieces);
+        } catch (DataIntegrityViolationException e) {
+            throw AppointmentConstraintViolation.translate(e, pieces.get(0));
+        }
+        calendarCache.markOccupied(doctorId, start, end);
+        log.info("Scheduled a leave of {} pieces for doctor {}", pieces.size(), doctorId);
+        return new IdResponse(pieces.get(0).getId());
+    }
 
-        return createAppointment(
-                doctorEntity,
-                null,
-                leaveRequest.getStartDate(),
-                leaveRequest.getEndDate(),
-                leaveRequest.getLeaveType());
+    /**
+     * The ETag of {@link #getAvailability}: it changes when the doctor's version is bumped, when the
+     * cached calendar is written to or reloaded, when a hold in the window expires and when the
+     * window moves on to the next hour, so it is computed without loading the calendar. The
+     * calendar is reloaded after {@code calendar.cache.max-age}, which bounds how long bookings made
+     * elsewhere keep it unchanged.
+     */
+    public String getAvailabilityTag(UUID doctorId) {
+        Instant start = clock.instant().truncatedTo(ChronoUnit.HOURS);
+        Instant nextHoldExpiry =
+                slotHoldService.nextExpiry(doctorId, start, AVAILABILITY_DAYS * 24);
+        return versionRegistry.tag(
+                "availability",
+                doctorId,
+                versionRegistry.doctorVersion(doctorId),
+                calendarCache.generation(doctorId),
+                nextHoldExpiry == null ? 0 : nextHoldExpiry.toEpochMilli(),
+                start.getEpochSecond());
     }
 
     public AvailabilityResponse getAvailability(UUID doctorId) {
         Instant start = clock.instant().truncatedTo(ChronoUnit.HOURS);
-        Instant end = start.plus(7, ChronoUnit.DAYS);
-
-        List<TimeSlot> availability = new ArrayList<>();
-        while (start.isBefore(end)) {
-            ZonedDateTime startZoneDateTime = start.atZone(ZoneId.of("UTC"));
+        Instant end = start.plus(AVAILABILITY_DAYS, ChronoUnit.DAYS);
 
-            if (startZoneDateTime.get(ChronoField.HOUR_OF_DAY) >= 9
-                    && startZoneDateTime.get(ChronoField.HOUR_OF_DAY) <= 19) {
+        int hours = (int) ChronoUnit.HOURS.between(start, end);
+        HourlyOccupancy occupancy = calendarCache.getOccupancy(doctorId, start, hours);
 
-                try {
-                    validateAppointmentHour(doctorId, start, start.plus(1, ChronoUnit.HOURS));
-                    availability.add(
-                            TimeSlot.builder().startDate(start).endDate(start.plus(1, ChronoUnit.HOURS)).build());
-                } catch (AppointmentCreationException e) {
-                    log.debug(e.getMessage());
-                }
+        BitSet free = occupancy.freeHours(workingHoursService.forDoctor(doctorId).workingHours(start, occupancy.getHours()));
 
+        List<TimeSlot> availability = new ArrayList<>();
+        for (int hour = free.nextSetBit(0); hour >= 0; hour = free.nextSetBit(hour + 1)) {
+            Instant slotStart = start.plus(hour, ChronoUnit.HOURS);
+            if (slotHoldService.isHeld(doctorId, slotStart)) {
+                continue;
             }
-            start = start.plus(1, ChronoUnit.HOURS);
+            availability.add(
+                    TimeSlot.builder().startDate(slotStart).endDate(slotStart.plus(1, ChronoUnit.HOURS)).build());
         }
 
         return new AvailabilityResponse(availability);
     }
 
+    /** Keeps bookings and leaves within {@code booking.horizon}, as bulk bookings are. */
+    private void checkHorizon(Instant date) {
+        if (date.isAfter(clock.instant().plus(horizon))) {
+            throw new AppointmentCreationException(
+                    "Picked date cannot be more than " + horizon.toDays() + " days ahead");
+        }
+    }
+
+    private static AppointmentResponse toAppointmentResponse(AppointmentListing appointment) {
+        return AppointmentResponse.builder()
+                .doctorName(appointment.getDoctorName())
+                .patientName(appointment.getPatientName())
+                .specialty(appointment.getSpecialty())
+                .startDate(appointment.getStartDate())
+                .endDate(appointment.getEndDate())
+                .build();
+    }
+
     private IdResponse createAppointment(
             DoctorEntity doctor,
             PatientEntity patient,
@@ -152,25 +295,14 @@ public class DoctorService {
 
         AppointmentEntity appointmentEntity =
                 AppointmentEntity.builder()
-                        .id(UUID.randomUUID())
+                        .id(TimeOrderedUuid.next())
                         .doctor(doctor)
                         .patient(patient)
                         .startDate(startAppointmentDate.truncatedTo(ChronoUnit.HOURS))
                         .endDate(endAppointmentDate.truncatedTo(ChronoUnit.HOURS))
                         .reason(reason)
                         .build();
-        return new IdResponse(this.appointmentRepository.save(appointmentEntity).getId());
-    }
 
-    private void validateAppointmentHour(
-            UUID doctorId, Instant startAppointmentDate, Instant endAppointmentDate) {
-        Instant startDate = startAppointmentDate.truncatedTo(ChronoUnit.HOURS);
-        Instant endDate = endAppointmentDate.truncatedTo(ChronoUnit.HOURS);
-        if (!this.appointmentRepository
-                .findAppointmentEntitiesByDoctorIdAndStartDateIsLessThanAndEndDateGreaterThan(
-                        doctorId, endDate, startDate)
-                .isEmpty()) {
-            throw new AppointmentCreationException("The selected date is already booked");
-        }
+        return this.bookingExecutor.book(appointmentEntity);
     }
 }
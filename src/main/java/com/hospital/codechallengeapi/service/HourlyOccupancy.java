@@ -0,0 +1,99 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.Collection;
+
+/** Occupied hours of a single doctor over a window, one bit per hour starting at {@code from}. */
+public class HourlyOccupancy {
+
+  static final long MILLIS_PER_HOUR = 3_600_000L;
+
+  private final Instant from;
+  private final int hours;
+  private final long fromHour;
+  private final BitSet occupied;
+
+  public HourlyOccupancy(Instant from, int hours) {
+    this.from = from.truncatedTo(ChronoUnit.HOURS);
+    this.hours = hours;
+    this.fromHour = epochHour(this.from);
+    this.occupied = new BitSet(hours);
+  }
+
+  public static HourlyOccupancy of(
+      Instant from, int hours, Collection<AppointmentEntity> appointments) {
+    HourlyOccupancy occupancy = new HourlyOccupancy(from, hours);
+    appointments.forEach(
+        appointment -> occupancy.mark(appointment.getStartDate(), appointment.getEndDate()));
+    return occupancy;
+  }
+
+  /** Marks every hour that intersects {@code [start, end)}, clipped to the window. */
+  public void mark(Instant start, Instant end) {
+    long first = Math.max(epochHour(start) - fromHour, 0);
+    long last = Math.min(ceilEpochHour(end) - fromHour, hours);
+    if (first < last) {
+      occupied.set((int) first, (int) last);
+    }
+  }
+
+  /** Copies the hours of {@code [from, from + hours)}, which must lie inside this window. */
+  public HourlyOccupancy slice(Instant from, int hours) {
+    HourlyOccupancy slice = new HourlyOccupancy(from, hours);
+    int offset = (int) (slice.fromHour - fromHour);
+    slice.occupied.or(occupied.get(offset, offset + hours));
+    return slice;
+  }
+
+  public boolean covers(Instant from, int hours) {
+    long offset = epochHour(from) - fromHour;
+    return offset >= 0 && offset + hours <= this.hours;
+  }
+
+  public boolean isOccupied(Instant hourStart) {
+    long index = epochHour(hourStart) - fromHour;
+    return index >= 0 && index < hours && occupied.get((int) index);
+  }
+
+  /** Whether any hour that intersects {@code [start, end)} inside the window is occupied. */
+  public boolean isOccupied(Instant start, Instant end) {
+    long first = Math.max(epochHour(start) - fromHour, 0);
+    long last = Math.min(ceilEpochHour(end) - fromHour, hours);
+    if (first >= last) {
+      return false;
+    }
+    int next = occupied.nextSetBit((int) first);
+    return next >= 0 && next < last;
+  }
+
+  /** The hours of {@code workingHours} (aligned with this window) that are not occupied. */
+  public BitSet freeHours(BitSet workingHours) {
+    BitSet free = (BitSet) workingHours.clone();
+    free.andNot(occupied);
+    return free;
+  }
+
+  public boolean isOccupied(int hourIndex) {
+    return occupied.get(hourIndex);
+  }
+
+  public Instant getFrom() {
+    return from;
+  }
+
+  public int getHours() {
+    return hours;
+  }
+
+  static long epochHour(Instant instant) {
+    return Math.floorDiv(instant.toEpochMilli(), MILLIS_PER_HOUR);
+  }
+
+  private static long ceilEpochHour(Instant instant) {
+    return Math.floorDiv(instant.toEpochMilli() + MILLIS_PER_HOUR - 1, MILLIS_PER_HOUR);
+  }
+}
@@ -0,0 +1,252 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.IdempotencyConflictException;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.response.IdResponse;
+import com.hospital.codechallengeapi.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Remembers the {@link IdResponse} of requests sent with an {@code Idempotency-Key} header so that
+ * retries are answered without running them again. Recent keys live in a bounded in-memory map;
+ * the idempotency_record table makes them visible to other instances and across restarts.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+  public static final String HEADER = "Idempotency-Key";
+
+  private static final int MAX_KEY_LENGTH = 255;
+
+  private static final String HMAC = "HmacSHA256";
+
+  private static final ObjectMapper CANONICAL_JSON =
+      JsonMapper.builder()
+          .findAndAddModules()
+          .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+          .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+          .build();
+
+  private final IdempotencyRecordRepository idempotencyRecordRepository;
+  private final Clock clock;
+  private final Duration ttl;
+  private final int maxEntries;
+  private final SecretKeySpec fingerprintKey;
+
+  private final LinkedHashMap<String, Entry> entries;
+
+  @Autowired
+  public IdempotencyStore(
+      IdempotencyRecordRepository idempotencyRecordRepository,
+      Clock clock,
+      @Value("${idempotency.ttl:PT24H}") Duration ttl,
+      @Value("${idempotency.max-entries:10000}") int maxEntries,
+      @Value("${idempotency.secret:2c9d7e41-6b0a-4f5e-8a3d-91c4b7e0d258}") String secret) {
+    this.idempotencyRecordRepository = idempotencyRecordRepository;
+    this.clock = clock;
+    this.ttl = ttl;
+    this.maxEntries = maxEntries;
+    this.fingerprintKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC);
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, false) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > IdempotencyStore.this.maxEntries;
+          }
+        };
+  }
+
+  /**
+   * Runs {@code call} once per {@code (scope, key)}. A retry with the same key gets the original
+   * response back; reusing a key for a different request, identified by {@code fingerprint}, is
+   * rejected. Without a key the call simply runs.
+   */
+  public <E extends Exception> IdResponse execute(
+      String scope, String key, String fingerprint, IdempotentCall<E> call) throws E {
+    if (key == null) {
+      return call.call();
+    }
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      throw new InvalidRequestException(
+          "'" + HEADER + "' must have between 1 and " + MAX_KEY_LENGTH + " characters");
+    }
+
+    String id = scope + ':' + key;
+    String hash = hash(scope, key, fingerprint);
+    Instant now = clock.instant();
+    Entry entry;
+    boolean owner = false;
+    synchronized (entries) {
+      evictExpired(now);
+      entry = entries.get(id);
+      if (entry == null) {
+        entry = new Entry(hash, now.plus(ttl));
+        entries.put(id, entry);
+        owner = true;
+      }
+    }
+
+    if (!owner) {
+      checkFingerprint(entry.fingerprint, hash);
+      return IdempotencyStore.<E>await(entry);
+    }
+
+    boolean claimed = false;
+    IdResponse response;
+    try {
+      claimed = idempotencyRecordRepository.claim(scope, key, hash, now, entry.expiresAt);
+      if (!claimed) {
+        IdResponse stored = stored(scope, key, hash);
+        entry.response.complete(stored);
+        return stored;
+      }
+      response = call.call();
+    } catch (Exception e) {
+      // Let the client retry a failed request with the same key.
+      synchronized (entries) {
+        entries.remove(id, entry);
+      }
+      if (claimed) {
+        idempotencyRecordRepository.release(scope, key);
+      }
+      entry.response.completeExceptionally(e);
+      throw e;
+    }
+
+    // The call went through, so the key must never be released from here on: a retry would run
+    // it again. If the response cannot be stored the record stays in progress until it expires,
+    // and other instances answer retries with a conflict instead of a second write.
+    entry.response.complete(response);
+    try {
+      idempotencyRecordRepository.complete(scope, key, response.getId());
+    } catch (RuntimeException e) {
+      log.warn("Could not store the response of {} for key {}", scope, key, e);
+    }
+    return response;
+  }
+
+  /**
+   * A fingerprint of the whole request: its canonical JSON, with properties and map entries in a
+   * fixed order so equal requests always give the same string.
+   */
+  public static String fingerprint(Object request) {
+    try {
+      return CANONICAL_JSON.writeValueAsString(request);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Cannot fingerprint " + request.getClass(), e);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${idempotency.purge-interval:PT1H}")
+  public void purgeExpired() {
+    int purged = idempotencyRecordRepository.purgeExpired(clock.instant());
+    if (purged > 0) {
+      log.debug("Purged {} expired idempotency records", purged);
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private IdResponse stored(String scope, String key, String hash) {
+    IdempotencyRecordRepository.IdempotencyRecord record =
+        idempotencyRecordRepository.find(scope, key);
+    if (record == null) {
+      // Purged between the claim and the read; the client can simply retry.
+      throw new IdempotencyConflictException("The request could not be deduplicated, retry it");
+    }
+    checkFingerprint(record.getFingerprint(), hash);
+    if (record.getResponseId() == null) {
+      throw new IdempotencyConflictException(
+          "A request with the same " + HEADER + " is still being processed");
+    }
+    return new IdResponse(record.getResponseId());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E extends Exception> IdResponse await(Entry entry) throws E {
+    try {
+      return entry.response.join();
+    } catch (CompletionException e) {
+      // The first request failed with one of the exceptions of the same call.
+      throw (E) e.getCause();
+    }
+  }
+
+  private static void checkFingerprint(String expected, String actual) {
+    if (!expected.equals(actual)) {
+      throw new IdempotencyConflictException(
+          "The " + HEADER + " was already used for a different request");
+    }
+  }
+
+  private void evictExpired(Instant now) {
+    // Insertion order is also expiry order since every entry lives for the same ttl.
+    Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext() && !iterator.next().expiresAt.isAfter(now)) {
+      iterator.remove();
+    }
+  }
+
+  /**
+   * A fingerprint may contain secrets such as a password, so what is stored is an HMAC keyed with
+   * {@code idempotency.secret}: without the key the table gives nothing to guess against.
+   */
+  String hash(String scope, String key, String fingerprint) {
+    try {
+      Mac mac = Mac.getInstance(HMAC);
+      mac.init(fingerprintKey);
+      String message = scope + ':' + key + '\n' + fingerprint;
+      return Base64.getEncoder()
+          .encodeToString(mac.doFinal(message.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** A call guarded by an idempotency key. */
+  @FunctionalInterface
+  public interface IdempotentCall<E extends Exception> {
+
+    IdResponse call() throws E;
+  }
+
+  private static final class Entry {
+
+    private final String fingerprint;
+    private final Instant expiresAt;
+    private final CompletableFuture<IdResponse> response = new CompletableFuture<>();
+
+    private Entry(String fingerprint, Instant expiresAt) {
+      this.fingerprint = fingerprint;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.entity.DoctorEntity;
+import com.hospital.codechallengeapi.entity.LeaveSeriesEntity;
+import com.hospital.codechallengeapi.entity.TimeOrderedUuid;
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.request.LeaveRecurrence;
+import com.hospital.codechallengeapi.model.request.LeaveRequest;
+import com.hospital.codechallengeapi.model.response.IdResponse;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Schedules recurring leaves. A series is expanded into its occurrences in the doctor's time zone,
+ * checked against the existing calendar with a single range query and written in one batch.
+ */
+@Service
+@Slf4j
+public class LeaveSeriesService {
+
+  static final int MAX_INTERVAL = 365;
+
+  private final AppointmentRepository appointmentRepository;
+  private final AppointmentBatchWriter appointmentBatchWriter;
+  private final DoctorCalendarCache calendarCache;
+  private final WorkingHoursService workingHoursService;
+  private final SlotHoldService slotHoldService;
+  private final VersionRegistry versionRegistry;
+  private final int maxOccurrences;
+  private final Duration maxSpan;
+
+  @Autowired
+  public LeaveSeriesService(
+      AppointmentRepository appointmentRepository,
+      AppointmentBatchWriter appointmentBatchWriter,
+      DoctorCalendarCache calendarCache,
+      WorkingHoursService workingHoursService,
+      SlotHoldService slotHoldService,
+      VersionRegistry versionRegistry,
+      @Value("${leave.recurrence.max-occurrences:366}") int maxOccurrences,
+      @Value("${leave.recurrence.max-span:P731D}") Duration maxSpan) {
+    this.appointmentRepository = appointmentRepository;
+    this.appointmentBatchWriter = appointmentBatchWriter;
+    this.calendarCache = calendarCache;
+    this.workingHoursService = workingHoursService;
+    this.slotHoldService = slotHoldService;
+    this.versionRegistry = versionRegistry;
+    this.maxOccurrences = maxOccurrences;
+    this.maxSpan = maxSpan;
+  }
+
+  public IdResponse scheduleRecurringLeave(UUID doctorId, LeaveRequest leaveRequest) {
+    LeaveRecurrence recurrence = leaveRequest.getRecurrence();
+    if (recurrence.getFrequency() == null) {
+      throw new InvalidRequestException("'frequency' is mandatory for a recurring leave");
+    }
+    if (recurrence.getInterval() != null && recurrence.getInterval() < 1
+        || recurrence.getCount() != null && recurrence.getCount() < 1) {
+      throw new InvalidRequestException("'interval' and 'count' must be positive");
+    }
+    if (recurrence.getInterval() != null && recurrence.getInterval() > MAX_INTERVAL) {
+      throw new InvalidRequestException("'interval' cannot be greater than " + MAX_INTERVAL);
+    }
+    if (recurrence.getCount() == null && recurrence.getUntil() == null) {
+      throw new InvalidRequestException("A recurring leave needs either 'count' or 'until'");
+    }
+
+    Instant firstStart = leaveRequest.getStartDate().truncatedTo(ChronoUnit.HOURS);
+    Instant firstEnd =
+        leaveRequest.getEndDate() == null
+            ? firstStart.plus(1, ChronoUnit.HOURS)
+            : leaveRequest.getEndDate().truncatedTo(ChronoUnit.HOURS);
+    if (!firstEnd.isAfter(firstStart)) {
+      throw new AppointmentCreationException("End date must be after start date");
+    }
+
+    int interval = recurrence.getInterval() == null ? 1 : recurrence.getInterval();
+    ChronoUnit unit =
+        recurrence.getFrequency() == LeaveRecurrence.Frequency.DAILY
+            ? ChronoUnit.DAYS
+            : ChronoUnit.WEEKS;
+    Duration duration = Duration.between(firstStart, firstEnd);
+    if (duration.compareTo(unit.getDuration().multipliedBy(interval)) > 0) {
+      throw new InvalidRequestException("A leave cannot be longer than its recurrence interval");
+    }
+    if (duration.compareTo(AppointmentRepository.MAX_SPAN) > 0) {
+      throw new InvalidRequestException(
+          "A leave cannot last more than " + AppointmentRepository.MAX_SPAN.toDays() + " days");
+    }
+
+    UUID seriesId = TimeOrderedUuid.next();
+    ZoneId zone = workingHoursService.forDoctor(doctorId).getZone();
+    List<AppointmentEntity> occurrences =
+        expand(
+            doctorId,
+            seriesId,
+            leaveRequest.getLeaveType(),
+            firstStart,
+            duration,
+            zone,
+            unit,
+            interval,
+            recurrence);
+    if (occurrences.isEmpty()) {
+      throw new InvalidRequestException("The recurrence does not produce any leave");
+    }
+
+    Instant lastEnd = occurrences.get(occurrences.size() - 1).getEndDate();
+    HourlyOccupancy occupancy =
+        HourlyOccupancy.of(
+            firstStart,
+            (int) ChronoUnit.HOURS.between(firstStart, lastEnd),
+            appointmentRepository.findOverlapping(
+                doctorId, firstStart.minus(AppointmentRepository.MAX_SPAN), firstStart, lastEnd));
+    for (AppointmentEntity occurrence : occurrences) {
+      if (occupancy.isOccupied(occurrence.getStartDate(), occurrence.getEndDate())) {
+        throw new AppointmentCreationException(
+            "The selected date " + occurrence.getStartDate() + " is already booked");
+      }
+      if (slotHoldService.isAnyHeld(doctorId, occurrence.getStartDate(), occurrence.getEndDate())) {
+        throw new AppointmentCreationException(
+            "The selected date " + occurrence.getStartDate() + " is on hold for a patient");
+      }
+    }
+
+    LeaveSeriesEntity series =
+        LeaveSeriesEntity.builder()
+            .id(seriesId)
+            .doctorId(doctorId)
+            .reason(leaveRequest.getLeaveType())
+            .startDate(firstStart)
+            .endDate(firstEnd)
+            .frequency(recurrence.getFrequency().name())
+            .intervalLength(interval)
+            .untilDate(recurrence.getUntil())
+            .occurrences(occurrences.size())
+            .timeZone(zone.getId())
+            .build();
+    try {
+      appointmentBatchWriter.insertSeries(series, occurrences);
+    } catch (DataIntegrityViolationException e) {
+      // Lost a race against another booking, or the doctor is gone; the series was rolled back.
+      log.debug("Leave series for doctor {} hit a constraint", doctorId, e);
+      throw AppointmentConstraintViolation.translate(e, occurrences.get(0));
+    }
+
+    for (AppointmentEntity occurrence : occurrences) {
+      calendarCache.markOccupied(doctorId, occurrence.getStartDate(), occurrence.getEndDate());
+    }
+    versionRegistry.bumpDoctor(doctorId);
+    log.info(
+        "Scheduled leave series {} with {} occurrences for doctor {}",
+        seriesId,
+        occurrences.size(),
+        doctorId);
+    return new IdResponse(seriesId);
+  }
+
+  private List<AppointmentEntity> expand(
+      UUID doctorId,
+      UUID seriesId,
+      String reason,
+      Instant firstStart,
+      Duration duration,
+      ZoneId zone,
+      ChronoUnit unit,
+      int interval,
+      LeaveRecurrence recurrence) {
+    // Stepping in local time keeps "every Friday at 14:00" at 14:00 across daylight saving changes.
+    ZonedDateTime localStart = firstStart.atZone(zone);
+    DoctorEntity doctor = DoctorEntity.builder().id(doctorId).build();
+    List<AppointmentEntity> occurrences = new ArrayList<>();
+    for (int index = 0; ; index++) {
+      if (recurrence.getCount() != null && index >= recurrence.getCount()) {
+        break;
+      }
+      Instant start = localStart.plus((long) index * interval, unit).toInstant();
+      if (recurrence.getUntil() != null && start.isAfter(recurrence.getUntil())) {
+        break;
+      }
+      // Also bounds the occupancy bitmap, which covers the whole series hour by hour.
+      if (Duration.between(firstStart, start).compareTo(maxSpan) > 0) {
+        throw new InvalidRequestException(
+            "A leave series cannot span more than " + maxSpan.toDays() + " days");
+      }
+      if (occurrences.size() == maxOccurrences) {
+        throw new InvalidRequestException(
+            "A leave series cannot have more than " + maxOccurrences + " occurrences");
+      }
+      occurrences.add(
+          AppointmentEntity.builder()
+              .id(TimeOrderedUuid.next())
+              .doctor(doctor)
+              .startDate(start)
+              .endDate(start.plus(duration))
+              .reason(reason)
+              .seriesId(seriesId)
+              .build());
+    }
+    return occurrences;
+  }
+}
@@ -0,0 +1,146 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.exception.NoAvailabilityException;
+import com.hospital.codechallengeapi.model.response.TimeSlot;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * Answers "when is this doctor next free?" by sweeping the doctor's appointments in start order and
+ * jumping the candidate hour past every interval that covers it, so the cost depends on the number
+ * of intervals skipped rather than on the number of hours between now and the answer. Hours held
+ * for a patient are skipped too.
+ */
+@Service
+@Slf4j
+public class NextAvailabilityService {
+
+  private final AppointmentRepository appointmentRepository;
+  private final WorkingHoursService workingHoursService;
+  private final SlotHoldService slotHoldService;
+  private final Clock clock;
+  private final int chunkSize;
+  private final Duration maxLookahead;
+
+  @Autowired
+  public NextAvailabilityService(
+      AppointmentRepository appointmentRepository,
+      WorkingHoursService workingHoursService,
+      SlotHoldService slotHoldService,
+      Clock clock,
+      @Value("${availability.next.chunk-size:64}") int chunkSize,
+      @Value("${availability.next.max-lookahead:P365D}") Duration maxLookahead) {
+    this.appointmentRepository = appointmentRepository;
+    this.workingHoursService = workingHoursService;
+    this.slotHoldService = slotHoldService;
+    this.clock = clock;
+    this.chunkSize = chunkSize;
+    this.maxLookahead = maxLookahead;
+  }
+
+  public TimeSlot getNextAvailableSlot(UUID doctorId, Instant after) {
+    Instant now = clock.instant().truncatedTo(ChronoUnit.HOURS);
+    Instant from = after == null || after.isBefore(now) ? now : after;
+    Instant limit = from.plus(maxLookahead);
+
+    WorkingHours workingHours = workingHoursService.forDoctor(doctorId);
+    Instant candidate = workingHours.nextWorkingHour(from);
+    Iterator<AppointmentEntity> intervals =
+        candidate == null ? null : new IntervalIterator(doctorId, candidate);
+    AppointmentEntity next = null;
+    int skipped = 0;
+
+    while (candidate != null && candidate.isBefore(limit)) {
+      Instant candidateEnd = candidate.plus(1, ChronoUnit.HOURS);
+      if (next == null && intervals.hasNext()) {
+        next = intervals.next();
+      }
+
+      if (next != null && next.getStartDate().isBefore(candidateEnd)) {
+        skipped++;
+        if (next.getEndDate().isAfter(candidate)) {
+          candidate = workingHours.nextWorkingHour(next.getEndDate());
+        }
+        next = null;
+        continue;
+      }
+      if (slotHoldService.isHeld(doctorId, candidate)) {
+        // Free but about to be booked by the patient holding it; the interval still lies ahead.
+        candidate = workingHours.nextWorkingHour(candidateEnd);
+        continue;
+      }
+
+      log.debug(
+          "Next free slot of doctor {} after {} is {} ({} intervals skipped)",
+          doctorId,
+          from,
+          candidate,
+          skipped);
+      return TimeSlot.builder().startDate(candidate).endDate(candidateEnd).build();
+    }
+
+    throw new NoAvailabilityException(
+        "Doctor " + doctorId + " has no free slot in the " + maxLookahead.toDays() + " days after " + from);
+  }
+
+  /**
+   * Streams the doctor's intervals that end after {@code from}, ordered by start, in chunks. Each
+   * chunk seeks past the last row of the previous one instead of skipping an offset.
+   */
+  private class IntervalIterator implements Iterator<AppointmentEntity> {
+
+    private final UUID doctorId;
+    private final Instant from;
+    private List<AppointmentEntity> chunk = List.of();
+    private int position;
+    private boolean exhausted;
+
+    private IntervalIterator(UUID doctorId, Instant from) {
+      this.doctorId = doctorId;
+      this.from = from;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (position < chunk.size()) {
+        return true;
+      }
+      if (exhausted) {
+        return false;
+      }
+      Instant earliestStart = from.minus(AppointmentRepository.MAX_SPAN);
+      PageRequest first = PageRequest.of(0, chunkSize);
+      AppointmentEntity last = chunk.isEmpty() ? null : chunk.get(chunk.size() - 1);
+      chunk =
+          last == null
+              ? appointmentRepository.findEndingAfter(doctorId, earliestStart, from, first)
+              : appointmentRepository.findEndingAfterCursor(
+                  doctorId, earliestStart, from, last.getStartDate(), last.getId(), first);
+      position = 0;
+      exhausted = chunk.size() < chunkSize;
+      return !chunk.isEmpty();
+    }
+
+    @Override
+    public AppointmentEntity next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return chunk.get(position++);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.model.response.AppointmentCursorPage;
+import com.hospital.codechallengeapi.repository.AppointmentListing;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@Slf4j
+public class PatientService {
+
+  private final AppointmentRepository appointmentRepository;
+  private final Clock clock;
+
+  @Autowired
+  public PatientService(AppointmentRepository appointmentRepository, Clock clock) {
+    this.appointmentRepository = appointmentRepository;
+    this.clock = clock;
+  }
+
+  /**
+   * A page of the patient's own appointments with one query. Upcoming ones are listed from the
+   * soonest on, past ones from the most recent back; {@code cursor} seeks past the previous page.
+   */
+  @Transactional(readOnly = true)
+  public AppointmentCursorPage getAppointments(
+      UUID patientId, AppointmentPeriod period, String cursor, int pageSize) {
+    // One extra row tells whether there is a next page.
+    PageRequest limit = PageRequest.of(0, pageSize + 1);
+    AppointmentCursor after =
+        cursor == null || cursor.isEmpty() ? null : AppointmentCursor.decode(cursor);
+
+    List<AppointmentListing> appointments;
+    if (period == AppointmentPeriod.UPCOMING) {
+      appointments =
+          after == null
+              ? appointmentRepository.findFirstUpcomingPatientAppointments(
+                  patientId, clock.instant(), limit)
+              : appointmentRepository.findUpcomingPatientAppointmentsAfter(
+                  patientId, after.getStartDate(), after.getId(), limit);
+    } else {
+      appointments =
+          after == null
+              ? appointmentRepository.findFirstPastPatientAppointments(
+                  patientId, clock.instant(), limit)
+              : appointmentRepository.findPastPatientAppointmentsBefore(
+                  patientId, after.getStartDate(), after.getId(), limit);
+    }
+    return DoctorService.toCursorPage(appointments, pageSize);
+  }
+}
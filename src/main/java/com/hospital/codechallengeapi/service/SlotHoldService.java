@@ -0,0 +1,235 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.model.response.SlotHoldResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived, in-memory reservations of a doctor's hour. Contended hours are decided here with
+ * compare-and-set operations on a concurrent map, so only the patient holding the hour goes on to
+ * insert the appointment; everyone else is turned away without touching the database. A patient
+ * can hold at most {@code slot-holds.max-per-patient} hours at once, so no one can hide a doctor's
+ * whole calendar by holding and renewing every free hour.
+ */
+@Service
+@Slf4j
+public class SlotHoldService {
+
+  static final String ON_HOLD = "The selected date is on hold for another patient";
+
+  private final DoctorCalendarCache calendarCache;
+  private final WorkingHoursService workingHoursService;
+  private final VersionRegistry versionRegistry;
+  private final Clock clock;
+  private final Duration ttl;
+  private final int maxPerPatient;
+
+  private final ConcurrentHashMap<SlotKey, Hold> holds = new ConcurrentHashMap<>();
+
+  /** The hours each patient holds; only read and written inside {@code compute} on the patient. */
+  private final ConcurrentHashMap<UUID, Set<SlotKey>> byPatient = new ConcurrentHashMap<>();
+
+  @Autowired
+  public SlotHoldService(
+      DoctorCalendarCache calendarCache,
+      WorkingHoursService workingHoursService,
+      VersionRegistry versionRegistry,
+      Clock clock,
+      @Value("${slot-holds.ttl:PT2M}") Duration ttl,
+      @Value("${slot-holds.max-per-patient:3}") int maxPerPatient) {
+    this.calendarCache = calendarCache;
+    this.workingHoursService = workingHoursService;
+    this.versionRegistry = versionRegistry;
+    this.clock = clock;
+    this.ttl = ttl;
+    this.maxPerPatient = maxPerPatient;
+  }
+
+  /** Holds the hour of {@code appointmentDate}; holding it again extends the patient's hold. */
+  public SlotHoldResponse hold(UUID doctorId, UUID patientId, Instant appointmentDate) {
+    Instant start = appointmentDate.truncatedTo(ChronoUnit.HOURS);
+    if (!workingHoursService.forDoctor(doctorId).isWorkingHour(start)) {
+      throw new AppointmentCreationException(
+          "The selected date is outside the doctor's working hours");
+    }
+    if (calendarCache.isKnownOccupied(doctorId, start)) {
+      throw new AppointmentCreationException("The selected date is already booked");
+    }
+
+    Instant now = clock.instant();
+    SlotKey key = new SlotKey(doctorId, HourlyOccupancy.epochHour(start));
+    Hold hold = new Hold(UUID.randomUUID(), patientId, now.plus(ttl));
+    // Holds of one patient are serialised on its entry, so two concurrent requests cannot both
+    // pass the cap.
+    byPatient.compute(
+        patientId,
+        (id, held) -> {
+          Set<SlotKey> live = held == null ? new HashSet<>() : held;
+          live.removeIf(other -> !isHeldBy(other, patientId, now));
+          // A renewal counts the hour it extends, so renewals beyond the cap are rejected too.
+          int others = live.contains(key) ? live.size() - 1 : live.size();
+          if (others >= maxPerPatient) {
+            throw new AppointmentCreationException(
+                "A patient cannot hold more than " + maxPerPatient + " slots at once");
+          }
+          claim(key, hold, now);
+          live.add(key);
+          return live;
+        });
+    versionRegistry.bumpDoctor(doctorId);
+
+    return SlotHoldResponse.builder()
+        .id(hold.getId())
+        .startDate(start)
+        .endDate(start.plus(1, ChronoUnit.HOURS))
+        .expiresAt(hold.getExpiresAt())
+        .build();
+  }
+
+  private void claim(SlotKey key, Hold hold, Instant now) {
+    while (true) {
+      Hold current = holds.putIfAbsent(key, hold);
+      if (current == null) {
+        return;
+      }
+      if (current.getPatientId().equals(hold.getPatientId()) || current.isExpired(now)) {
+        if (holds.replace(key, current, hold)) {
+          return;
+        }
+        // Lost the race for the replacement; look at the new holder.
+        continue;
+      }
+      throw new AppointmentCreationException(ON_HOLD);
+    }
+  }
+
+  private boolean isHeldBy(SlotKey key, UUID patientId, Instant now) {
+    Hold hold = holds.get(key);
+    return hold != null && hold.getPatientId().equals(patientId) && !hold.isExpired(now);
+  }
+
+  /** Whether a live hold on the hour belongs to someone other than {@code patientId}. */
+  public boolean isHeldByAnother(UUID doctorId, UUID patientId, Instant hourStart) {
+    Hold hold = holds.get(new SlotKey(doctorId, HourlyOccupancy.epochHour(hourStart)));
+    return hold != null
+        && !hold.isExpired(clock.instant())
+        && !hold.getPatientId().equals(patientId);
+  }
+
+  public boolean isHeld(UUID doctorId, Instant hourStart) {
+    Hold hold = holds.get(new SlotKey(doctorId, HourlyOccupancy.epochHour(hourStart)));
+    return hold != null && !hold.isExpired(clock.instant());
+  }
+
+  /** Whether any hour of {@code [start, end)} has a live hold, as a leave must not cover one. */
+  public boolean isAnyHeld(UUID doctorId, Instant start, Instant end) {
+    if (holds.isEmpty()) {
+      return false;
+    }
+    for (Instant hour = start.truncatedTo(ChronoUnit.HOURS);
+        hour.isBefore(end);
+        hour = hour.plus(1, ChronoUnit.HOURS)) {
+      if (isHeld(doctorId, hour)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The earliest expiry of the live holds on the doctor's hours in {@code [from, from + hours)},
+   * or null if there are none. Holds are only swept every {@code slot-holds.sweep-interval}, so
+   * tags include this to change the moment a hold runs out.
+   */
+  public Instant nextExpiry(UUID doctorId, Instant from, int hours) {
+    if (holds.isEmpty()) {
+      return null;
+    }
+    Instant now = clock.instant();
+    long firstHour = HourlyOccupancy.epochHour(from);
+    Instant next = null;
+    for (int hour = 0; hour < hours; hour++) {
+      Hold hold = holds.get(new SlotKey(doctorId, firstHour + hour));
+      if (hold != null
+          && !hold.isExpired(now)
+          && (next == null || hold.getExpiresAt().isBefore(next))) {
+        next = hold.getExpiresAt();
+      }
+    }
+    return next;
+  }
+
+  /** Drops the patient's hold once the appointment has been stored. */
+  public void release(UUID doctorId, UUID patientId, Instant hourStart) {
+    SlotKey key = new SlotKey(doctorId, HourlyOccupancy.epochHour(hourStart));
+    Hold hold = holds.get(key);
+    if (hold != null && hold.getPatientId().equals(patientId) && holds.remove(key, hold)) {
+      forget(patientId, key);
+      versionRegistry.bumpDoctor(doctorId);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${slot-holds.sweep-interval:PT10S}")
+  public void sweepExpired() {
+    Instant now = clock.instant();
+    int swept = 0;
+    for (var entry : holds.entrySet()) {
+      if (entry.getValue().isExpired(now) && holds.remove(entry.getKey(), entry.getValue())) {
+        forget(entry.getValue().getPatientId(), entry.getKey());
+        versionRegistry.bumpDoctor(entry.getKey().getDoctorId());
+        swept++;
+      }
+    }
+    if (swept > 0) {
+      log.debug("Reclaimed {} expired slot holds", swept);
+    }
+  }
+
+  public int size() {
+    return holds.size();
+  }
+
+  private void forget(UUID patientId, SlotKey key) {
+    byPatient.computeIfPresent(
+        patientId,
+        (id, held) -> {
+          held.remove(key);
+          return held.isEmpty() ? null : held;
+        });
+  }
+
+  @lombok.Value
+  private static class SlotKey {
+
+    UUID doctorId;
+
+    long epochHour;
+  }
+
+  @lombok.Value
+  private static class Hold {
+
+    UUID id;
+
+    UUID patientId;
+
+    Instant expiresAt;
+
+    boolean isExpired(Instant now) {
+      return !expiresAt.isAfter(now);
+    }
+  }
+}
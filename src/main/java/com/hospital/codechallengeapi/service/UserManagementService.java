@@ -6,6 +6,7 @@ import com.hospital.codechallengeapi.model.request.DoctorRegisterRequest;
 import com.hospital.codechallengeapi.model.request.LoginRequest;
 import com.hospital.codechallengeapi.model.request.PatientRegisterRequest;
 import com.hospital.codechallengeapi.model.request.RegisterRequest;
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
 import com.hospital.codechallengeapi.model.response.IdResponse;
 import com.hospital.codechallengeapi.model.response.JwtResponse;
 import com.hospital.codechallengeapi.repository.DoctorRepository;
@@ -26,6 +27,7 @@ import org.springframework.stereotype.Service;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -46,6 +48,8 @@ public class UserManagementService {
 
   private final JwtProvider jwtProvider;
 
+  private final DoctorDirectory doctorDirectory;
+
   @Autowired
   public UserManagementService(
       HospitalUserRepository hospitalUserRepository,
@@ -54,7 +58,8 @@ public class UserManagementService {
       RoleRepository roleRepository,
       PasswordEncoder passwordEncoder,
       AuthenticationManager authenticationManager,
-      JwtProvider jwtProvider) {
+      JwtProvider jwtProvider,
+      DoctorDirectory doctorDirectory) {
     this.hospitalUserRepository = hospitalUserRepository;
     this.doctorRepository = doctorRepository;
     this.patientRepository = patientRepository;
@@ -62,6 +67,7 @@ public class UserManagementService {
     this.passwordEncoder = passwordEncoder;
     this.authenticationManager = authenticationManager;
     this.jwtProvider = jwtProvider;
+    this.doctorDirectory = doctorDirectory;
   }
 
   public IdResponse createDoctor(DoctorRegisterRequest request) throws UserAlreadyExistsException {
@@ -72,7 +78,9 @@ public class UserManagementService {
     DoctorEntity doctorEntity =
         DoctorEntity.builder().hospitalUserEntity(user).specialty(request.getSpecialty()).build();
 
-    return new IdResponse(doctorRepository.save(doctorEntity).getId());
+    UUID id = doctorRepository.save(doctorEntity).getId();
+    doctorDirectory.add(new DoctorResponse(id, request.getName(), request.getSpecialty()));
+    return new IdResponse(id);
   }
 
   public IdResponse createPatient(PatientRegisterRequest request)
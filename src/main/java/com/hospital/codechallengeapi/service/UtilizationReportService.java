@@ -0,0 +1,121 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.response.DayUtilization;
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
+import com.hospital.codechallengeapi.model.response.DoctorUtilization;
+import com.hospital.codechallengeapi.repository.DoctorDayOccupancyRepository;
+import com.hospital.codechallengeapi.repository.DoctorDayOccupancyRepository.DoctorDayOccupancy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Booked, leave and free hours per doctor and UTC day. Bookings and leaves come from the daily
+ * summary kept by the database and working hours from the compiled schedules, so a report reads
+ * at most one row per doctor and day.
+ */
+@Service
+@Slf4j
+public class UtilizationReportService {
+
+  private static final double MINUTES_PER_HOUR = 60.0;
+
+  private final DoctorDirectory doctorDirectory;
+  private final DoctorDayOccupancyRepository occupancyRepository;
+  private final WorkingHoursService workingHoursService;
+  private final int maxDays;
+
+  @Autowired
+  public UtilizationReportService(
+      DoctorDirectory doctorDirectory,
+      DoctorDayOccupancyRepository occupancyRepository,
+      WorkingHoursService workingHoursService,
+      @Value("${utilization.max-days:92}") int maxDays) {
+    this.doctorDirectory = doctorDirectory;
+    this.occupancyRepository = occupancyRepository;
+    this.workingHoursService = workingHoursService;
+    this.maxDays = maxDays;
+  }
+
+  /** A page of doctors, ordered by name, with one entry per day of [from, to). */
+  public Page<DoctorUtilization> report(
+      LocalDate from, LocalDate to, String specialty, int page, int pageSize) {
+    if (!to.isAfter(from)) {
+      throw new InvalidRequestException("'to' must be after 'from'");
+    }
+    if (ChronoUnit.DAYS.between(from, to) > maxDays) {
+      throw new InvalidRequestException("A report cannot cover more than " + maxDays + " days");
+    }
+
+    Page<DoctorResponse> doctors = doctorDirectory.find(specialty, null, page, pageSize);
+    List<UUID> doctorIds =
+        doctors.getContent().stream().map(DoctorResponse::getId).collect(Collectors.toList());
+
+    Map<UUID, Map<LocalDate, DoctorDayOccupancy>> occupancy = new HashMap<>();
+    for (DoctorDayOccupancy day : occupancyRepository.find(doctorIds, from, to)) {
+      occupancy
+          .computeIfAbsent(day.getDoctorId(), doctorId -> new HashMap<>())
+          .put(day.getDay(), day);
+    }
+    Map<UUID, WorkingHours> workingHours = workingHoursService.forDoctors(doctorIds);
+
+    return doctors.map(
+        doctor ->
+            toUtilization(
+                doctor,
+                from,
+                to,
+                occupancy.getOrDefault(doctor.getId(), Map.of()),
+                workingHours.get(doctor.getId())));
+  }
+
+  private static DoctorUtilization toUtilization(
+      DoctorResponse doctor,
+      LocalDate from,
+      LocalDate to,
+      Map<LocalDate, DoctorDayOccupancy> occupancy,
+      WorkingHours workingHours) {
+    List<DayUtilization> days = new ArrayList<>();
+    double totalWorking = 0;
+    double totalBooked = 0;
+    for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+      DoctorDayOccupancy occupied = occupancy.get(day);
+      int working =
+          workingHours.workingHours(day.atStartOfDay(ZoneOffset.UTC).toInstant(), 24).cardinality();
+      double booked = occupied == null ? 0 : occupied.getBookedMinutes() / MINUTES_PER_HOUR;
+      double leave = occupied == null ? 0 : occupied.getLeaveMinutes() / MINUTES_PER_HOUR;
+      days.add(
+          DayUtilization.builder()
+              .date(day)
+              .appointments(occupied == null ? 0 : occupied.getAppointments())
+              .workingHours(working)
+              .bookedHours(booked)
+              .leaveHours(leave)
+              // A leave is assumed to fall within working hours.
+              .freeHours(Math.max(0, working - booked - leave))
+              .build());
+      totalWorking += working;
+      totalBooked += booked;
+    }
+    return DoctorUtilization.builder()
+        .doctorId(doctor.getId())
+        .doctorName(doctor.getName())
+        .specialty(doctor.getSpecialty())
+        .utilization(totalWorking == 0 ? 0 : totalBooked / totalWorking)
+        .days(days)
+        .build();
+  }
+}
@@ -0,0 +1,55 @@
+package com.hospital.codechallengeapi.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process version counters for what clients poll: one per doctor, bumped whenever something
+ * that shows up in the doctor's availability changes, and one for the doctor directory. They feed
+ * the ETags of those responses so a conditional GET can be answered from the counters alone.
+ *
+ * <p>Counters start from zero on every start, so each instance tags its ETags with a random id;
+ * a client that reaches another instance simply gets a fresh response. They only see the writes
+ * made through this instance: a write made by another instance or directly in the database
+ * leaves them unchanged, so the tags that depend on such writes also include something that
+ * notices them, such as the generation of the doctor's cached calendar.
+ */
+@Component
+public class VersionRegistry {
+
+  private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+
+  private final ConcurrentHashMap<UUID, AtomicLong> doctors = new ConcurrentHashMap<>();
+
+  private final AtomicLong directory = new AtomicLong();
+
+  public long doctorVersion(UUID doctorId) {
+    AtomicLong version = doctors.get(doctorId);
+    return version == null ? 0 : version.get();
+  }
+
+  public void bumpDoctor(UUID doctorId) {
+    doctors.computeIfAbsent(doctorId, id -> new AtomicLong()).incrementAndGet();
+  }
+
+  public long directoryVersion() {
+    return directory.get();
+  }
+
+  public void bumpDirectory() {
+    directory.incrementAndGet();
+  }
+
+  /** A strong ETag value (without quotes) built from this instance's id and {@code parts}. */
+  public String tag(Object... parts) {
+    StringBuilder tag = new StringBuilder(instance);
+    for (Object part : parts) {
+      tag.append('-').append(part);
+    }
+    return tag.toString();
+  }
+}
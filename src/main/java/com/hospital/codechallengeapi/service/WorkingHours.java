@@ -0,0 +1,109 @@
+package com.hospital.codechallengeapi.service;
+
+import lombok.Value;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.time.zone.ZoneRules;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * A weekly schedule compiled into a 168-bit mask, one bit per local hour starting on Monday at
+ * midnight, together with the zone it is expressed in. Checking an instant only needs its zone
+ * offset and a bit lookup.
+ */
+public final class WorkingHours {
+
+  public static final int HOURS_PER_WEEK = 168;
+
+  // 1970-01-01, hour zero of the epoch, was a Thursday.
+  private static final int EPOCH_HOUR_OF_WEEK = 3 * 24;
+  private static final int SECONDS_PER_HOUR = 3600;
+
+  private final ZoneId zone;
+  private final ZoneRules rules;
+  private final boolean fixedOffset;
+  private final int offsetSeconds;
+  private final long[] mask = new long[3];
+
+  private WorkingHours(ZoneId zone) {
+    this.zone = zone;
+    this.rules = zone.getRules();
+    this.fixedOffset = rules.isFixedOffset();
+    this.offsetSeconds = fixedOffset ? rules.getOffset(Instant.EPOCH).getTotalSeconds() : 0;
+  }
+
+  public static WorkingHours compile(ZoneId zone, Collection<Range> ranges) {
+    WorkingHours workingHours = new WorkingHours(zone);
+    for (Range range : ranges) {
+      int dayStart = (range.getDayOfWeek().getValue() - 1) * 24;
+      for (int hour = range.getStartHour(); hour < range.getEndHour(); hour++) {
+        int index = dayStart + hour;
+        workingHours.mask[index >>> 6] |= 1L << index;
+      }
+    }
+    return workingHours;
+  }
+
+  /** Whether an appointment may start at the given hour. */
+  public boolean isWorkingHour(Instant hourStart) {
+    int index = hourOfWeek(hourStart);
+    return (mask[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /** The working hours of {@code [from, from + hours)}, one bit per hour. */
+  public BitSet workingHours(Instant from, int hours) {
+    BitSet working = new BitSet(hours);
+    Instant hourStart = from.truncatedTo(ChronoUnit.HOURS);
+    for (int hour = 0; hour < hours; hour++) {
+      if (isWorkingHour(hourStart)) {
+        working.set(hour);
+      }
+      hourStart = hourStart.plusSeconds(SECONDS_PER_HOUR);
+    }
+    return working;
+  }
+
+  /**
+   * The first hour at or after {@code instant} at which an appointment may start, or {@code null}
+   * if the schedule has no working hour at all.
+   */
+  public Instant nextWorkingHour(Instant instant) {
+    Instant hourStart = instant.truncatedTo(ChronoUnit.HOURS);
+    if (hourStart.isBefore(instant)) {
+      hourStart = hourStart.plusSeconds(SECONDS_PER_HOUR);
+    }
+    // One extra day covers a daylight saving shift inside the scanned week.
+    for (int hour = 0; hour < HOURS_PER_WEEK + 24; hour++) {
+      if (isWorkingHour(hourStart)) {
+        return hourStart;
+      }
+      hourStart = hourStart.plusSeconds(SECONDS_PER_HOUR);
+    }
+    return null;
+  }
+
+  public ZoneId getZone() {
+    return zone;
+  }
+
+  private int hourOfWeek(Instant instant) {
+    long epochSecond = instant.getEpochSecond();
+    int offset = fixedOffset ? offsetSeconds : rules.getOffset(instant).getTotalSeconds();
+    long localHour = Math.floorDiv(epochSecond + offset, SECONDS_PER_HOUR);
+    return (int) Math.floorMod(localHour + EPOCH_HOUR_OF_WEEK, HOURS_PER_WEEK);
+  }
+
+  @Value
+  public static class Range {
+
+    DayOfWeek dayOfWeek;
+
+    int startHour;
+
+    int endHour;
+  }
+}
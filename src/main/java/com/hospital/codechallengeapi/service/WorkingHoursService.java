@@ -0,0 +1,224 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.DoctorWorkingHoursEntity;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.request.WorkingHoursRequest;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.DoctorTimeZone;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import com.hospital.codechallengeapi.repository.ReplicaRouting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the weekly schedules of recently used doctors compiled into {@link WorkingHours} masks, at
+ * most {@code working-hours.cache.max-doctors} of them. Doctors without a schedule of their own
+ * follow the clinic default; ids of doctors that do not exist get it too but are not cached.
+ * Updates through this instance drop the doctor's entry at once; entries are recompiled once they
+ * are older than {@code working-hours.cache.max-age}, which bounds how long an update made through
+ * another instance stays unseen.
+ */
+@Service
+@Slf4j
+public class WorkingHoursService {
+
+  private final DoctorRepository doctorRepository;
+  private final DoctorWorkingHoursRepository doctorWorkingHoursRepository;
+  private final VersionRegistry versionRegistry;
+  private final Clock clock;
+  private final Duration maxAge;
+  private final ZoneId defaultZone;
+  private final List<WorkingHours.Range> defaultRanges;
+  private final WorkingHours defaultWorkingHours;
+
+  private final Map<UUID, CompiledWorkingHours> compiled;
+
+  @Autowired
+  public WorkingHoursService(
+      DoctorRepository doctorRepository,
+      DoctorWorkingHoursRepository doctorWorkingHoursRepository,
+      VersionRegistry versionRegistry,
+      Clock clock,
+      @Value("${working-hours.default.time-zone:UTC}") String defaultZone,
+      @Value("${working-hours.default.start-hour:9}") int defaultStartHour,
+      @Value("${working-hours.default.end-hour:20}") int defaultEndHour,
+      @Value(
+              "${working-hours.default.days:MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY,SATURDAY,SUNDAY}")
+          DayOfWeek[] defaultDays,
+      @Value("${working-hours.cache.max-doctors:10000}") int maxDoctors,
+      @Value("${working-hours.cache.max-age:PT5M}") Duration maxAge) {
+    this.doctorRepository = doctorRepository;
+    this.doctorWorkingHoursRepository = doctorWorkingHoursRepository;
+    this.versionRegistry = versionRegistry;
+    this.clock = clock;
+    this.maxAge = maxAge;
+    this.defaultZone = ZoneId.of(defaultZone);
+    this.defaultRanges = new ArrayList<>();
+    for (DayOfWeek day : defaultDays) {
+      defaultRanges.add(new WorkingHours.Range(day, defaultStartHour, defaultEndHour));
+    }
+    this.defaultWorkingHours = WorkingHours.compile(this.defaultZone, defaultRanges);
+    this.compiled =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<UUID, CompiledWorkingHours> eldest) {
+                return size() > maxDoctors;
+              }
+            });
+  }
+
+  public WorkingHours getDefaultWorkingHours() {
+    return defaultWorkingHours;
+  }
+
+  public WorkingHours forDoctor(UUID doctorId) {
+    WorkingHours workingHours = cached(doctorId, clock.instant());
+    return workingHours != null ? workingHours : forDoctors(List.of(doctorId)).get(doctorId);
+  }
+
+  /** Compiles the schedules that are not cached yet with one query per table. */
+  public Map<UUID, WorkingHours> forDoctors(Collection<UUID> doctorIds) {
+    Map<UUID, WorkingHours> result = new HashMap<>();
+    List<UUID> missing = new ArrayList<>();
+    Instant now = clock.instant();
+    for (UUID doctorId : doctorIds) {
+      WorkingHours workingHours = cached(doctorId, now);
+      if (workingHours != null) {
+        result.put(doctorId, workingHours);
+      } else {
+        missing.add(doctorId);
+      }
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    Map<UUID, String> zones = new HashMap<>();
+    for (DoctorTimeZone doctorTimeZone :
+        ReplicaRouting.onPrimary(() -> doctorRepository.findTimeZonesByIdIn(missing))) {
+      zones.put(doctorTimeZone.getId(), doctorTimeZone.getTimeZone());
+    }
+    Map<UUID, List<WorkingHours.Range>> ranges =
+        ReplicaRouting.onPrimary(() -> doctorWorkingHoursRepository.findByDoctorIdIn(missing))
+            .stream()
+            .collect(
+                Collectors.groupingBy(
+                    DoctorWorkingHoursEntity::getDoctorId,
+                    Collectors.mapping(WorkingHoursService::toRange, Collectors.toList())));
+
+    for (UUID doctorId : missing) {
+      WorkingHours workingHours = compile(zones.get(doctorId), ranges.get(doctorId));
+      // Every doctor has a row there, even without a time zone of their own.
+      if (zones.containsKey(doctorId)) {
+        compiled.put(doctorId, new CompiledWorkingHours(workingHours, now));
+      }
+      result.put(doctorId, workingHours);
+    }
+    return result;
+  }
+
+  @Transactional
+  public void updateWorkingHours(UUID doctorId, WorkingHoursRequest request) {
+    String timeZone = request.getTimeZone();
+    if (timeZone != null) {
+      try {
+        ZoneId.of(timeZone);
+      } catch (DateTimeException e) {
+        throw new InvalidRequestException("Unknown time zone " + timeZone);
+      }
+    }
+    for (WorkingHoursRequest.DailyHours hours : request.getHours()) {
+      if (hours.getStartHour() >= hours.getEndHour()) {
+        throw new InvalidRequestException("'start_hour' must be before 'end_hour'");
+      }
+    }
+
+    if (doctorRepository.updateTimeZone(doctorId, timeZone) == 0) {
+      throw new InvalidRequestException("Doctor with id " + doctorId + " does not exist");
+    }
+    doctorWorkingHoursRepository.deleteByDoctorId(doctorId);
+    doctorWorkingHoursRepository.saveAll(
+        request.getHours().stream()
+            .map(
+                hours ->
+                    DoctorWorkingHoursEntity.builder()
+                        .doctorId(doctorId)
+                        .dayOfWeek((short) hours.getDayOfWeek().getValue())
+                        .startHour((short) hours.getStartHour())
+                        .endHour((short) hours.getEndHour())
+                        .build())
+            .collect(Collectors.toList()));
+
+    compiled.remove(doctorId);
+    versionRegistry.bumpDoctor(doctorId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              compiled.remove(doctorId);
+              versionRegistry.bumpDoctor(doctorId);
+            }
+          });
+    }
+    log.info("Updated the working hours of doctor {}", doctorId);
+  }
+
+  /** The cached schedule of the doctor, or null if there is none younger than the max age. */
+  private WorkingHours cached(UUID doctorId, Instant now) {
+    CompiledWorkingHours entry = compiled.get(doctorId);
+    if (entry == null) {
+      return null;
+    }
+    if (!entry.getCompiledAt().plus(maxAge).isAfter(now)) {
+      compiled.remove(doctorId, entry);
+      return null;
+    }
+    return entry.getWorkingHours();
+  }
+
+  private WorkingHours compile(String timeZone, List<WorkingHours.Range> ranges) {
+    ZoneId zone = timeZone == null ? defaultZone : ZoneId.of(timeZone);
+    if (ranges == null || ranges.isEmpty()) {
+      return zone.equals(defaultZone)
+          ? defaultWorkingHours
+          : WorkingHours.compile(zone, defaultRanges);
+    }
+    return WorkingHours.compile(zone, ranges);
+  }
+
+  private static WorkingHours.Range toRange(DoctorWorkingHoursEntity entity) {
+    return new WorkingHours.Range(
+        DayOfWeek.of(entity.getDayOfWeek()), entity.getStartHour(), entity.getEndHour());
+  }
+
+  @lombok.Value
+  private static class CompiledWorkingHours {
+
+    WorkingHours workingHours;
+
+    Instant compiledAt;
+  }
+}
@@ -0,0 +1,7 @@
+-- Overlap checks ask for END_DATE > window start, which only matches recent rows, instead of
+-- START_DATE < window end, which matches the doctor's whole history.
+CREATE INDEX IDX_APPOINTMENT_DOCTOR_END ON APPOINTMENT (DOCTOR_ID, END_DATE, START_DATE);
+
+-- Listings only show bookings, never leaves.
+CREATE INDEX IDX_APPOINTMENT_DOCTOR_BOOKINGS ON APPOINTMENT (DOCTOR_ID, START_DATE, ID)
+    WHERE PATIENT_ID IS NOT NULL;
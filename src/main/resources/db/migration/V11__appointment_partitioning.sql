@@ -0,0 +1,164 @@
+-- APPOINTMENT becomes range partitioned by month of START_DATE. Postgres 12 does not allow
+-- exclusion constraints on a partitioned table, so every partition carries its own and a trigger
+-- checks the few overlaps that can cross a partition boundary. The partition key must be part of
+-- the primary key, and the SLOT column is dropped since the constraints use the range directly.
+-- The queries bound the start of the rows they look for by the end of their range minus 31 days,
+-- so no row may last longer than that.
+CREATE TABLE APPOINTMENT_PARTITIONED
+(
+    ID         UUID      NOT NULL DEFAULT uuid_generate_v4(),
+    DOCTOR_ID  UUID REFERENCES DOCTOR (ID),
+    PATIENT_ID UUID REFERENCES PATIENT (ID),
+    START_DATE TIMESTAMP NOT NULL,
+    END_DATE   TIMESTAMP,
+    REASON     VARCHAR(255),
+    SERIES_ID  UUID REFERENCES LEAVE_SERIES (ID),
+    PRIMARY KEY (ID, START_DATE),
+    CONSTRAINT APPOINTMENT_MAX_SPAN CHECK (END_DATE - START_DATE <= INTERVAL '31 days')
+) PARTITION BY RANGE (START_DATE);
+
+-- Catches rows of months that have no partition yet; they are moved out when it is created.
+CREATE TABLE APPOINTMENT_DEFAULT PARTITION OF APPOINTMENT_PARTITIONED DEFAULT;
+
+-- A booking that long is a data error someone has to look at; a leave is split into consecutive
+-- pieces of at most 31 days, the first one keeping its id.
+DO
+$$
+BEGIN
+    IF EXISTS(SELECT 1
+              FROM APPOINTMENT
+              WHERE PATIENT_ID IS NOT NULL
+                AND END_DATE - START_DATE > INTERVAL '31 days') THEN
+        RAISE EXCEPTION 'Appointments with a patient that last more than 31 days must be shortened before partitioning';
+    END IF;
+END;
+$$;
+
+INSERT INTO APPOINTMENT_PARTITIONED (ID, DOCTOR_ID, PATIENT_ID, START_DATE, END_DATE, REASON, SERIES_ID)
+SELECT CASE WHEN piece.START_DATE = a.START_DATE THEN a.ID ELSE uuid_generate_v4() END,
+       a.DOCTOR_ID,
+       a.PATIENT_ID,
+       piece.START_DATE,
+       CASE
+           WHEN a.END_DATE - piece.START_DATE > INTERVAL '31 days' THEN piece.START_DATE + INTERVAL '31 days'
+           ELSE a.END_DATE END,
+       a.REASON,
+       a.SERIES_ID
+FROM APPOINTMENT a
+         CROSS JOIN LATERAL generate_series(a.START_DATE,
+                                            GREATEST(a.END_DATE - INTERVAL '1 microsecond', a.START_DATE),
+                                            INTERVAL '31 days') AS piece(START_DATE);
+
+DROP TABLE APPOINTMENT;
+
+ALTER TABLE APPOINTMENT_PARTITIONED
+    RENAME TO APPOINTMENT;
+
+ALTER TABLE APPOINTMENT_DEFAULT
+    ADD CONSTRAINT APPOINTMENT_DEFAULT_NO_OVERLAP
+        EXCLUDE USING GIST (DOCTOR_ID WITH =, TSRANGE(START_DATE, END_DATE, '[)') WITH &&);
+
+CREATE INDEX IDX_APPOINTMENT_SERIES ON APPOINTMENT (SERIES_ID);
+-- Serves both the doctor's listings and the next-availability seeks, which also read leaves in
+-- (START_DATE, ID) order; a partial copy for bookings only would just be one more index to write.
+CREATE INDEX IDX_APPOINTMENT_DOCTOR_START ON APPOINTMENT (DOCTOR_ID, START_DATE, ID);
+CREATE INDEX IDX_APPOINTMENT_START ON APPOINTMENT (START_DATE, ID) WHERE PATIENT_ID IS NOT NULL;
+CREATE INDEX IDX_APPOINTMENT_PATIENT_START ON APPOINTMENT (PATIENT_ID, START_DATE, ID) WHERE PATIENT_ID IS NOT NULL;
+CREATE INDEX IDX_APPOINTMENT_DOCTOR_END ON APPOINTMENT (DOCTOR_ID, END_DATE, START_DATE);
+
+-- Overlaps inside a partition are rejected by its exclusion constraint; this looks for the ones
+-- with rows of other months. The advisory lock serialises the check per doctor, and the error
+-- code is the one of an exclusion constraint so callers cannot tell the two apart.
+CREATE FUNCTION check_appointment_overlap() RETURNS TRIGGER
+    LANGUAGE plpgsql
+    SET search_path FROM CURRENT
+AS
+$$
+DECLARE
+    month_start TIMESTAMP := date_trunc('month', NEW.START_DATE);
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext(NEW.DOCTOR_ID::TEXT));
+    IF EXISTS(SELECT 1
+              FROM APPOINTMENT a
+              WHERE a.DOCTOR_ID = NEW.DOCTOR_ID
+                AND a.START_DATE < NEW.END_DATE
+                AND a.END_DATE > NEW.START_DATE
+                AND (a.START_DATE < month_start OR a.START_DATE >= month_start + INTERVAL '1 month')) THEN
+        RAISE EXCEPTION 'Appointment % of doctor % overlaps another one', NEW.ID, NEW.DOCTOR_ID
+            USING ERRCODE = 'exclusion_violation';
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER APPOINTMENT_NO_OVERLAP_ACROSS_PARTITIONS
+    AFTER INSERT OR UPDATE OF DOCTOR_ID, START_DATE, END_DATE
+    ON APPOINTMENT
+    FOR EACH ROW
+EXECUTE FUNCTION check_appointment_overlap();
+
+-- Creates the partition of the month of partition_month, moving in the rows of that month that
+-- landed in the default partition. Returns false if it already exists.
+CREATE FUNCTION create_appointment_partition(partition_month DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql
+    SET search_path FROM CURRENT
+AS
+$$
+DECLARE
+    lower_bound    TIMESTAMP := date_trunc('month', partition_month);
+    upper_bound    TIMESTAMP := date_trunc('month', partition_month) + INTERVAL '1 month';
+    partition_name TEXT      := 'appointment_' || to_char(partition_month, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    -- Attaching takes this lock anyway; taking it first keeps new rows of the month out of the
+    -- default partition until the partition is attached.
+    LOCK TABLE APPOINTMENT_DEFAULT IN ACCESS EXCLUSIVE MODE;
+    EXECUTE format('CREATE TABLE %I (LIKE APPOINTMENT INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM APPOINTMENT_DEFAULT '
+                       'WHERE START_DATE >= $1 AND START_DATE < $2 RETURNING *) '
+                       'INSERT INTO %I SELECT * FROM moved', partition_name)
+        USING lower_bound, upper_bound;
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I '
+                       'EXCLUDE USING GIST (DOCTOR_ID WITH =, TSRANGE(START_DATE, END_DATE, ''[)'') WITH &&)',
+                   partition_name, partition_name || '_no_overlap');
+    EXECUTE format('ALTER TABLE APPOINTMENT ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, lower_bound, upper_bound);
+    RETURN TRUE;
+END;
+$$;
+
+-- Detaches the partitions of the months before before_month and renames them archived_*, so they
+-- stay queryable (or can be dumped and dropped) without weighing on the live table.
+CREATE FUNCTION detach_appointment_partitions(before_month DATE) RETURNS SETOF TEXT
+    LANGUAGE plpgsql
+    SET search_path FROM CURRENT
+AS
+$$
+DECLARE
+    p RECORD;
+BEGIN
+    FOR p IN
+        SELECT c.relname AS name
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'appointment'::REGCLASS
+          AND c.relname ~ '^appointment_\d{4}_\d{2}$'
+          AND to_date(substring(c.relname FROM 13), 'YYYY_MM') < date_trunc('month', before_month)
+        ORDER BY c.relname
+        LOOP
+            EXECUTE format('ALTER TABLE APPOINTMENT DETACH PARTITION %I', p.name);
+            EXECUTE format('ALTER TABLE %I RENAME TO %I', p.name, 'archived_' || p.name);
+            RETURN NEXT p.name;
+        END LOOP;
+END;
+$$;
+
+SELECT create_appointment_partition(month::DATE)
+FROM (SELECT DISTINCT date_trunc('month', START_DATE) AS month
+      FROM APPOINTMENT
+      UNION
+      SELECT generate_series(date_trunc('month', now()),
+                             date_trunc('month', now()) + INTERVAL '3 months',
+                             INTERVAL '1 month')) months;
@@ -0,0 +1,26 @@
+-- Same layout as TimeOrderedUuid: the milliseconds since the epoch in the first 48 bits and the
+-- version set to 7, the rest is random. Rows inserted without an id no longer get a random key.
+CREATE FUNCTION uuid_generate_v7() RETURNS UUID
+    LANGUAGE plpgsql
+    VOLATILE
+    SET search_path FROM CURRENT
+AS
+$$
+DECLARE
+    bytes BYTEA := uuid_send(uuid_generate_v4());
+BEGIN
+    bytes := overlay(bytes PLACING substring(int8send((extract(EPOCH FROM clock_timestamp()) * 1000)::BIGINT) FROM 3)
+                     FROM 1 FOR 6);
+    bytes := set_byte(bytes, 6, (get_byte(bytes, 6) & 15) | 112);
+    RETURN encode(bytes, 'hex')::UUID;
+END;
+$$;
+
+ALTER TABLE HOSPITAL_USER
+    ALTER COLUMN ID SET DEFAULT uuid_generate_v7();
+
+ALTER TABLE APPOINTMENT
+    ALTER COLUMN ID SET DEFAULT uuid_generate_v7();
+
+ALTER TABLE LEAVE_SERIES
+    ALTER COLUMN ID SET DEFAULT uuid_generate_v7();
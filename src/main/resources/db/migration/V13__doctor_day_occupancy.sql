@@ -0,0 +1,101 @@
+-- Booked and leave minutes per doctor and UTC day, kept up to date by a trigger on APPOINTMENT so
+-- that utilization reports read one row per doctor and day instead of the appointments.
+CREATE TABLE DOCTOR_DAY_OCCUPANCY
+(
+    DOCTOR_ID      UUID    NOT NULL REFERENCES DOCTOR (ID),
+    DAY            DATE    NOT NULL,
+    APPOINTMENTS   INTEGER NOT NULL DEFAULT 0,
+    BOOKED_MINUTES INTEGER NOT NULL DEFAULT 0,
+    LEAVE_MINUTES  INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (DOCTOR_ID, DAY)
+);
+
+-- Adds (direction 1) or removes (direction -1) an appointment or leave, split over the days it
+-- covers. An appointment is counted on the day it starts.
+CREATE FUNCTION add_day_occupancy(doctor UUID, patient UUID, from_time TIMESTAMP, to_time TIMESTAMP,
+                                  direction INTEGER) RETURNS VOID
+    LANGUAGE plpgsql
+    SET search_path FROM CURRENT
+AS
+$$
+BEGIN
+    INSERT INTO DOCTOR_DAY_OCCUPANCY AS o (DOCTOR_ID, DAY, APPOINTMENTS, BOOKED_MINUTES, LEAVE_MINUTES)
+    SELECT doctor,
+           days.day::DATE,
+           CASE WHEN patient IS NOT NULL AND days.day = date_trunc('day', from_time) THEN direction ELSE 0 END,
+           CASE WHEN patient IS NOT NULL THEN direction * days.minutes ELSE 0 END,
+           CASE WHEN patient IS NULL THEN direction * days.minutes ELSE 0 END
+    FROM (SELECT d AS day,
+                 (extract(EPOCH FROM least(to_time, d + INTERVAL '1 day') - greatest(from_time, d)) / 60)::INTEGER AS minutes
+          FROM generate_series(date_trunc('day', from_time), to_time, INTERVAL '1 day') d
+          WHERE d < to_time) days
+    ON CONFLICT (DOCTOR_ID, DAY) DO UPDATE
+        SET APPOINTMENTS   = o.APPOINTMENTS + EXCLUDED.APPOINTMENTS,
+            BOOKED_MINUTES = o.BOOKED_MINUTES + EXCLUDED.BOOKED_MINUTES,
+            LEAVE_MINUTES  = o.LEAVE_MINUTES + EXCLUDED.LEAVE_MINUTES;
+END;
+$$;
+
+CREATE FUNCTION track_day_occupancy() RETURNS TRIGGER
+    LANGUAGE plpgsql
+    SET search_path FROM CURRENT
+AS
+$$
+BEGIN
+    -- Rows moved out of the default partition are not new appointments.
+    IF current_setting('healthcare.moving_appointments', TRUE) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.DOCTOR_ID IS NOT NULL THEN
+        PERFORM add_day_occupancy(OLD.DOCTOR_ID, OLD.PATIENT_ID, OLD.START_DATE, OLD.END_DATE, -1);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.DOCTOR_ID IS NOT NULL THEN
+        PERFORM add_day_occupancy(NEW.DOCTOR_ID, NEW.PATIENT_ID, NEW.START_DATE, NEW.END_DATE, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER APPOINTMENT_DAY_OCCUPANCY
+    AFTER INSERT OR UPDATE OR DELETE
+    ON APPOINTMENT
+    FOR EACH ROW
+EXECUTE FUNCTION track_day_occupancy();
+
+-- The cloned trigger also fires on the partitions, so moving rows out of the default partition
+-- must not count as deleting them.
+CREATE OR REPLACE FUNCTION create_appointment_partition(partition_month DATE) RETURNS BOOLEAN
+    LANGUAGE plpgsql
+    SET search_path FROM CURRENT
+AS
+$$
+DECLARE
+    lower_bound    TIMESTAMP := date_trunc('month', partition_month);
+    upper_bound    TIMESTAMP := date_trunc('month', partition_month) + INTERVAL '1 month';
+    partition_name TEXT      := 'appointment_' || to_char(partition_month, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+    -- Attaching takes this lock anyway; taking it first keeps new rows of the month out of the
+    -- default partition until the partition is attached.
+    LOCK TABLE APPOINTMENT_DEFAULT IN ACCESS EXCLUSIVE MODE;
+    PERFORM set_config('healthcare.moving_appointments', 'on', TRUE);
+    EXECUTE format('CREATE TABLE %I (LIKE APPOINTMENT INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM APPOINTMENT_DEFAULT '
+                       'WHERE START_DATE >= $1 AND START_DATE < $2 RETURNING *) '
+                       'INSERT INTO %I SELECT * FROM moved', partition_name)
+        USING lower_bound, upper_bound;
+    PERFORM set_config('healthcare.moving_appointments', 'off', TRUE);
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I '
+                       'EXCLUDE USING GIST (DOCTOR_ID WITH =, TSRANGE(START_DATE, END_DATE, ''[)'') WITH &&)',
+                   partition_name, partition_name || '_no_overlap');
+    EXECUTE format('ALTER TABLE APPOINTMENT ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, lower_bound, upper_bound);
+    RETURN TRUE;
+END;
+$$;
+
+SELECT add_day_occupancy(DOCTOR_ID, PATIENT_ID, START_DATE, END_DATE, 1)
+FROM APPOINTMENT
+WHERE DOCTOR_ID IS NOT NULL;
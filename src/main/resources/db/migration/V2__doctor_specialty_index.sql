@@ -0,0 +1 @@
+CREATE INDEX IDX_DOCTOR_SPECIALTY ON DOCTOR (LOWER(SPECIALTY));
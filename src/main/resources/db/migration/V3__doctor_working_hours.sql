@@ -0,0 +1,14 @@
+ALTER TABLE DOCTOR
+    ADD COLUMN TIME_ZONE VARCHAR(64);
+
+CREATE TABLE DOCTOR_WORKING_HOURS
+(
+    ID          SERIAL PRIMARY KEY,
+    DOCTOR_ID   UUID     NOT NULL REFERENCES DOCTOR (ID),
+    DAY_OF_WEEK SMALLINT NOT NULL CHECK (DAY_OF_WEEK BETWEEN 1 AND 7),
+    START_HOUR  SMALLINT NOT NULL CHECK (START_HOUR BETWEEN 0 AND 23),
+    END_HOUR    SMALLINT NOT NULL CHECK (END_HOUR BETWEEN 1 AND 24),
+    CHECK (START_HOUR < END_HOUR)
+);
+
+CREATE INDEX IDX_DOCTOR_WORKING_HOURS_DOCTOR ON DOCTOR_WORKING_HOURS (DOCTOR_ID);
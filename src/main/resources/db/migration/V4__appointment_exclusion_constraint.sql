@@ -0,0 +1,11 @@
+CREATE
+EXTENSION IF NOT EXISTS btree_gist;
+
+ALTER TABLE APPOINTMENT
+    ADD COLUMN SLOT TSRANGE GENERATED ALWAYS AS (TSRANGE(START_DATE, END_DATE, '[)')) STORED;
+
+ALTER TABLE APPOINTMENT
+    ADD CONSTRAINT NO_OVERLAPPING_APPOINTMENT EXCLUDE USING GIST (DOCTOR_ID WITH =, SLOT WITH &&);
+
+ALTER TABLE APPOINTMENT
+    DROP CONSTRAINT UNIQUE_APPOINTMENT_HOUR;
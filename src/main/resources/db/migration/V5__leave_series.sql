@@ -0,0 +1,20 @@
+CREATE TABLE LEAVE_SERIES
+(
+    ID              UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    DOCTOR_ID       UUID        NOT NULL REFERENCES DOCTOR (ID),
+    REASON          VARCHAR(255),
+    START_DATE      TIMESTAMP   NOT NULL,
+    END_DATE        TIMESTAMP   NOT NULL,
+    FREQUENCY       VARCHAR(10) NOT NULL,
+    INTERVAL_LENGTH INTEGER     NOT NULL CHECK (INTERVAL_LENGTH > 0),
+    UNTIL_DATE      TIMESTAMP,
+    OCCURRENCES     INTEGER     NOT NULL,
+    TIME_ZONE       VARCHAR(64) NOT NULL
+);
+
+CREATE INDEX IDX_LEAVE_SERIES_DOCTOR ON LEAVE_SERIES (DOCTOR_ID);
+
+ALTER TABLE APPOINTMENT
+    ADD COLUMN SERIES_ID UUID REFERENCES LEAVE_SERIES (ID);
+
+CREATE INDEX IDX_APPOINTMENT_SERIES ON APPOINTMENT (SERIES_ID);
@@ -0,0 +1,12 @@
+CREATE TABLE IDEMPOTENCY_RECORD
+(
+    SCOPE           VARCHAR(64)  NOT NULL,
+    IDEMPOTENCY_KEY VARCHAR(255) NOT NULL,
+    FINGERPRINT     VARCHAR(64)  NOT NULL,
+    RESPONSE_ID     UUID,
+    CREATED_AT      TIMESTAMP    NOT NULL,
+    EXPIRES_AT      TIMESTAMP    NOT NULL,
+    PRIMARY KEY (SCOPE, IDEMPOTENCY_KEY)
+);
+
+CREATE INDEX IDX_IDEMPOTENCY_RECORD_EXPIRES_AT ON IDEMPOTENCY_RECORD (EXPIRES_AT);
@@ -0,0 +1 @@
+CREATE INDEX IDX_APPOINTMENT_DOCTOR_START ON APPOINTMENT (DOCTOR_ID, START_DATE, ID);
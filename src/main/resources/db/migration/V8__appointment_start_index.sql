@@ -0,0 +1 @@
+CREATE INDEX IDX_APPOINTMENT_START ON APPOINTMENT (START_DATE, ID) WHERE PATIENT_ID IS NOT NULL;
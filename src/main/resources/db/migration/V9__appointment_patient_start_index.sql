@@ -0,0 +1 @@
+CREATE INDEX IDX_APPOINTMENT_PATIENT_START ON APPOINTMENT (PATIENT_ID, START_DATE, ID) WHERE PATIENT_ID IS NOT NULL;
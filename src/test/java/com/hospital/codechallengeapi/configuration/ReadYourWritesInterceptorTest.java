@@ -0,0 +1,120 @@
+package com.hospital.codechallengeapi.configuration;
+
+import com.hospital.codechallengeapi.repository.ReplicaRouting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReadYourWritesInterceptorTest {
+
+  private static final Instant NOW = Instant.parse("2021-04-01T09:00:00Z");
+
+  private final Clock clock = mock(Clock.class);
+
+  private final ReadYourWrites readYourWrites = new ReadYourWrites(clock, Duration.ofSeconds(5));
+
+  private final ReadYourWritesInterceptor interceptor =
+      new ReadYourWritesInterceptor(readYourWrites);
+
+  @BeforeEach
+  public void setUp() {
+    when(clock.instant()).thenReturn(NOW);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void writes_shouldRunOnThePrimary() {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/doctors/appointments");
+
+    interceptor.preHandle(request, new MockHttpServletResponse(), null);
+    assertTrue(ReplicaRouting.isPinned());
+
+    interceptor.afterCompletion(request, new MockHttpServletResponse(), null, null);
+    assertFalse(ReplicaRouting.isPinned());
+  }
+
+  @Test
+  public void reads_shouldStayOnThePrimaryShortlyAfterTheUserWrote() {
+    loggedInAs("patient");
+    MockHttpServletRequest write = new MockHttpServletRequest("POST", "/v1/doctors/appointments");
+    interceptor.preHandle(write, new MockHttpServletResponse(), null);
+    interceptor.afterCompletion(write, new MockHttpServletResponse(), null, null);
+
+    MockHttpServletRequest read = new MockHttpServletRequest("GET", "/v1/patients/appointments");
+    interceptor.preHandle(read, new MockHttpServletResponse(), null);
+    assertTrue(ReplicaRouting.isPinned());
+    interceptor.afterCompletion(read, new MockHttpServletResponse(), null, null);
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(6));
+    interceptor.preHandle(read, new MockHttpServletResponse(), null);
+    assertFalse(ReplicaRouting.isPinned());
+  }
+
+  @Test
+  public void reads_shouldSeeAWriteWhoseResponseIsAlreadyCommitted() throws Exception {
+    loggedInAs("patient");
+    MockHttpServletRequest write = new MockHttpServletRequest("POST", "/v1/doctors/appointments");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    interceptor.preHandle(write, response, null);
+    // The handler writes the JSON body and flushes it; afterCompletion has not run yet.
+    response.setCommitted(true);
+
+    SecurityContext context = SecurityContextHolder.getContext();
+    ExecutorService client = Executors.newSingleThreadExecutor();
+    try {
+      Future<Boolean> pinned =
+          client.submit(
+              () -> {
+                SecurityContextHolder.setContext(context);
+                MockHttpServletRequest read =
+                    new MockHttpServletRequest("GET", "/v1/patients/appointments");
+                interceptor.preHandle(read, new MockHttpServletResponse(), null);
+                boolean isPinned = ReplicaRouting.isPinned();
+                interceptor.afterCompletion(read, new MockHttpServletResponse(), null, null);
+                return isPinned;
+              });
+      assertTrue(pinned.get());
+    } finally {
+      client.shutdownNow();
+    }
+    interceptor.afterCompletion(write, response, null, null);
+  }
+
+  @Test
+  public void purge_shouldForgetOldWrites() {
+    readYourWrites.recordWrite("patient");
+    when(clock.instant()).thenReturn(NOW.plusSeconds(5));
+
+    readYourWrites.purge();
+
+    assertEquals(0, readYourWrites.size());
+  }
+
+  private static void loggedInAs(String username) {
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_PATIENT")));
+  }
+}
@@ -0,0 +1,53 @@
+package com.hospital.codechallengeapi.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeOrderedUuidTest {
+
+  @Test
+  public void next_shouldBeAVersion7Uuid() {
+    UUID uuid = TimeOrderedUuid.next(1617267600000L);
+
+    assertEquals(7, uuid.version());
+    assertEquals(2, uuid.variant());
+    assertTrue(TimeOrderedUuid.timestamp(uuid) >= 1617267600000L);
+  }
+
+  @Test
+  public void next_shouldIncreaseWithinAndAcrossMilliseconds() {
+    long now = System.currentTimeMillis();
+    List<UUID> uuids = new ArrayList<>();
+    // More ids than the counter holds, so some borrow from the next millisecond.
+    for (int i = 0; i < 5000; i++) {
+      uuids.add(TimeOrderedUuid.next(now));
+    }
+    uuids.add(TimeOrderedUuid.next(now + 10));
+
+    for (int i = 1; i < uuids.size(); i++) {
+      // Postgres compares uuids byte by byte, which is an unsigned comparison of the halves.
+      assertTrue(compareUnsigned(uuids.get(i - 1), uuids.get(i)) < 0, "at " + i);
+    }
+  }
+
+  @Test
+  public void next_shouldNotGoBackWhenTheClockDoes() {
+    long now = System.currentTimeMillis() + 60_000;
+    UUID first = TimeOrderedUuid.next(now);
+    UUID second = TimeOrderedUuid.next(now - 1000);
+
+    assertTrue(compareUnsigned(first, second) < 0);
+  }
+
+  private static int compareUnsigned(UUID a, UUID b) {
+    int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+    return high != 0
+        ? high
+        : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+  }
+}
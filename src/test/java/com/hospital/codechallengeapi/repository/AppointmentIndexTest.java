@@ -0,0 +1,150 @@
+package com.hospital.codechallengeapi.repository;
+
+import com.hospital.codechallengeapi.TestContainerStarter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks with {@code EXPLAIN} that the overlap and listing queries of {@link
+ * AppointmentRepository} are served by the indexes built for them and only visit the partitions of
+ * their window. The statements explained are the ones Hibernate generates for the repository
+ * methods, recorded by {@link RecordingStatementInspector}, bound to the same values. Sequential
+ * scans are disabled because on a near-empty table the planner would rightly prefer them.
+ */
+@SpringBootTest(
+    properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "com.hospital.codechallengeapi.repository.RecordingStatementInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+@Transactional
+public class AppointmentIndexTest {
+
+  private static final UUID DOCTOR_ID = UUID.fromString("9cfb5e0a-9d0b-4c4b-8d3c-5b2a0a0f3a10");
+
+  private static final Instant FROM = Instant.parse("2021-04-01T00:00:00Z");
+
+  private static final Instant TO = Instant.parse("2021-04-09T00:00:00Z");
+
+  @Container
+  private static final PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("12.3"))
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  @DynamicPropertySource
+  static void registerDynamicProperties(DynamicPropertyRegistry registry) {
+    TestContainerStarter.populateRegistryFromContainers(registry, postgres);
+  }
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private AppointmentRepository appointmentRepository;
+
+  @BeforeEach
+  void setUp() {
+    jdbcTemplate.execute("ANALYZE healthcare.appointment");
+    jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    RecordingStatementInspector.clear();
+  }
+
+  @Test
+  void overlapQuery_shouldUseTheDoctorEndIndex() {
+    String plan = explainOverlapQuery();
+
+    assertTrue(plan.matches("(?s).*Index Cond: .*end_date > .*"), plan);
+  }
+
+  @Test
+  void overlapQuery_shouldOnlyScanThePartitionsOfTheWindow() {
+    for (String month : List.of("2021-02-01", "2021-03-01", "2021-04-01", "2021-05-01")) {
+      jdbcTemplate.queryForObject(
+          "SELECT healthcare.create_appointment_partition(DATE '" + month + "')", Boolean.class);
+    }
+
+    String plan = explainOverlapQuery();
+
+    assertTrue(plan.contains("appointment_2021_03"), plan);
+    assertTrue(plan.contains("appointment_2021_04"), plan);
+    assertFalse(plan.contains("appointment_2021_02"), plan);
+    assertFalse(plan.contains("appointment_2021_05"), plan);
+  }
+
+  @Test
+  void listingQuery_shouldBeServedInIndexOrder() {
+    appointmentRepository.findFirstAppointments(DOCTOR_ID, PageRequest.of(0, 11));
+
+    String plan = explain(RecordingStatementInspector.last(), DOCTOR_ID, 11);
+
+    // Partitions name their copies of the parent's indexes after themselves.
+    assertTrue(plan.contains("Scan using appointment_"), plan);
+    assertFalse(hasSortNode(plan), plan);
+  }
+
+  @Test
+  void seekQuery_shouldStartTheIndexScanAtTheCursor() {
+    UUID cursorId = UUID.randomUUID();
+    appointmentRepository.findAppointmentsAfter(DOCTOR_ID, FROM, cursorId, PageRequest.of(0, 11));
+
+    String plan =
+        explain(
+            RecordingStatementInspector.last(),
+            DOCTOR_ID,
+            Timestamp.from(FROM),
+            Timestamp.from(FROM),
+            Timestamp.from(FROM),
+            cursorId,
+            11);
+
+    assertTrue(plan.matches("(?s).*Index Cond: .*start_date >= .*"), plan);
+    assertFalse(hasSortNode(plan), plan);
+  }
+
+  /** Runs the overlap query of the window and explains what Hibernate sent for it. */
+  private String explainOverlapQuery() {
+    Instant earliestStart = FROM.minus(AppointmentRepository.MAX_SPAN);
+    appointmentRepository.findOverlapping(DOCTOR_ID, earliestStart, FROM, TO);
+
+    // Bound in the order the JPQL names them: doctor, earliest start, to, from.
+    return explain(
+        RecordingStatementInspector.last(),
+        DOCTOR_ID,
+        Timestamp.from(earliestStart),
+        Timestamp.from(TO),
+        Timestamp.from(FROM));
+  }
+
+  /** A merge of sorted partitions prints a "Sort Key" line but sorts nothing itself. */
+  private static boolean hasSortNode(String plan) {
+    return plan.lines()
+        .map(line -> line.trim().replaceFirst("^-> ", ""))
+        .anyMatch(line -> line.startsWith("Sort ") && !line.startsWith("Sort Key"));
+  }
+
+  private String explain(String sql, Object... parameters) {
+    assertEquals(sql.chars().filter(c -> c == '?').count(), parameters.length, sql);
+    List<String> lines = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters);
+    return String.join("\n", lines);
+  }
+}
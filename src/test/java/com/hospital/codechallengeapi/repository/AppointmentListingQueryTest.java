@@ -0,0 +1,135 @@
+package com.hospital.codechallengeapi.repository;
+
+import com.hospital.codechallengeapi.TestContainerStarter;
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.entity.DoctorEntity;
+import com.hospital.codechallengeapi.entity.HospitalUserEntity;
+import com.hospital.codechallengeapi.entity.PatientEntity;
+import com.hospital.codechallengeapi.model.response.AppointmentCursorPage;
+import com.hospital.codechallengeapi.model.response.AppointmentResponse;
+import com.hospital.codechallengeapi.service.DoctorService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Checks that listing a doctor's appointments costs a fixed number of statements per page. */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+@Transactional
+public class AppointmentListingQueryTest {
+
+  private static final int APPOINTMENTS = 50;
+
+  @Container
+  private static final PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("12.3"))
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  @DynamicPropertySource
+  static void registerDynamicProperties(DynamicPropertyRegistry registry) {
+    TestContainerStarter.populateRegistryFromContainers(registry, postgres);
+  }
+
+  @Autowired private EntityManager entityManager;
+
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @Autowired private DoctorService doctorService;
+
+  private Statistics statistics;
+
+  private UUID doctorId;
+
+  @BeforeEach
+  void setUp() {
+    HospitalUserEntity doctorUser =
+        HospitalUserEntity.builder().username("doctor").password("doctor").name("doctor").build();
+    entityManager.persist(doctorUser);
+    DoctorEntity doctor =
+        DoctorEntity.builder().hospitalUserEntity(doctorUser).specialty("Cardiology").build();
+    entityManager.persist(doctor);
+    doctorId = doctor.getId();
+
+    Instant start = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.HOURS);
+    for (int i = 0; i < APPOINTMENTS; i++) {
+      HospitalUserEntity patientUser =
+          HospitalUserEntity.builder()
+              .username("patient" + i)
+              .password("patient" + i)
+              .name("patient" + i)
+              .build();
+      entityManager.persist(patientUser);
+      PatientEntity patient = PatientEntity.builder().hospitalUserEntity(patientUser).build();
+      entityManager.persist(patient);
+      entityManager.persist(
+          AppointmentEntity.builder()
+              .doctor(doctor)
+              .patient(patient)
+              .startDate(start.plus(i, ChronoUnit.HOURS))
+              .endDate(start.plus(i + 1, ChronoUnit.HOURS))
+              .build());
+    }
+    entityManager.flush();
+    entityManager.clear();
+
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.clear();
+  }
+
+  @Test
+  void getAppointments_shouldUseOneSelectAndOneCountPerPage() {
+    Page<AppointmentResponse> page = doctorService.getAppointments(doctorId, 1, APPOINTMENTS);
+
+    assertEquals(APPOINTMENTS, page.getNumberOfElements());
+    assertEquals("patient0", page.getContent().get(0).getPatientName());
+    assertEquals(2, statistics.getPrepareStatementCount());
+    assertEquals(0, statistics.getEntityLoadCount());
+  }
+
+  @Test
+  void getAppointmentSlice_shouldSkipTheCount() {
+    Slice<AppointmentResponse> slice = doctorService.getAppointmentSlice(doctorId, 1, 20);
+
+    assertEquals(20, slice.getNumberOfElements());
+    assertTrue(slice.hasNext());
+    assertEquals(1, statistics.getPrepareStatementCount());
+  }
+
+  @Test
+  void getAppointmentsAfter_shouldUseOneSelectPerPage() {
+    AppointmentCursorPage page = doctorService.getAppointmentsAfter(doctorId, null, 20);
+
+    assertEquals(20, page.getContent().size());
+    assertEquals(1, statistics.getPrepareStatementCount());
+
+    statistics.clear();
+    doctorService.getAppointmentsAfter(doctorId, page.getNextCursor(), 20);
+
+    assertEquals(1, statistics.getPrepareStatementCount());
+    assertEquals(0, statistics.getEntityLoadCount());
+  }
+}
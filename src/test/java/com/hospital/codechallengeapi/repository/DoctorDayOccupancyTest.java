@@ -0,0 +1,125 @@
+package com.hospital.codechallengeapi.repository;
+
+import com.hospital.codechallengeapi.TestContainerStarter;
+import com.hospital.codechallengeapi.repository.DoctorDayOccupancyRepository.DoctorDayOccupancy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Checks that the trigger on the appointment table keeps the daily summary in step. */
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+@Transactional
+public class DoctorDayOccupancyTest {
+
+  private static final LocalDate DAY = LocalDate.parse("2021-04-05");
+
+  @Container
+  private static final PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("12.3"))
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  @DynamicPropertySource
+  static void registerDynamicProperties(DynamicPropertyRegistry registry) {
+    TestContainerStarter.populateRegistryFromContainers(registry, postgres);
+  }
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private DoctorDayOccupancyRepository occupancyRepository;
+
+  private UUID doctorId;
+
+  private UUID patientId;
+
+  @BeforeEach
+  void setUp() {
+    doctorId = UUID.randomUUID();
+    patientId = UUID.randomUUID();
+    String user =
+        "INSERT INTO healthcare.hospital_user (id, username, name, password) VALUES (?, ?, ?, 'x')";
+    jdbcTemplate.update(user, doctorId, "doctor-" + doctorId, "doctor");
+    jdbcTemplate.update(user, patientId, "patient-" + patientId, "patient");
+    jdbcTemplate.update("INSERT INTO healthcare.doctor (id) VALUES (?)", doctorId);
+    jdbcTemplate.update("INSERT INTO healthcare.patient (id) VALUES (?)", patientId);
+  }
+
+  @Test
+  void bookingsAndLeaves_shouldBeAddedToTheirDays() {
+    insert(patientId, DAY.atTime(9, 0), DAY.atTime(10, 0));
+    insert(patientId, DAY.atTime(10, 0), DAY.atTime(11, 0));
+    // A leave from 20:00 to 02:00 the next day is split at midnight.
+    insert(null, DAY.atTime(20, 0), DAY.plusDays(1).atTime(2, 0));
+
+    List<DoctorDayOccupancy> days = find();
+
+    assertEquals(2, days.size());
+    assertEquals(new DoctorDayOccupancy(doctorId, DAY, 2, 120, 240), days.get(0));
+    assertEquals(new DoctorDayOccupancy(doctorId, DAY.plusDays(1), 0, 0, 120), days.get(1));
+  }
+
+  @Test
+  void deletedAppointments_shouldBeRemovedFromTheirDays() {
+    UUID id = insert(patientId, DAY.atTime(9, 0), DAY.atTime(10, 0));
+
+    jdbcTemplate.update("DELETE FROM healthcare.appointment WHERE id = ?", id);
+
+    assertEquals(new DoctorDayOccupancy(doctorId, DAY, 0, 0, 0), find().get(0));
+  }
+
+  @Test
+  void creatingAPartition_shouldNotCountTheMovedRowsAgain() {
+    LocalDate farAway = LocalDate.parse("2031-04-05");
+    insert(patientId, farAway.atTime(9, 0), farAway.atTime(10, 0));
+
+    assertTrue(
+        jdbcTemplate.queryForObject(
+            "SELECT healthcare.create_appointment_partition(?)",
+            Boolean.class,
+            java.sql.Date.valueOf(farAway)));
+
+    List<DoctorDayOccupancy> days =
+        occupancyRepository.find(List.of(doctorId), farAway, farAway.plusDays(1));
+    assertEquals(new DoctorDayOccupancy(doctorId, farAway, 1, 60, 0), days.get(0));
+  }
+
+  private List<DoctorDayOccupancy> find() {
+    List<DoctorDayOccupancy> days = occupancyRepository.find(List.of(doctorId), DAY, DAY.plusDays(7));
+    days.sort((a, b) -> a.getDay().compareTo(b.getDay()));
+    return days;
+  }
+
+  private UUID insert(UUID patient, LocalDateTime start, LocalDateTime end) {
+    UUID id = UUID.randomUUID();
+    jdbcTemplate.update(
+        "INSERT INTO healthcare.appointment (id, doctor_id, patient_id, start_date, end_date) "
+            + "VALUES (?, ?, ?, ?, ?)",
+        id,
+        doctorId,
+        patient,
+        Timestamp.valueOf(start),
+        Timestamp.valueOf(end));
+    return id;
+  }
+}
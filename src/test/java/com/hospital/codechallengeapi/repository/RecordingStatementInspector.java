@@ -0,0 +1,26 @@
+package com.hospital.codechallengeapi.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Remembers every SQL statement Hibernate prepares, so tests can look at the real queries. */
+public class RecordingStatementInspector implements StatementInspector {
+
+  private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+  @Override
+  public String inspect(String sql) {
+    STATEMENTS.add(sql);
+    return sql;
+  }
+
+  public static void clear() {
+    STATEMENTS.clear();
+  }
+
+  public static String last() {
+    return STATEMENTS.get(STATEMENTS.size() - 1);
+  }
+}
@@ -0,0 +1,114 @@
+package com.hospital.codechallengeapi.repository;
+
+import com.hospital.codechallengeapi.TestContainerStarter;
+import com.hospital.codechallengeapi.entity.HospitalUserEntity;
+import com.hospital.codechallengeapi.service.DoctorService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs against two unrelated databases standing in for a primary and its replica, so where a
+ * query went shows in which one the data is found.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+public class ReplicaRoutingTest {
+
+  @Container
+  private static final PostgreSQLContainer<?> primary =
+      new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("12.3"))
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  @Container
+  private static final PostgreSQLContainer<?> replica =
+      new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("12.3"))
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  @DynamicPropertySource
+  static void registerDynamicProperties(DynamicPropertyRegistry registry) {
+    TestContainerStarter.populateRegistryFromContainers(registry, primary);
+    registry.add("replica.datasource.jdbc-url", replica::getJdbcUrl);
+    registry.add("replica.datasource.username", replica::getUsername);
+    registry.add("replica.datasource.password", replica::getPassword);
+    // A real replica gets the schema through replication.
+    Flyway.configure()
+        .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+        .schemas("healthcare")
+        .defaultSchema("healthcare")
+        .load()
+        .migrate();
+  }
+
+  @Autowired private DoctorService doctorService;
+
+  @Autowired private HospitalUserRepository hospitalUserRepository;
+
+  @Test
+  void readOnlyTransactions_shouldReadFromTheReplica() {
+    UUID doctorId = seedAppointment(jdbcTemplate(replica));
+
+    assertEquals(1, doctorService.getAppointments(doctorId, 1, 10).getTotalElements());
+    assertEquals(
+        0,
+        ReplicaRouting.onPrimary(() -> doctorService.getAppointments(doctorId, 1, 10))
+            .getTotalElements());
+  }
+
+  @Test
+  void writes_shouldGoToThePrimary() {
+    hospitalUserRepository.save(
+        HospitalUserEntity.builder().username("written").name("written").password("x").build());
+
+    String count = "SELECT count(*) FROM healthcare.hospital_user WHERE username = 'written'";
+    assertEquals(1, jdbcTemplate(primary).queryForObject(count, Integer.class));
+    assertEquals(0, jdbcTemplate(replica).queryForObject(count, Integer.class));
+  }
+
+  private static UUID seedAppointment(JdbcTemplate jdbcTemplate) {
+    UUID doctorId = UUID.randomUUID();
+    UUID patientId = UUID.randomUUID();
+    String user = "INSERT INTO healthcare.hospital_user (id, username, name, password) VALUES (?, ?, ?, 'x')";
+    jdbcTemplate.update(user, doctorId, "doctor-" + doctorId, "doctor");
+    jdbcTemplate.update(user, patientId, "patient-" + patientId, "patient");
+    jdbcTemplate.update(
+        "INSERT INTO healthcare.doctor (id, specialty) VALUES (?, 'Cardiology')", doctorId);
+    jdbcTemplate.update("INSERT INTO healthcare.patient (id) VALUES (?)", patientId);
+    Instant start = Instant.now().plus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.HOURS);
+    jdbcTemplate.update(
+        "INSERT INTO healthcare.appointment (id, doctor_id, patient_id, start_date, end_date) "
+            + "VALUES (?, ?, ?, ?, ?)",
+        UUID.randomUUID(),
+        doctorId,
+        patientId,
+        Timestamp.from(start),
+        Timestamp.from(start.plus(1, ChronoUnit.HOURS)));
+    return doctorId;
+  }
+
+  private static JdbcTemplate jdbcTemplate(PostgreSQLContainer<?> container) {
+    return new JdbcTemplate(
+        new DriverManagerDataSource(
+            container.getJdbcUrl(), container.getUsername(), container.getPassword()));
+  }
+}
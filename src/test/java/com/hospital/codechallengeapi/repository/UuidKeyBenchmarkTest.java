@@ -0,0 +1,96 @@
+package com.hospital.codechallengeapi.repository;
+
+import com.hospital.codechallengeapi.entity.TimeOrderedUuid;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Inserts the same number of rows keyed by random and by time-ordered UUIDs and compares the
+ * insert time and the size of the primary key index. Run it with {@code mvn test
+ * -Dbenchmark=true -Dtest=UuidKeyBenchmarkTest}.
+ */
+@Testcontainers
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+public class UuidKeyBenchmarkTest {
+
+  private static final int ROWS = 1_000_000;
+  private static final int BATCH_SIZE = 1000;
+
+  @Container
+  private static final PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("12.3"))
+          .withUsername("postgres")
+          .withPassword("postgres")
+          .withCommand("postgres", "-c", "shared_buffers=64MB");
+
+  @Test
+  void timeOrderedKeys_shouldBuildASmallerIndex() {
+    JdbcTemplate jdbcTemplate =
+        new JdbcTemplate(
+            new DriverManagerDataSource(
+                postgres.getJdbcUrl() + "&reWriteBatchedInserts=true",
+                postgres.getUsername(),
+                postgres.getPassword()));
+
+    Result random = run(jdbcTemplate, "random_keys", UUID::randomUUID);
+    Result timeOrdered = run(jdbcTemplate, "time_ordered_keys", TimeOrderedUuid::next);
+
+    log.info("Random UUIDs:       {}", random);
+    log.info("Time-ordered UUIDs: {}", timeOrdered);
+    assertTrue(timeOrdered.indexBytes < random.indexBytes, timeOrdered + " vs " + random);
+  }
+
+  private static Result run(JdbcTemplate jdbcTemplate, String table, Supplier<UUID> ids) {
+    jdbcTemplate.execute(
+        "CREATE TABLE " + table + " (id UUID PRIMARY KEY, created_at TIMESTAMP DEFAULT now())");
+    String insert = "INSERT INTO " + table + " (id) VALUES (?)";
+
+    long start = System.nanoTime();
+    for (int inserted = 0; inserted < ROWS; inserted += BATCH_SIZE) {
+      List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        batch.add(new Object[] {ids.get()});
+      }
+      jdbcTemplate.batchUpdate(insert, batch);
+    }
+    long millis = (System.nanoTime() - start) / 1_000_000;
+
+    Long indexBytes =
+        jdbcTemplate.queryForObject(
+            "SELECT pg_relation_size('" + table + "_pkey')", Long.class);
+    return new Result(millis, indexBytes);
+  }
+
+  private static final class Result {
+
+    private final long millis;
+    private final long indexBytes;
+
+    private Result(long millis, long indexBytes) {
+      this.millis = millis;
+      this.indexBytes = indexBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "%d rows in %d ms (%.0f rows/s), primary key index %d kB",
+          ROWS, millis, ROWS * 1000.0 / Math.max(millis, 1), indexBytes / 1024);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package com.hospital.codechallengeapi.security.jwt;
+
+import com.hospital.codechallengeapi.security.services.UserDetailsServiceImpl;
+import com.hospital.codechallengeapi.security.services.UserPrinciple;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.handler.HandlerMappingIntrospector;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JwtAuthTokenFilterTest {
+
+  private static final String SECRET = "b5baf536-6ed2-4185-817a-3fdd406c8553";
+
+  private final JwtProvider jwtProvider = new JwtProvider(SECRET);
+
+  private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+
+  private static AnnotationConfigWebApplicationContext mvc;
+
+  private final JwtAuthTokenFilter filter =
+      new JwtAuthTokenFilter(
+          jwtProvider,
+          userDetailsService,
+          mvc.getBean(HandlerMappingIntrospector.class),
+          new String[] {"/v*/doctors/appointments/bulk"});
+
+  private final UserPrinciple admin =
+      new UserPrinciple(
+          UUID.randomUUID(),
+          "Admin",
+          "admin",
+          "password",
+          AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+
+  @BeforeAll
+  public static void startMvc() {
+    mvc = new AnnotationConfigWebApplicationContext();
+    mvc.setServletContext(new MockServletContext());
+    mvc.register(BulkController.class);
+    mvc.refresh();
+  }
+
+  @AfterAll
+  public static void stopMvc() {
+    mvc.close();
+  }
+
+  @BeforeEach
+  @AfterEach
+  public void clearContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void requests_shouldBeAuthenticatedFromTheClaimsAlone() throws Exception {
+    Authentication authentication = filter(request("/v1/doctors", token(admin)));
+
+    UserPrinciple principal = (UserPrinciple) authentication.getPrincipal();
+    assertEquals(admin.getId(), principal.getId());
+    assertEquals("Admin", principal.getName());
+    assertEquals("admin", principal.getUsername());
+    assertNull(principal.getPassword());
+    assertEquals(
+        AuthorityUtils.createAuthorityList("ROLE_ADMIN"),
+        List.copyOf(authentication.getAuthorities()));
+    verify(userDetailsService, never()).loadUserByUsername(any());
+  }
+
+  @Test
+  public void recheckPaths_shouldLoadTheUser() throws Exception {
+    UserPrinciple demoted =
+        new UserPrinciple(
+            admin.getId(),
+            "Admin",
+            "admin",
+            "password",
+            AuthorityUtils.createAuthorityList("ROLE_PATIENT"));
+    when(userDetailsService.loadUserByUsername("admin")).thenReturn(demoted);
+
+    Authentication authentication =
+        filter(request("/v1/doctors/appointments/bulk", token(admin)));
+
+    assertEquals(
+        AuthorityUtils.createAuthorityList("ROLE_PATIENT"),
+        List.copyOf(authentication.getAuthorities()));
+  }
+
+  @Test
+  public void recheckPaths_shouldMatchEveryPathTheDispatcherRoutesToTheHandler() throws Exception {
+    UserPrinciple demoted =
+        new UserPrinciple(
+            admin.getId(),
+            "Admin",
+            "admin",
+            "password",
+            AuthorityUtils.createAuthorityList("ROLE_PATIENT"));
+    when(userDetailsService.loadUserByUsername("admin")).thenReturn(demoted);
+
+    Authentication authentication =
+        filter(request("/v1/doctors/appointments/bulk/", token(admin)));
+
+    assertEquals(
+        AuthorityUtils.createAuthorityList("ROLE_PATIENT"),
+        List.copyOf(authentication.getAuthorities()));
+  }
+
+  @Test
+  public void recheckPaths_shouldRejectTokensOfAReplacedUser() throws Exception {
+    UserPrinciple replaced =
+        new UserPrinciple(
+            UUID.randomUUID(),
+            "Admin",
+            "admin",
+            "password",
+            AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+    when(userDetailsService.loadUserByUsername("admin")).thenReturn(replaced);
+
+    assertNull(filter(request("/v1/doctors/appointments/bulk", token(admin))));
+  }
+
+  @Test
+  public void tokensWithoutClaims_shouldLoadTheUser() throws Exception {
+    when(userDetailsService.loadUserByUsername("admin")).thenReturn(admin);
+    String legacy =
+        "Bearer "
+            + Jwts.builder()
+                .claim("sub", "admin")
+                .setExpiration(Date.from(Instant.now().plus(30, ChronoUnit.MINUTES)))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS256)
+                .compact();
+
+    Authentication authentication = filter(request("/v1/doctors", legacy));
+
+    assertSame(admin, authentication.getPrincipal());
+  }
+
+  @Test
+  public void invalidTokens_shouldNotAuthenticate() throws Exception {
+    String forged =
+        new JwtProvider("another-secret-of-at-least-thirty-two-bytes")
+            .generateJwtToken(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+
+    assertNull(filter(request("/v1/doctors", forged)));
+  }
+
+  private Authentication filter(MockHttpServletRequest request) throws Exception {
+    filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    return SecurityContextHolder.getContext().getAuthentication();
+  }
+
+  private String token(UserPrinciple principal) {
+    return jwtProvider.generateJwtToken(
+        new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+  }
+
+  private static MockHttpServletRequest request(String path, String token) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+    request.setServletPath(path);
+    request.addHeader("Authorization", token);
+    return request;
+  }
+
+  /** Stands in for the real mappings, with Spring MVC's default path matching. */
+  @Configuration
+  @EnableWebMvc
+  static class BulkController {
+
+    @RestController
+    static class Endpoint {
+
+      @RequestMapping("/v1/doctors/appointments/bulk")
+      public void bulk() {}
+    }
+  }
+}
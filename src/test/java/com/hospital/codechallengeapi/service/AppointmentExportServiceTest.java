@@ -0,0 +1,125 @@
+package com.hospital.codechallengeapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.response.AppointmentExportRow;
+import com.hospital.codechallengeapi.repository.AppointmentExportReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class AppointmentExportServiceTest {
+
+  private static final Instant FROM = Instant.parse("2021-04-01T00:00:00Z");
+  private static final Instant TO = Instant.parse("2021-05-01T00:00:00Z");
+
+  private final AppointmentExportReader appointmentExportReader =
+      mock(AppointmentExportReader.class);
+
+  private final AppointmentExportService appointmentExportService =
+      new AppointmentExportService(
+          appointmentExportReader,
+          new ObjectMapper()
+              .registerModule(new JavaTimeModule())
+              .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS));
+
+  private final UUID doctorId = UUID.randomUUID();
+  private final UUID patientId = UUID.randomUUID();
+
+  @Test
+  public void export_shouldWriteOneJsonObjectPerLine() throws IOException {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    stream(row(first, "Checkup"), row(second, null));
+
+    String[] lines = export(AppointmentExportFormat.NDJSON).split("\n");
+
+    assertEquals(2, lines.length);
+    assertTrue(lines[0].startsWith("{\"id\":\"" + first + "\""));
+    assertTrue(lines[0].contains("\"start_date\":\"2021-04-01T09:00:00Z\""));
+    assertTrue(lines[0].contains("\"reason\":\"Checkup\""));
+    assertTrue(lines[1].startsWith("{\"id\":\"" + second + "\""));
+  }
+
+  @Test
+  public void export_shouldWriteCsvWithAHeaderAndQuotedFields() throws IOException {
+    UUID id = UUID.randomUUID();
+    stream(row(id, "Pain, \"sharp\""));
+
+    String[] lines = export(AppointmentExportFormat.CSV).split("\n");
+
+    assertEquals(2, lines.length);
+    assertEquals(AppointmentExportService.CSV_HEADER, lines[0]);
+    assertEquals(
+        id
+            + ","
+            + doctorId
+            + ",doctor,Cardiology,"
+            + patientId
+            + ",patient,2021-04-01T09:00:00Z,2021-04-01T10:00:00Z,\"Pain, \"\"sharp\"\"\"",
+        lines[1]);
+  }
+
+  @Test
+  public void export_shouldRejectAnEmptyRange() {
+    assertThrows(
+        InvalidRequestException.class,
+        () ->
+            appointmentExportService.export(
+                TO, FROM, AppointmentExportFormat.CSV, new ByteArrayOutputStream()));
+  }
+
+  @Test
+  public void of_shouldRejectUnknownFormats() {
+    assertEquals(AppointmentExportFormat.CSV, AppointmentExportFormat.of("csv"));
+    assertThrows(InvalidRequestException.class, () -> AppointmentExportFormat.of("xml"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void stream(AppointmentExportRow... rows) {
+    doAnswer(
+            invocation -> {
+              Consumer<AppointmentExportRow> consumer = invocation.getArgument(2);
+              for (AppointmentExportRow row : rows) {
+                consumer.accept(row);
+              }
+              return null;
+            })
+        .when(appointmentExportReader)
+        .forEach(eq(FROM), eq(TO), any(Consumer.class));
+  }
+
+  private String export(AppointmentExportFormat format) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    appointmentExportService.export(FROM, TO, format, outputStream);
+    return outputStream.toString(StandardCharsets.UTF_8);
+  }
+
+  private AppointmentExportRow row(UUID id, String reason) {
+    Instant start = Instant.parse("2021-04-01T09:00:00Z");
+    return new AppointmentExportRow(
+        id,
+        doctorId,
+        "doctor",
+        "Cardiology",
+        patientId,
+        "patient",
+        start,
+        start.plus(1, ChronoUnit.HOURS),
+        reason);
+  }
+}
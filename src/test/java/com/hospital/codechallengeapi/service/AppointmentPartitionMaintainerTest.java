@@ -0,0 +1,47 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.repository.AppointmentPartitionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AppointmentPartitionMaintainerTest {
+
+  private final AppointmentPartitionRepository partitionRepository =
+      mock(AppointmentPartitionRepository.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-15T09:00:00Z"), ZoneId.of("UTC"));
+
+  @Test
+  public void maintain_shouldCreateTheComingMonthsAndDetachTheExpiredOnes() {
+    when(partitionRepository.detachPartitionsBefore(any(YearMonth.class)))
+        .thenReturn(Collections.singletonList("appointment_2019_03"));
+
+    new AppointmentPartitionMaintainer(partitionRepository, clock, 2, 24).maintain();
+
+    verify(partitionRepository).createPartition(YearMonth.of(2021, 4));
+    verify(partitionRepository).createPartition(YearMonth.of(2021, 5));
+    verify(partitionRepository).createPartition(YearMonth.of(2021, 6));
+    verify(partitionRepository, times(3)).createPartition(any(YearMonth.class));
+    verify(partitionRepository).detachPartitionsBefore(YearMonth.of(2019, 4));
+  }
+
+  @Test
+  public void maintain_shouldKeepEveryMonthWithoutARetention() {
+    new AppointmentPartitionMaintainer(partitionRepository, clock, 0, 0).maintain();
+
+    verify(partitionRepository).createPartition(YearMonth.of(2021, 4));
+    verify(partitionRepository, never()).detachPartitionsBefore(any(YearMonth.class));
+  }
+}
@@ -0,0 +1,154 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.response.AvailabilitySearchResponse;
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
+import com.hospital.codechallengeapi.model.response.DoctorTimeSlot;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class AvailabilitySearchServiceTest {
+
+  private final VersionRegistry versionRegistry = new VersionRegistry();
+
+  private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+
+  private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final DoctorCalendarCache calendarCache =
+      new DoctorCalendarCache(
+          appointmentRepository,
+          clock,
+          new SimpleMeterRegistry(),
+          192,
+          100,
+          Duration.ofMinutes(30),
+          Duration.ofMinutes(5));
+
+  private final WorkingHoursService workingHoursService =
+      new WorkingHoursService(
+          doctorRepository,
+          mock(DoctorWorkingHoursRepository.class),
+          versionRegistry,
+          clock,
+          "UTC",
+          9,
+          20,
+          DayOfWeek.values(),
+          10000,
+          Duration.ofMinutes(5));
+
+  private final SlotHoldService slotHoldService =
+      new SlotHoldService(
+          calendarCache, workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+
+  private final AvailabilitySearchService availabilitySearchService =
+      new AvailabilitySearchService(
+          doctorRepository,
+          calendarCache,
+          workingHoursService,
+          slotHoldService,
+          clock,
+          2,
+          4,
+          Duration.ofDays(14));
+
+  @AfterEach
+  public void tearDown() {
+    availabilitySearchService.destroy();
+  }
+
+  @Test
+  public void search_shouldReturnTheEarliestSlotsAcrossDoctors() {
+    Instant now = clock.instant();
+
+    List<DoctorResponse> doctors = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      doctors.add(new DoctorResponse(UUID.randomUUID(), "doctor" + i, "Cardiology"));
+    }
+    when(doctorRepository.findDoctorsBySpecialty(eq("Cardiology"))).thenReturn(doctors);
+
+    when(appointmentRepository
+            .findOverlapping(
+                any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(
+            List.of(
+                AppointmentEntity.builder()
+                    .startDate(now)
+                    .endDate(now.plus(2, ChronoUnit.HOURS))
+                    .build()));
+    when(appointmentRepository
+            .findOverlapping(
+                eq(doctors.get(13).getId()),
+                any(Instant.class),
+                any(Instant.class),
+                any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+
+    AvailabilitySearchResponse response =
+        availabilitySearchService.search("Cardiology", now, now.plus(1, ChronoUnit.DAYS), 5);
+
+    List<DoctorTimeSlot> slots = response.getAvailableTimeSlots();
+    assertEquals(5, slots.size());
+    assertEquals(doctors.get(13).getId(), slots.get(0).getDoctorId());
+    assertEquals(now, slots.get(0).getStartDate());
+    assertEquals(now.plus(1, ChronoUnit.HOURS), slots.get(1).getStartDate());
+    for (int i = 2; i < slots.size(); i++) {
+      assertEquals(now.plus(2, ChronoUnit.HOURS), slots.get(i).getStartDate());
+    }
+    assertEquals("doctor0", slots.get(2).getDoctorName());
+  }
+
+  @Test
+  public void search_shouldSkipHeldSlots() {
+    Instant now = clock.instant();
+    DoctorResponse doctor = new DoctorResponse(UUID.randomUUID(), "doctor", "Cardiology");
+    when(doctorRepository.findDoctorsBySpecialty(eq("Cardiology"))).thenReturn(List.of(doctor));
+    when(appointmentRepository
+            .findOverlapping(
+                any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+    slotHoldService.hold(doctor.getId(), UUID.randomUUID(), now);
+
+    List<DoctorTimeSlot> slots =
+        availabilitySearchService
+            .search("Cardiology", now, now.plus(1, ChronoUnit.DAYS), 2)
+            .getAvailableTimeSlots();
+
+    assertEquals(now.plus(1, ChronoUnit.HOURS), slots.get(0).getStartDate());
+    assertEquals(now.plus(2, ChronoUnit.HOURS), slots.get(1).getStartDate());
+  }
+
+  @Test
+  public void search_shouldRejectWindowsThatAreTooLong() {
+    Instant now = clock.instant();
+
+    assertThrows(
+        InvalidRequestException.class,
+        () -> availabilitySearchService.search("Cardiology", now, now.plus(15, ChronoUnit.DAYS), 5));
+  }
+}
@@ -0,0 +1,339 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.entity.DoctorEntity;
+import com.hospital.codechallengeapi.entity.PatientEntity;
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.exception.BookingRejectedException;
+import com.hospital.codechallengeapi.model.response.IdResponse;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BookingExecutorTest {
+
+  private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+
+  private final AppointmentBatchWriter appointmentBatchWriter = mock(AppointmentBatchWriter.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final DoctorCalendarCache calendarCache =
+      new DoctorCalendarCache(
+          appointmentRepository,
+          clock,
+          new SimpleMeterRegistry(),
+          192,
+          100,
+          Duration.ofMinutes(30),
+          Duration.ofMinutes(5));
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final BookingExecutor bookingExecutor =
+      new BookingExecutor(
+          appointmentBatchWriter,
+          calendarCache,
+          meterRegistry,
+          4,
+          1000,
+          Duration.ofSeconds(5),
+          Duration.ofMillis(20),
+          32);
+
+  @AfterEach
+  public void tearDown() {
+    bookingExecutor.destroy();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void book_shouldLetOnlyOneOfManyConcurrentBookingsOfAnHourThrough() throws Exception {
+    UUID doctorId = UUID.randomUUID();
+    Instant start = clock.instant().plus(1, ChronoUnit.HOURS);
+
+    ExecutorService patients = Executors.newFixedThreadPool(16);
+    try {
+      List<Callable<Boolean>> attempts = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        attempts.add(
+            () -> {
+              try {
+                bookingExecutor.book(appointment(doctorId, start));
+                return true;
+              } catch (AppointmentCreationException e) {
+                return false;
+              }
+            });
+      }
+      int booked = 0;
+      for (Future<Boolean> attempt : patients.invokeAll(attempts)) {
+        booked += attempt.get() ? 1 : 0;
+      }
+      assertEquals(1, booked);
+    } finally {
+      patients.shutdownNow();
+    }
+    ArgumentCaptor<List<AppointmentEntity>> inserted = ArgumentCaptor.forClass(List.class);
+    verify(appointmentBatchWriter, atLeastOnce()).insertAll(inserted.capture());
+    assertEquals(1, inserted.getAllValues().stream().mapToInt(List::size).sum());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void book_shouldGroupCommitConcurrentBookingsAndAnswerEachCaller() throws Exception {
+    UUID doctorId = UUID.randomUUID();
+    Instant start = clock.instant();
+
+    ExecutorService patients = Executors.newFixedThreadPool(10);
+    List<Future<IdResponse>> results = new ArrayList<>();
+    List<AppointmentEntity> appointments = new ArrayList<>();
+    try {
+      for (int i = 0; i < 10; i++) {
+        AppointmentEntity appointment = appointment(doctorId, start.plus(i, ChronoUnit.HOURS));
+        appointments.add(appointment);
+        results.add(patients.submit(() -> bookingExecutor.book(appointment)));
+      }
+      for (int i = 0; i < 10; i++) {
+        assertEquals(appointments.get(i).getId(), results.get(i).get().getId());
+      }
+    } finally {
+      patients.shutdownNow();
+    }
+
+    ArgumentCaptor<List<AppointmentEntity>> inserted = ArgumentCaptor.forClass(List.class);
+    verify(appointmentBatchWriter, atLeastOnce()).insertAll(inserted.capture());
+    assertTrue(inserted.getAllValues().size() < 10);
+    assertEquals(10, (long) meterRegistry.get("booking.batch.size").summary().totalAmount());
+    assertEquals(10, meterRegistry.get("booking.queue.wait").timer().count());
+  }
+
+  @Test
+  public void book_shouldFailOnlyTheConflictingBookingOfAGroup() {
+    UUID doctorId = UUID.randomUUID();
+    Instant start = clock.instant();
+    AppointmentEntity clashing = appointment(doctorId, start);
+    AppointmentEntity fine = appointment(doctorId, start.plus(1, ChronoUnit.HOURS));
+
+    DataIntegrityViolationException violation =
+        new DataIntegrityViolationException(
+            "exclusion", new SQLException("exclusion", "23P01"));
+    doThrow(violation).when(appointmentBatchWriter).insertAll(anyList());
+    doThrow(violation).when(appointmentBatchWriter).insert(clashing);
+
+    assertThrows(AppointmentCreationException.class, () -> bookingExecutor.book(clashing));
+    assertEquals(fine.getId(), bookingExecutor.book(fine).getId());
+    verify(appointmentBatchWriter, times(1)).insert(fine);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void book_shouldFailOnlyTheBookingWhoseCalendarCannotBeLoaded() throws Exception {
+    BookingExecutor groupExecutor = executor(Duration.ofSeconds(5), Duration.ofMillis(200));
+    try {
+      UUID brokenDoctor = UUID.randomUUID();
+      Instant start = clock.instant();
+      AppointmentEntity broken = appointment(brokenDoctor, start);
+      List<AppointmentEntity> others = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        others.add(appointment(UUID.randomUUID(), start));
+      }
+      when(appointmentRepository.findOverlapping(eq(brokenDoctor), any(), any(), any()))
+          .thenThrow(new IllegalStateException("connection refused"));
+
+      ExecutorService patients = Executors.newFixedThreadPool(4);
+      try {
+        Future<IdResponse> brokenResult = patients.submit(() -> groupExecutor.book(broken));
+        List<Future<IdResponse>> otherResults = new ArrayList<>();
+        for (AppointmentEntity other : others) {
+          otherResults.add(patients.submit(() -> groupExecutor.book(other)));
+        }
+
+        ExecutionException failed = assertThrows(ExecutionException.class, brokenResult::get);
+        assertTrue(failed.getCause() instanceof IllegalStateException);
+        for (int i = 0; i < others.size(); i++) {
+          assertEquals(others.get(i).getId(), otherResults.get(i).get().getId());
+        }
+      } finally {
+        patients.shutdownNow();
+      }
+      ArgumentCaptor<List<AppointmentEntity>> inserted = ArgumentCaptor.forClass(List.class);
+      verify(appointmentBatchWriter, atLeastOnce()).insertAll(inserted.capture());
+      assertTrue(
+          inserted.getAllValues().stream()
+              .flatMap(List::stream)
+              .noneMatch(appointment -> appointment == broken));
+    } finally {
+      groupExecutor.destroy();
+    }
+  }
+
+  @Test
+  public void book_shouldReportWhichForeignKeyWasViolated() {
+    UUID doctorId = UUID.randomUUID();
+    AppointmentEntity appointment = appointment(doctorId, clock.instant());
+    appointment.setPatient(PatientEntity.builder().id(UUID.randomUUID()).build());
+    doThrow(foreignKeyViolation("appointment_2021_04_patient_id_fkey"))
+        .when(appointmentBatchWriter)
+        .insertAll(anyList());
+    doThrow(foreignKeyViolation("appointment_2021_04_patient_id_fkey"))
+        .when(appointmentBatchWriter)
+        .insert(appointment);
+
+    AppointmentCreationException e =
+        assertThrows(AppointmentCreationException.class, () -> bookingExecutor.book(appointment));
+    assertEquals(
+        "Patient with id " + appointment.getPatient().getId() + " does not exist",
+        e.getMessage());
+  }
+
+  @Test
+  public void book_shouldWaitForAClaimedBookingPastTheTimeout() throws Exception {
+    BookingExecutor slowExecutor = executor(Duration.ofMillis(100), Duration.ZERO);
+    try {
+      UUID doctorId = UUID.randomUUID();
+      AppointmentEntity first = appointment(doctorId, clock.instant());
+      AppointmentEntity queued = appointment(doctorId, clock.instant().plus(1, ChronoUnit.HOURS));
+      doAnswer(
+              invocation -> {
+                Thread.sleep(500);
+                return null;
+              })
+          .when(appointmentBatchWriter)
+          .insertAll(List.of(first));
+
+      ExecutorService patients = Executors.newFixedThreadPool(2);
+      try {
+        Future<IdResponse> firstResult = patients.submit(() -> slowExecutor.book(first));
+        Thread.sleep(50);
+        Future<IdResponse> queuedResult = patients.submit(() -> slowExecutor.book(queued));
+
+        // The first booking was claimed before the timeout, so its caller gets the id of the row
+        // that was committed; the one queued behind it was never claimed and is not inserted.
+        assertEquals(first.getId(), firstResult.get().getId());
+        ExecutionException rejected = assertThrows(ExecutionException.class, queuedResult::get);
+        assertTrue(rejected.getCause() instanceof BookingRejectedException);
+      } finally {
+        patients.shutdownNow();
+      }
+      Thread.sleep(100);
+      verify(appointmentBatchWriter, never()).insertAll(List.of(queued));
+    } finally {
+      slowExecutor.destroy();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void book_shouldAnswerEveryMemberOfASlowGroupCommit() throws Exception {
+    BookingExecutor slowExecutor = executor(Duration.ofMillis(100), Duration.ofMillis(50));
+    try {
+      UUID doctorId = UUID.randomUUID();
+      doAnswer(
+              invocation -> {
+                Thread.sleep(500);
+                return null;
+              })
+          .when(appointmentBatchWriter)
+          .insertAll(anyList());
+
+      ExecutorService patients = Executors.newFixedThreadPool(5);
+      List<AppointmentEntity> appointments = new ArrayList<>();
+      List<Future<IdResponse>> results = new ArrayList<>();
+      try {
+        for (int i = 0; i < 5; i++) {
+          AppointmentEntity appointment =
+              appointment(doctorId, clock.instant().plus(i, ChronoUnit.HOURS));
+          appointments.add(appointment);
+          results.add(patients.submit(() -> slowExecutor.book(appointment)));
+        }
+        // Each caller gets either the id of its committed row or a rejection of a booking that
+        // was never written; nobody is told a stored booking failed.
+        List<UUID> booked = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+          try {
+            booked.add(results.get(i).get().getId());
+          } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof BookingRejectedException);
+          }
+        }
+        assertFalse(booked.isEmpty());
+
+        ArgumentCaptor<List<AppointmentEntity>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(appointmentBatchWriter, atLeastOnce()).insertAll(inserted.capture());
+        List<UUID> insertedIds = new ArrayList<>();
+        inserted.getAllValues().forEach(
+            group -> group.forEach(appointment -> insertedIds.add(appointment.getId())));
+        assertEquals(new HashSet<>(insertedIds), new HashSet<>(booked));
+      } finally {
+        patients.shutdownNow();
+      }
+    } finally {
+      slowExecutor.destroy();
+    }
+  }
+
+  private static DataIntegrityViolationException foreignKeyViolation(String constraint) {
+    return new DataIntegrityViolationException(
+        "foreign key",
+        new PSQLException(
+            new ServerErrorMessage(
+                "SERROR\0C23503\0Mforeign key violation\0n" + constraint + "\0")));
+  }
+
+  private BookingExecutor executor(Duration timeout, Duration batchWindow) {
+    return new BookingExecutor(
+        appointmentBatchWriter,
+        calendarCache,
+        new SimpleMeterRegistry(),
+        1,
+        1000,
+        timeout,
+        batchWindow,
+        32);
+  }
+
+  private AppointmentEntity appointment(UUID doctorId, Instant start) {
+    return AppointmentEntity.builder()
+        .id(UUID.randomUUID())
+        .doctor(DoctorEntity.builder().id(doctorId).build())
+        .startDate(start)
+        .endDate(start.plus(1, ChronoUnit.HOURS))
+        .build();
+  }
+}
@@ -0,0 +1,135 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.TestContainerStarter;
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.entity.DoctorEntity;
+import com.hospital.codechallengeapi.entity.PatientEntity;
+import com.hospital.codechallengeapi.entity.TimeOrderedUuid;
+import com.hospital.codechallengeapi.model.request.BulkAppointmentRequest;
+import com.hospital.codechallengeapi.model.response.BulkAppointmentResult;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Books the same number of appointments one insert at a time, as single bookings do, and through
+ * {@link BulkBookingService}, and compares the time taken. Run it with {@code mvn test
+ * -Dbenchmark=true -Dtest=BulkBookingBenchmarkTest}.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+public class BulkBookingBenchmarkTest {
+
+  private static final int DOCTORS = 10;
+  private static final int PER_DOCTOR = 100;
+
+  @Container
+  private static final PostgreSQLContainer<?> postgres =
+      new PostgreSQLContainer<>(DockerImageName.parse("postgres").withTag("12.3"))
+          .withUsername("postgres")
+          .withPassword("postgres");
+
+  @DynamicPropertySource
+  static void registerDynamicProperties(DynamicPropertyRegistry registry) {
+    TestContainerStarter.populateRegistryFromContainers(registry, postgres);
+  }
+
+  @Autowired private JdbcTemplate jdbcTemplate;
+
+  @Autowired private AppointmentBatchWriter appointmentBatchWriter;
+
+  @Autowired private BulkBookingService bulkBookingService;
+
+  @Test
+  void bulkBooking_shouldBeFasterThanSingleInserts() {
+    UUID patientId = user("patient");
+    List<BulkAppointmentRequest.Item> single = items(patientId);
+    List<BulkAppointmentRequest.Item> bulk = items(patientId);
+
+    long start = System.nanoTime();
+    for (BulkAppointmentRequest.Item item : single) {
+      appointmentBatchWriter.insert(
+          AppointmentEntity.builder()
+              .id(TimeOrderedUuid.next())
+              .doctor(DoctorEntity.builder().id(item.getDoctorId()).build())
+              .patient(PatientEntity.builder().id(patientId).build())
+              .startDate(item.getAppointmentDate())
+              .endDate(item.getAppointmentDate().plus(1, ChronoUnit.HOURS))
+              .build());
+    }
+    long singleMillis = (System.nanoTime() - start) / 1_000_000;
+
+    start = System.nanoTime();
+    List<BulkAppointmentResult> results =
+        bulkBookingService.createAppointments(new BulkAppointmentRequest(bulk)).getResults();
+    long bulkMillis = (System.nanoTime() - start) / 1_000_000;
+
+    assertEquals(
+        bulk.size(),
+        results.stream()
+            .filter(result -> result.getStatus() == BulkAppointmentResult.Status.CREATED)
+            .count());
+    log.info("Single inserts: {}", describe(singleMillis));
+    log.info("Bulk booking:   {}", describe(bulkMillis));
+    assertTrue(bulkMillis < singleMillis, bulkMillis + " ms vs " + singleMillis + " ms");
+  }
+
+  /** {@link #PER_DOCTOR} working hours (9:00 to 20:00 UTC) of {@link #DOCTORS} new doctors. */
+  private List<BulkAppointmentRequest.Item> items(UUID patientId) {
+    Instant tomorrow = Instant.now().truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS);
+    List<BulkAppointmentRequest.Item> items = new ArrayList<>();
+    for (int doctor = 0; doctor < DOCTORS; doctor++) {
+      UUID doctorId = user("doctor");
+      for (int slot = 0; slot < PER_DOCTOR; slot++) {
+        items.add(
+            BulkAppointmentRequest.Item.builder()
+                .doctorId(doctorId)
+                .patientId(patientId)
+                .appointmentDate(
+                    tomorrow.plus(slot / 11, ChronoUnit.DAYS).plus(9 + slot % 11, ChronoUnit.HOURS))
+                .build());
+      }
+    }
+    return items;
+  }
+
+  private UUID user(String role) {
+    UUID id = UUID.randomUUID();
+    jdbcTemplate.update(
+        "INSERT INTO healthcare.hospital_user (id, username, name, password) VALUES (?, ?, ?, 'x')",
+        id,
+        role + "-" + id,
+        role);
+    jdbcTemplate.update("INSERT INTO healthcare." + role + " (id) VALUES (?)", id);
+    return id;
+  }
+
+  private static String describe(long millis) {
+    int rows = DOCTORS * PER_DOCTOR;
+    return String.format(
+        "%d appointments in %d ms (%.0f/s)", rows, millis, rows * 1000.0 / Math.max(millis, 1));
+  }
+}
@@ -0,0 +1,251 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.model.request.BulkAppointmentRequest;
+import com.hospital.codechallengeapi.model.response.BulkAppointmentResponse;
+import com.hospital.codechallengeapi.model.response.BulkAppointmentResult;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import com.hospital.codechallengeapi.repository.PatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.ServerErrorMessage;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class BulkBookingServiceTest {
+
+  private final VersionRegistry versionRegistry = new VersionRegistry();
+
+  private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+
+  private final PatientRepository patientRepository = mock(PatientRepository.class);
+
+  private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+
+  private final AppointmentBatchWriter appointmentBatchWriter = mock(AppointmentBatchWriter.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final DoctorCalendarCache calendarCache =
+      new DoctorCalendarCache(
+          appointmentRepository,
+          clock,
+          new SimpleMeterRegistry(),
+          192,
+          100,
+          Duration.ofMinutes(30),
+          Duration.ofMinutes(5));
+
+  private final WorkingHoursService workingHoursService =
+      new WorkingHoursService(
+          doctorRepository,
+          mock(DoctorWorkingHoursRepository.class),
+          versionRegistry,
+          clock,
+          "UTC",
+          9,
+          20,
+          DayOfWeek.values(),
+          10000,
+          Duration.ofMinutes(5));
+
+  private final SlotHoldService slotHoldService =
+      new SlotHoldService(
+          calendarCache, workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+
+  private final BulkBookingService bulkBookingService =
+      new BulkBookingService(
+          doctorRepository,
+          patientRepository,
+          appointmentRepository,
+          appointmentBatchWriter,
+          calendarCache,
+          workingHoursService,
+          slotHoldService,
+          versionRegistry,
+          clock,
+          Duration.ofDays(365));
+
+  @Test
+  public void createAppointments_shouldRespectTheHoldsOfOtherPatients() {
+    UUID doctorId = UUID.randomUUID();
+    UUID patientId = UUID.randomUUID();
+    UUID holder = UUID.randomUUID();
+    Instant now = clock.instant();
+    Instant ownHold = now.plus(1, ChronoUnit.HOURS);
+
+    when(doctorRepository.findExistingIds(anyCollection())).thenReturn(List.of(doctorId));
+    when(patientRepository.findExistingIds(anyCollection()))
+        .thenReturn(List.of(patientId, holder));
+    slotHoldService.hold(doctorId, holder, now);
+    slotHoldService.hold(doctorId, patientId, ownHold);
+
+    List<BulkAppointmentResult> results =
+        bulkBookingService
+            .createAppointments(
+                new BulkAppointmentRequest(
+                    List.of(item(doctorId, patientId, now), item(doctorId, patientId, ownHold))))
+            .getResults();
+
+    assertEquals(BulkAppointmentResult.Status.CONFLICT, results.get(0).getStatus());
+    assertEquals(BulkAppointmentResult.Status.CREATED, results.get(1).getStatus());
+    assertTrue(slotHoldService.isHeld(doctorId, now));
+    assertFalse(slotHoldService.isHeld(doctorId, ownHold));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void createAppointments_shouldReportEveryItemAndBatchTheInserts() {
+    UUID doctorId = UUID.randomUUID();
+    UUID patientId = UUID.randomUUID();
+    Instant now = clock.instant();
+    Instant booked = now.plus(1, ChronoUnit.HOURS);
+
+    when(doctorRepository.findExistingIds(anyCollection())).thenReturn(List.of(doctorId));
+    when(patientRepository.findExistingIds(anyCollection())).thenReturn(List.of(patientId));
+    when(appointmentRepository
+            .findOverlapping(
+                eq(doctorId),
+                eq(now.minus(AppointmentRepository.MAX_SPAN)),
+                eq(now),
+                eq(now.plus(3, ChronoUnit.HOURS))))
+        .thenReturn(
+            List.of(
+                AppointmentEntity.builder()
+                    .startDate(booked)
+                    .endDate(booked.plus(1, ChronoUnit.HOURS))
+                    .build()));
+
+    BulkAppointmentRequest request =
+        new BulkAppointmentRequest(
+            List.of(
+                item(doctorId, patientId, now),
+                item(doctorId, patientId, booked),
+                item(doctorId, patientId, now.plus(2, ChronoUnit.HOURS)),
+                item(doctorId, patientId, now),
+                item(UUID.randomUUID(), patientId, now),
+                item(doctorId, patientId, Instant.parse("2021-04-01T22:00:00Z"))));
+
+    BulkAppointmentResponse response = bulkBookingService.createAppointments(request);
+
+    List<BulkAppointmentResult> results = response.getResults();
+    assertEquals(BulkAppointmentResult.Status.CREATED, results.get(0).getStatus());
+    assertNotNull(results.get(0).getId());
+    assertEquals(BulkAppointmentResult.Status.CONFLICT, results.get(1).getStatus());
+    assertEquals(BulkAppointmentResult.Status.CREATED, results.get(2).getStatus());
+    assertEquals(BulkAppointmentResult.Status.CONFLICT, results.get(3).getStatus());
+    assertEquals(BulkAppointmentResult.Status.INVALID, results.get(4).getStatus());
+    assertEquals(BulkAppointmentResult.Status.INVALID, results.get(5).getStatus());
+
+    ArgumentCaptor<List<AppointmentEntity>> inserted = ArgumentCaptor.forClass(List.class);
+    verify(appointmentBatchWriter, times(1)).insertAll(inserted.capture());
+    assertEquals(2, inserted.getValue().size());
+    assertEquals(results.get(0).getId(), inserted.getValue().get(0).getId());
+    verify(appointmentRepository, times(1))
+        .findOverlapping(
+            any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class));
+  }
+
+  @Test
+  public void createAppointments_shouldTranslateTheViolationsOfSingleInserts() {
+    UUID doctorId = UUID.randomUUID();
+    UUID patientId = UUID.randomUUID();
+    Instant now = clock.instant();
+    Instant deletedPatient = now.plus(1, ChronoUnit.HOURS);
+
+    when(doctorRepository.findExistingIds(anyCollection())).thenReturn(List.of(doctorId));
+    when(patientRepository.findExistingIds(anyCollection())).thenReturn(List.of(patientId));
+    doAnswer(
+            invocation -> {
+              List<AppointmentEntity> batch = invocation.getArgument(0);
+              if (batch.size() > 1 || batch.get(0).getStartDate().equals(now)) {
+                throw new DataIntegrityViolationException(
+                    "exclusion", new SQLException("exclusion", "23P01"));
+              }
+              if (batch.get(0).getStartDate().equals(deletedPatient)) {
+                throw new DataIntegrityViolationException(
+                    "foreign key",
+                    new PSQLException(
+                        new ServerErrorMessage(
+                            "SERROR\0C23503\0Mforeign key violation\0"
+                                + "nappointment_2021_04_patient_id_fkey\0")));
+              }
+              return null;
+            })
+        .when(appointmentBatchWriter)
+        .insertAll(anyList());
+
+    List<BulkAppointmentResult> results =
+        bulkBookingService
+            .createAppointments(
+                new BulkAppointmentRequest(
+                    List.of(
+                        item(doctorId, patientId, now),
+                        item(doctorId, patientId, deletedPatient),
+                        item(doctorId, patientId, now.plus(2, ChronoUnit.HOURS)))))
+            .getResults();
+
+    assertEquals(BulkAppointmentResult.Status.CONFLICT, results.get(0).getStatus());
+    assertEquals("The selected date is already booked", results.get(0).getMessage());
+    assertEquals(BulkAppointmentResult.Status.INVALID, results.get(1).getStatus());
+    assertEquals("Patient with id " + patientId + " does not exist", results.get(1).getMessage());
+    assertEquals(BulkAppointmentResult.Status.CREATED, results.get(2).getStatus());
+  }
+
+  @Test
+  public void createAppointments_shouldRejectDatesBeyondTheHorizon() {
+    UUID doctorId = UUID.randomUUID();
+    UUID patientId = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    when(doctorRepository.findExistingIds(anyCollection())).thenReturn(List.of(doctorId));
+    when(patientRepository.findExistingIds(anyCollection())).thenReturn(List.of(patientId));
+
+    BulkAppointmentResponse response =
+        bulkBookingService.createAppointments(
+            new BulkAppointmentRequest(
+                List.of(
+                    item(doctorId, patientId, now.plus(366, ChronoUnit.DAYS)),
+                    item(doctorId, patientId, Instant.parse("9999-04-01T09:00:00Z")))));
+
+    for (BulkAppointmentResult result : response.getResults()) {
+      assertEquals(BulkAppointmentResult.Status.INVALID, result.getStatus());
+      assertEquals("Picked date cannot be more than 365 days ahead", result.getMessage());
+    }
+    verifyNoInteractions(appointmentRepository, appointmentBatchWriter);
+  }
+
+  private BulkAppointmentRequest.Item item(UUID doctorId, UUID patientId, Instant date) {
+    return BulkAppointmentRequest.Item.builder()
+        .doctorId(doctorId)
+        .patientId(patientId)
+        .appointmentDate(date)
+        .build();
+  }
+}
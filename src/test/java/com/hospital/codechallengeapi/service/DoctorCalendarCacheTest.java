@@ -0,0 +1,206 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DoctorCalendarCacheTest {
+
+  private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final DoctorCalendarCache cache =
+      new DoctorCalendarCache(
+          appointmentRepository,
+          clock,
+          new SimpleMeterRegistry(),
+          192,
+          2,
+          Duration.ofMinutes(30),
+          Duration.ofMinutes(5));
+
+  @Test
+  public void getOccupancy_shouldLoadOnceAndServeFromMemory() {
+    UUID doctorId = UUID.randomUUID();
+    Instant start = clock.instant();
+
+    when(appointmentRepository
+            .findOverlapping(
+                eq(doctorId),
+                eq(start.minus(AppointmentRepository.MAX_SPAN)),
+                eq(start),
+                eq(start.plus(192, ChronoUnit.HOURS))))
+        .thenReturn(
+            List.of(
+                AppointmentEntity.builder()
+                    .startDate(start)
+                    .endDate(start.plus(1, ChronoUnit.HOURS))
+                    .build()));
+
+    assertTrue(cache.getOccupancy(doctorId, start, 168).isOccupied(start));
+    assertFalse(cache.getOccupancy(doctorId, start.plus(1, ChronoUnit.HOURS), 168).isOccupied(0));
+
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getHits());
+    verify(appointmentRepository, times(1))
+        .findOverlapping(
+            any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class));
+  }
+
+  @Test
+  public void getOccupancy_shouldCheckHoursBeyondTheWindowAgainstTheDatabase() {
+    UUID doctorId = UUID.randomUUID();
+    Instant start = clock.instant();
+    Instant later = start.plus(100, ChronoUnit.HOURS);
+    Instant farAhead = start.plus(3650, ChronoUnit.DAYS);
+
+    when(appointmentRepository
+            .findOverlapping(
+                any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+
+    cache.getOccupancy(doctorId, later, 168);
+    cache.getOccupancy(doctorId, farAhead, 1);
+    cache.getOccupancy(doctorId, start, 168);
+    cache.getOccupancy(doctorId, later, 168);
+    cache.getOccupancy(doctorId, start, 192);
+
+    assertEquals(4, cache.getMisses());
+    assertEquals(1, cache.getHits());
+    verify(appointmentRepository, times(2))
+        .findOverlapping(
+            doctorId,
+            later.minus(AppointmentRepository.MAX_SPAN),
+            later,
+            later.plus(168, ChronoUnit.HOURS));
+    verify(appointmentRepository)
+        .findOverlapping(
+            doctorId,
+            farAhead.minus(AppointmentRepository.MAX_SPAN),
+            farAhead,
+            farAhead.plus(1, ChronoUnit.HOURS));
+    verify(appointmentRepository)
+        .findOverlapping(
+            doctorId,
+            start.minus(AppointmentRepository.MAX_SPAN),
+            start,
+            start.plus(192, ChronoUnit.HOURS));
+  }
+
+  @Test
+  public void getOccupancy_shouldNotMoveTheWindowForPastHours() {
+    UUID doctorId = UUID.randomUUID();
+    Instant start = clock.instant();
+
+    when(appointmentRepository
+            .findOverlapping(
+                any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+
+    cache.getOccupancy(doctorId, start, 168);
+    cache.getOccupancy(doctorId, start.minus(2, ChronoUnit.HOURS), 168);
+    cache.getOccupancy(doctorId, start, 168);
+
+    assertEquals(2, cache.getMisses());
+    assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  public void markOccupied_shouldWriteThroughToACachedCalendar() {
+    UUID doctorId = UUID.randomUUID();
+    Instant start = clock.instant();
+
+    when(appointmentRepository
+            .findOverlapping(
+                any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+
+    Instant booked = start.plus(5, ChronoUnit.HOURS);
+    assertFalse(cache.getOccupancy(doctorId, start, 168).isOccupied(booked));
+
+    cache.markOccupied(doctorId, booked, booked.plus(2, ChronoUnit.HOURS));
+
+    HourlyOccupancy occupancy = cache.getOccupancy(doctorId, start, 168);
+    assertTrue(occupancy.isOccupied(booked));
+    assertTrue(occupancy.isOccupied(booked.plus(1, ChronoUnit.HOURS)));
+    assertFalse(occupancy.isOccupied(booked.plus(2, ChronoUnit.HOURS)));
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  public void getOccupancy_shouldEvictTheLeastRecentlyUsedDoctor() {
+    Instant start = clock.instant();
+
+    when(appointmentRepository
+            .findOverlapping(
+                any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+
+    cache.getOccupancy(UUID.randomUUID(), start, 168);
+    cache.getOccupancy(UUID.randomUUID(), start, 168);
+    cache.getOccupancy(UUID.randomUUID(), start, 168);
+
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  public void generation_shouldOnlyIncreaseAcrossLoadsWritesAndStaleReads() {
+    UUID doctorId = UUID.randomUUID();
+    Instant start = clock.instant();
+    Clock ticking = mock(Clock.class);
+    when(ticking.instant()).thenReturn(start);
+    DoctorCalendarCache cache =
+        new DoctorCalendarCache(
+            appointmentRepository,
+            ticking,
+            new SimpleMeterRegistry(),
+            192,
+            2,
+            Duration.ofMinutes(30),
+            Duration.ofMinutes(5));
+
+    when(appointmentRepository
+            .findOverlapping(
+                any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+
+    long cold = cache.generation(doctorId);
+    assertTrue(cache.generation(doctorId) > cold);
+    cache.getOccupancy(doctorId, start, 168);
+    long loaded = cache.generation(doctorId);
+    assertTrue(loaded > cold);
+    assertEquals(loaded, cache.generation(doctorId));
+
+    cache.markOccupied(doctorId, start, start.plus(1, ChronoUnit.HOURS));
+    long written = cache.generation(doctorId);
+    assertTrue(written > loaded);
+
+    // A stale calendar never hands out a value seen before, before or after its reload.
+    when(ticking.instant()).thenReturn(start.plus(5, ChronoUnit.MINUTES));
+    long stale = cache.generation(doctorId);
+    assertTrue(stale > written);
+    assertFalse(cache.getOccupancy(doctorId, start, 168).isOccupied(start));
+    assertTrue(cache.generation(doctorId) > stale);
+    assertEquals(2, cache.getMisses());
+  }
+}
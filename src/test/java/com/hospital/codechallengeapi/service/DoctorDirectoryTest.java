@@ -0,0 +1,145 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DoctorDirectoryTest {
+
+  private final VersionRegistry versionRegistry = new VersionRegistry();
+
+  private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+
+  private final DoctorDirectory doctorDirectory =
+      new DoctorDirectory(doctorRepository, versionRegistry, new SimpleMeterRegistry());
+
+  @Test
+  public void find_shouldReturnAPageOrderedByName() {
+    when(doctorRepository.findAllDoctors())
+        .thenReturn(
+            List.of(
+                doctor("Carla", "Cardiology"),
+                doctor("alice", "Neurology"),
+                doctor("Bob", "Cardiology")));
+
+    Page<DoctorResponse> first = doctorDirectory.find(null, null, 1, 2);
+    Page<DoctorResponse> second = doctorDirectory.find(null, null, 2, 2);
+
+    assertEquals(List.of("alice", "Bob"), names(first));
+    assertEquals(3, first.getTotalElements());
+    assertTrue(first.hasNext());
+    assertEquals(List.of("Carla"), names(second));
+    assertFalse(second.hasNext());
+    verify(doctorRepository, times(1)).findAllDoctors();
+  }
+
+  @Test
+  public void findSlice_shouldTellWhetherThereIsMore() {
+    when(doctorRepository.findAllDoctors())
+        .thenReturn(
+            List.of(
+                doctor("Carla", "Cardiology"),
+                doctor("alice", "Neurology"),
+                doctor("Bob", "Cardiology")));
+
+    Slice<DoctorResponse> first = doctorDirectory.findSlice(null, null, 1, 2);
+    Slice<DoctorResponse> second = doctorDirectory.findSlice(null, null, 2, 2);
+    Slice<DoctorResponse> cardiology = doctorDirectory.findSlice("Cardiology", null, 1, 2);
+
+    assertEquals(List.of("alice", "Bob"), names(first));
+    assertTrue(first.hasNext());
+    assertEquals(1, second.getNumberOfElements());
+    assertFalse(second.hasNext());
+    assertFalse(cardiology.hasNext());
+  }
+
+  @Test
+  public void find_shouldFilterBySpecialtyAndNamePrefix() {
+    when(doctorRepository.findAllDoctors())
+        .thenReturn(
+            List.of(
+                doctor("Maria Lopez", "Cardiology"),
+                doctor("Mario Rossi", "Cardiology"),
+                doctor("Marta Diaz", "Neurology"),
+                doctor("Mark Twain", "Cardiology"),
+                doctor("John Smith", "Cardiology")));
+
+    assertEquals(
+        List.of("Maria Lopez", "Mario Rossi"),
+        names(doctorDirectory.find("cardiology", "mari", 1, 10)));
+    assertEquals(
+        List.of("Maria Lopez", "Mario Rossi", "Mark Twain", "Marta Diaz"),
+        names(doctorDirectory.find(null, "MAR", 1, 10)));
+    assertEquals(List.of("Marta Diaz"), names(doctorDirectory.find("Neurology", null, 1, 10)));
+    assertTrue(doctorDirectory.find("Dermatology", null, 1, 10).isEmpty());
+    assertTrue(doctorDirectory.find(null, "z", 1, 10).isEmpty());
+  }
+
+  @Test
+  public void add_shouldBeVisibleWithoutReloading() {
+    when(doctorRepository.findAllDoctors())
+        .thenReturn(List.of(doctor("Bob", "Cardiology")));
+    doctorDirectory.find(null, null, 1, 10);
+
+    doctorDirectory.add(doctor("Anna", "Cardiology"));
+
+    assertEquals(
+        List.of("Anna", "Bob"), names(doctorDirectory.find("Cardiology", null, 1, 10)));
+    verify(doctorRepository, times(1)).findAllDoctors();
+  }
+
+  @Test
+  public void refresh_shouldReplaceTheSnapshot() {
+    when(doctorRepository.findAllDoctors())
+        .thenReturn(List.of(doctor("Bob", "Cardiology")))
+        .thenReturn(Collections.emptyList());
+    assertEquals(1, doctorDirectory.find(null, null, 1, 10).getTotalElements());
+
+    doctorDirectory.refresh();
+
+    assertEquals(0, doctorDirectory.find(null, null, 1, 10).getTotalElements());
+  }
+
+  @Test
+  public void getTag_shouldChangeWhenADoctorIsAddedOrTheListIsReloadedWithChanges() {
+    DoctorResponse bob = doctor("Bob", "Cardiology");
+    when(doctorRepository.findAllDoctors())
+        .thenReturn(List.of(bob))
+        .thenReturn(List.of(bob))
+        .thenReturn(Collections.emptyList());
+    doctorDirectory.find(null, null, 1, 10);
+    String initial = doctorDirectory.getTag();
+
+    doctorDirectory.refresh();
+    assertEquals(initial, doctorDirectory.getTag());
+
+    doctorDirectory.refresh();
+    String afterReload = doctorDirectory.getTag();
+    assertNotEquals(initial, afterReload);
+
+    doctorDirectory.add(doctor("Anna", "Cardiology"));
+    assertNotEquals(afterReload, doctorDirectory.getTag());
+  }
+
+  private static DoctorResponse doctor(String name, String specialty) {
+    return new DoctorResponse(UUID.randomUUID(), name, specialty);
+  }
+
+  private static List<String> names(Slice<DoctorResponse> page) {
+    return page.getContent().stream().map(DoctorResponse::getName).collect(Collectors.toList());
+  }
+}
@@ -2,147 +2,143 @@ package com.hospital.codechallengeapi.service;
 
 import com.hospital.codechallengeapi.entity.AppointmentEntity;
 import com.hospital.codechallengeapi.entity.DoctorEntity;
-import com.hospital.codechallengeapi.entity.HospitalUserEntity;
 import com.hospital.codechallengeapi.entity.PatientEntity;
 import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
 import com.hospital.codechallengeapi.model.request.LeaveRequest;
+import com.hospital.codechallengeapi.model.response.AppointmentCursorPage;
 import com.hospital.codechallengeapi.model.response.AppointmentResponse;
 import com.hospital.codechallengeapi.model.response.AvailabilityResponse;
-import com.hospital.codechallengeapi.model.response.DoctorResponse;
 import com.hospital.codechallengeapi.model.response.IdResponse;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import com.hospital.codechallengeapi.repository.AppointmentListing;
 import com.hospital.codechallengeapi.repository.AppointmentRepository;
 import com.hospital.codechallengeapi.repository.DoctorRepository;
-import com.hospital.codechallengeapi.repository.PatientRepository;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
+import java.sql.SQLException;
 import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class DoctorServiceTest {
 
+  private final VersionRegistry versionRegistry = new VersionRegistry();
+
   private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
 
   private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
 
-  private final PatientRepository patientRepository = mock(PatientRepository.class);
+  private final AppointmentBatchWriter appointmentBatchWriter = mock(AppointmentBatchWriter.class);
 
   private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
 
-  private final DoctorService doctorService =
-      new DoctorService(doctorRepository, appointmentRepository, patientRepository, clock);
-
-  @Test
-  public void getDoctors_shouldReturnAPage() {
-
-    UUID id1 = UUID.randomUUID();
-    UUID id2 = UUID.randomUUID();
-
-    HospitalUserEntity user1 =
-        HospitalUserEntity.builder().id(id1).name("test1").username("test1").build();
-    DoctorEntity doctor1 =
-        DoctorEntity.builder().id(id1).hospitalUserEntity(user1).specialty("specialty1").build();
-    HospitalUserEntity user2 =
-        HospitalUserEntity.builder().id(id2).name("test2").username("test2").build();
-    DoctorEntity doctor2 =
-        DoctorEntity.builder().id(id2).hospitalUserEntity(user2).specialty("specialty2").build();
-
-    Page<DoctorEntity> pagedResponse = new PageImpl(List.of(doctor1, doctor2));
-
-    when(doctorRepository.findAll(any(Pageable.class))).thenReturn(pagedResponse);
-
-    Page<DoctorResponse> response = doctorService.getDoctors(1, 10);
-
-    assertNotNull(response);
-    assertFalse(response.hasNext());
-    assertFalse(response.hasPrevious());
-    assertEquals(2, response.getTotalElements());
-    assertEquals(1, response.getTotalPages());
-
-    List<DoctorResponse> content = response.getContent();
-    assertFalse(content.isEmpty());
-    DoctorResponse doctorResponse = content.get(0);
-    assertEquals(id1, doctorResponse.getId());
-    assertEquals("test1", doctorResponse.getName());
-  }
+  private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+  private final DoctorCalendarCache calendarCache =
+      new DoctorCalendarCache(
+          appointmentRepository,
+          clock,
+          new SimpleMeterRegistry(),
+          168,
+          100,
+          Duration.ofMinutes(30),
+          Duration.ofMinutes(5));
+
+  private final WorkingHoursService workingHoursService =
+      new WorkingHoursService(
+          doctorRepository,
+          mock(DoctorWorkingHoursRepository.class),
+          versionRegistry,
+          clock,
+          "UTC",
+          9,
+          20,
+          DayOfWeek.values(),
+          10000,
+          Duration.ofMinutes(5));
+
+  private final SlotHoldService slotHoldService =
+      new SlotHoldService(calendarCache, workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+
+  private final BookingExecutor bookingExecutor =
+      new BookingExecutor(
+          appointmentBatchWriter,
+          calendarCache,
+          new SimpleMeterRegistry(),
+          2,
+          100,
+          Duration.ofSeconds(5),
+          Duration.ZERO,
+          16);
 
-  @Test
-  public void getDoctors_shouldReturnEmptyPage() {
-
-    Page<DoctorEntity> pagedResponse = Page.empty();
-    when(doctorRepository.findAll(any(Pageable.class))).thenReturn(pagedResponse);
-
-    Page<DoctorResponse> response = doctorService.getDoctors(1, 10);
-
-    assertNotNull(response);
-    assertFalse(response.hasNext());
-    assertFalse(response.hasPrevious());
-    assertEquals(0, response.getTotalElements());
-    assertEquals(1, response.getTotalPages());
-
-    List<DoctorResponse> content = response.getContent();
-    assertTrue(content.isEmpty());
+  private final DoctorService doctorService =
+      new DoctorService(
+          appointmentRepository,
+          bookingExecutor,
+          appointmentBatchWriter,
+          calendarCache,
+          slotHoldService,
+          workingHoursService,
+          versionRegistry,
+          clock,
+          Duration.ofDays(365));
+
+  @AfterEach
+  public void tearDown() {
+    bookingExecutor.destroy();
   }
 
   @Test
   public void getAppointments_shouldReturnAPage() {
 
     UUID id1 = UUID.randomUUID();
-    UUID id2 = UUID.randomUUID();
-    UUID id3 = UUID.randomUUID();
-    UUID id4 = UUID.randomUUID();
-
-    HospitalUserEntity user1 =
-        HospitalUserEntity.builder().id(id1).name("doctor1").username("doctor1").build();
-    DoctorEntity doctor1 =
-        DoctorEntity.builder().id(id1).hospitalUserEntity(user1).specialty("specialty1").build();
-    HospitalUserEntity user2 =
-        HospitalUserEntity.builder().id(id2).name("patient1").username("patient1").build();
-    PatientEntity patient1 =
-        PatientEntity.builder().id(id2).hospitalUserEntity(user2).symptoms("symptoms1").build();
 
     Instant now = clock.instant();
     Instant tomorrow = now.plus(1, ChronoUnit.DAYS);
 
-    AppointmentEntity appointmentEntity1 =
-        AppointmentEntity.builder()
-            .id(id3)
-            .doctor(doctor1)
-            .patient(patient1)
-            .startDate(now)
-            .endDate(now.plus(1, ChronoUnit.HOURS))
-            .build();
-    AppointmentEntity appointmentEntity2 =
-        AppointmentEntity.builder()
-            .id(id4)
-            .doctor(doctor1)
-            .patient(patient1)
-            .startDate(tomorrow)
-            .endDate(tomorrow.plus(1, ChronoUnit.HOURS))
-            .build();
-
-    Page<AppointmentEntity> pagedResponse =
-        new PageImpl(List.of(appointmentEntity1, appointmentEntity2));
-    when(appointmentRepository
-            .findAppointmentEntitiesByDoctorIdAndPatientIdIsNotNullOrderByStartDate(
-                eq(id1), any(Pageable.class)))
+    Page<AppointmentListing> pagedResponse =
+        new PageImpl<>(
+            List.of(
+                listing(UUID.randomUUID(), now, "doctor1", "patient1", "specialty1"),
+                listing(UUID.randomUUID(), tomorrow, "doctor1", "patient1", "specialty1")));
+    when(appointmentRepository.findAppointmentListings(eq(id1), any(Pageable.class)))
         .thenReturn(pagedResponse);
 
     Page<AppointmentResponse> response = doctorService.getAppointments(id1, 1, 10);
@@ -163,13 +159,29 @@ public class DoctorServiceTest {
     assertEquals(now.plus(1, ChronoUnit.HOURS), appointmentResponse.getEndDate());
   }
 
+  @Test
+  public void getAppointmentSlice_shouldNotCount() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+    when(appointmentRepository.findAppointmentListingSlice(eq(doctorId), any(Pageable.class)))
+        .thenReturn(
+            new SliceImpl<>(
+                List.of(listing(UUID.randomUUID(), now, "doctor1", "patient1", "s")),
+                PageRequest.of(0, 5),
+                true));
+
+    Slice<AppointmentResponse> response = doctorService.getAppointmentSlice(doctorId, 1, 5);
+
+    assertTrue(response.hasNext());
+    assertEquals("patient1", response.getContent().get(0).getPatientName());
+    verify(appointmentRepository, never()).findAppointmentListings(any(), any());
+  }
+
   @Test
   public void getAppointments_shouldReturnEmptyPage() {
 
-    Page<AppointmentEntity> pagedResponse = Page.empty();
-    when(appointmentRepository
-            .findAppointmentEntitiesByDoctorIdAndPatientIdIsNotNullOrderByStartDate(
-                any(UUID.class), any(Pageable.class)))
+    Page<AppointmentListing> pagedResponse = Page.empty();
+    when(appointmentRepository.findAppointmentListings(any(UUID.class), any(Pageable.class)))
         .thenReturn(pagedResponse);
 
     Page<AppointmentResponse> response = doctorService.getAppointments(UUID.randomUUID(), 1, 10);
@@ -184,31 +196,78 @@ public class DoctorServiceTest {
     assertTrue(content.isEmpty());
   }
 
+  @Test
+  public void getAppointmentsAfter_shouldSeekPastTheCursor() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+    List<AppointmentListing> rows = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      rows.add(
+          listing(
+              UUID.randomUUID(), now.plus(i, ChronoUnit.HOURS), "doctor1", "patient1", "s"));
+    }
+    when(appointmentRepository.findFirstAppointments(eq(doctorId), any(Pageable.class)))
+        .thenReturn(rows);
+    when(appointmentRepository.findAppointmentsAfter(
+            eq(doctorId),
+            eq(rows.get(1).getStartDate()),
+            eq(rows.get(1).getId()),
+            any(Pageable.class)))
+        .thenReturn(rows.subList(2, 3));
+
+    AppointmentCursorPage first = doctorService.getAppointmentsAfter(doctorId, "", 2);
+    AppointmentCursorPage second =
+        doctorService.getAppointmentsAfter(doctorId, first.getNextCursor(), 2);
+
+    assertEquals(2, first.getContent().size());
+    assertNotNull(first.getNextCursor());
+    assertEquals(1, second.getContent().size());
+    assertEquals(rows.get(2).getStartDate(), second.getContent().get(0).getStartDate());
+    assertNull(second.getNextCursor());
+  }
+
+  @Test
+  public void getAppointmentsAfter_shouldRejectAMalformedCursor() {
+    assertThrows(
+        InvalidRequestException.class,
+        () -> doctorService.getAppointmentsAfter(UUID.randomUUID(), "not-a-cursor", 10));
+  }
+
   @Test
   public void createAppointment_shouldCreateAnAppointment() {
     UUID id1 = UUID.randomUUID();
     UUID id2 = UUID.randomUUID();
-    UUID id3 = UUID.randomUUID();
-
-    DoctorEntity doctor1 = mock(DoctorEntity.class);
-    PatientEntity patient1 = mock(PatientEntity.class);
-
-    AppointmentEntity appointmentEntity1 = AppointmentEntity.builder().id(id3).build();
 
     Instant now = clock.instant();
 
-    when(appointmentRepository
-            .findAppointmentEntitiesByDoctorIdAndStartDateIsLessThanAndEndDateGreaterThan(
-                eq(id1), eq(now.plus(1, ChronoUnit.HOURS)), eq(now)))
-        .thenReturn(Collections.emptyList());
-    when(doctorRepository.findById(eq(id1))).thenReturn(Optional.of(doctor1));
-    when(patientRepository.getOne(eq(id2))).thenReturn(patient1);
-    when(appointmentRepository.save(any(AppointmentEntity.class))).thenReturn(appointmentEntity1);
-
     IdResponse idResponse = doctorService.createAppointment(id1, id2, now);
 
     assertNotNull(idResponse);
-    assertEquals(id3, idResponse.getId());
+    AppointmentEntity inserted = insertedAppointment();
+    assertEquals(idResponse.getId(), inserted.getId());
+    assertEquals(id1, inserted.getDoctor().getId());
+    assertEquals(id2, inserted.getPatient().getId());
+    assertEquals(now, inserted.getStartDate());
+    assertEquals(now.plus(1, ChronoUnit.HOURS), inserted.getEndDate());
+  }
+
+  @Test
+  public void createAppointment_shouldCheckConflictsAgainstTheWarmCalendar() {
+    UUID id1 = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    doctorService.createAppointment(id1, UUID.randomUUID(), now);
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> doctorService.createAppointment(id1, UUID.randomUUID(), now));
+    doctorService.createAppointment(id1, UUID.randomUUID(), now.plus(1, ChronoUnit.HOURS));
+
+    assertEquals("The selected date is already booked", thrown.getMessage());
+    verify(appointmentBatchWriter, times(2)).insertAll(anyList());
+    verify(appointmentRepository, times(1))
+        .findOverlapping(
+            any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class));
   }
 
   @Test
@@ -216,14 +275,9 @@ public class DoctorServiceTest {
     UUID id1 = UUID.randomUUID();
     UUID id2 = UUID.randomUUID();
 
-    AppointmentEntity appointmentEntity = mock(AppointmentEntity.class);
-
     Instant now = clock.instant();
 
-    when(appointmentRepository
-            .findAppointmentEntitiesByDoctorIdAndStartDateIsLessThanAndEndDateGreaterThan(
-                eq(id1), eq(now.plus(1, ChronoUnit.HOURS)), eq(now)))
-        .thenReturn(List.of(appointmentEntity));
+    rejectInserts("23P01");
 
     AppointmentCreationException thrown =
         assertThrows(
@@ -235,13 +289,36 @@ public class DoctorServiceTest {
   }
 
   @Test
-  public void scheduleLeave_shouldCreateAnAppointment() {
+  public void createAppointment_shouldRejectAnUnknownDoctor() {
     UUID id1 = UUID.randomUUID();
     UUID id2 = UUID.randomUUID();
 
-    DoctorEntity doctor1 = mock(DoctorEntity.class);
+    rejectInserts("23503");
+
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> doctorService.createAppointment(id1, id2, clock.instant()));
+
+    assertEquals("Doctor with id " + id1 + " does not exist", thrown.getMessage());
+  }
+
+  @Test
+  public void createAppointment_shouldRejectDatesBeyondTheHorizon() {
+    Instant nextYear = clock.instant().plus(366, ChronoUnit.DAYS);
+
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> doctorService.createAppointment(UUID.randomUUID(), UUID.randomUUID(), nextYear));
+
+    assertEquals("Picked date cannot be more than 365 days ahead", thrown.getMessage());
+    verifyNoInteractions(appointmentRepository, appointmentBatchWriter);
+  }
 
-    AppointmentEntity appointmentEntity1 = AppointmentEntity.builder().id(id2).build();
+  @Test
+  public void scheduleLeave_shouldCreateAnAppointment() {
+    UUID id1 = UUID.randomUUID();
 
     Instant now = clock.instant();
     LeaveRequest request =
@@ -251,25 +328,19 @@ public class DoctorServiceTest {
             .leaveType("leaveType")
             .build();
 
-    when(appointmentRepository
-            .findAppointmentEntitiesByDoctorIdAndStartDateIsLessThanAndEndDateGreaterThan(
-                eq(id1), eq(now), eq(request.getEndDate())))
-        .thenReturn(Collections.emptyList());
-    when(doctorRepository.getOne(eq(id1))).thenReturn(doctor1);
-    when(appointmentRepository.save(any(AppointmentEntity.class))).thenReturn(appointmentEntity1);
-
     IdResponse idResponse = doctorService.scheduleLeave(id1, request);
 
     assertNotNull(idResponse);
-    assertEquals(id2, idResponse.getId());
+    AppointmentEntity inserted = insertedAppointment();
+    assertEquals(idResponse.getId(), inserted.getId());
+    assertNull(inserted.getPatient());
+    assertEquals("leaveType", inserted.getReason());
   }
 
   @Test
   public void scheduleLeave_shouldThrowAnException() {
     UUID id1 = UUID.randomUUID();
 
-    AppointmentEntity appointmentEntity = mock(AppointmentEntity.class);
-
     Instant now = clock.instant();
     LeaveRequest request =
         LeaveRequest.builder()
@@ -278,10 +349,7 @@ public class DoctorServiceTest {
             .leaveType("leaveType")
             .build();
 
-    when(appointmentRepository
-            .findAppointmentEntitiesByDoctorIdAndStartDateIsLessThanAndEndDateGreaterThan(
-                eq(id1), eq(request.getEndDate()), eq(now)))
-        .thenReturn(List.of(appointmentEntity));
+    rejectInserts("23P01");
 
     AppointmentCreationException thrown =
         assertThrows(
@@ -292,6 +360,98 @@ public class DoctorServiceTest {
     assertTrue(thrown.getMessage().equals("The selected date is already booked"));
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void scheduleLeave_shouldSplitLeavesLongerThanTheMaximumSpan() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+    LeaveRequest request =
+        LeaveRequest.builder()
+            .startDate(now)
+            .endDate(now.plus(70, ChronoUnit.DAYS))
+            .leaveType("leaveType")
+            .build();
+
+    IdResponse idResponse = doctorService.scheduleLeave(doctorId, request);
+
+    ArgumentCaptor<List<AppointmentEntity>> inserted = ArgumentCaptor.forClass(List.class);
+    verify(appointmentBatchWriter).insertAll(inserted.capture());
+    List<AppointmentEntity> pieces = inserted.getValue();
+    assertEquals(3, pieces.size());
+    assertEquals(idResponse.getId(), pieces.get(0).getId());
+    assertEquals(now, pieces.get(0).getStartDate());
+    assertEquals(now.plus(31, ChronoUnit.DAYS), pieces.get(0).getEndDate());
+    assertEquals(now.plus(31, ChronoUnit.DAYS), pieces.get(1).getStartDate());
+    assertEquals(now.plus(62, ChronoUnit.DAYS), pieces.get(2).getStartDate());
+    assertEquals(now.plus(70, ChronoUnit.DAYS), pieces.get(2).getEndDate());
+    assertTrue(pieces.stream().allMatch(piece -> "leaveType".equals(piece.getReason())));
+  }
+
+  @Test
+  public void scheduleLeave_shouldRejectALongLeaveThatClashes() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+    when(appointmentRepository.findOverlapping(
+            eq(doctorId), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(
+            List.of(
+                AppointmentEntity.builder()
+                    .startDate(now.plus(40, ChronoUnit.DAYS))
+                    .endDate(now.plus(40, ChronoUnit.DAYS).plus(1, ChronoUnit.HOURS))
+                    .build()));
+    LeaveRequest request =
+        LeaveRequest.builder()
+            .startDate(now)
+            .endDate(now.plus(70, ChronoUnit.DAYS))
+            .leaveType("leaveType")
+            .build();
+
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> doctorService.scheduleLeave(doctorId, request));
+
+    assertEquals("The selected date is already booked", thrown.getMessage());
+    verifyNoInteractions(appointmentBatchWriter);
+  }
+
+  @Test
+  public void scheduleLeave_shouldRejectLeavesEndingBeyondTheHorizon() {
+    Instant start = clock.instant().plus(360, ChronoUnit.DAYS);
+    LeaveRequest request =
+        LeaveRequest.builder()
+            .startDate(start)
+            .endDate(start.plus(10, ChronoUnit.DAYS))
+            .leaveType("leaveType")
+            .build();
+
+    assertThrows(
+        AppointmentCreationException.class,
+        () -> doctorService.scheduleLeave(UUID.randomUUID(), request));
+    verifyNoInteractions(appointmentRepository, appointmentBatchWriter);
+  }
+
+  @Test
+  public void scheduleLeave_shouldRejectLeavesCoveringAHeldHour() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+    slotHoldService.hold(doctorId, UUID.randomUUID(), now.plus(1, ChronoUnit.HOURS));
+    LeaveRequest request =
+        LeaveRequest.builder()
+            .startDate(now)
+            .endDate(now.plus(3, ChronoUnit.HOURS))
+            .leaveType("leaveType")
+            .build();
+
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> doctorService.scheduleLeave(doctorId, request));
+
+    assertEquals("The selected date is on hold for a patient", thrown.getMessage());
+    verifyNoInteractions(appointmentBatchWriter);
+  }
+
   @Test
   public void getAvailability_shouldReturnAllSlots() {
 
@@ -300,8 +460,8 @@ public class DoctorServiceTest {
     Instant start = clock.instant();
     Instant end = start.plus(7, ChronoUnit.DAYS);
 
-    when(appointmentRepository.findAppointmentEntitiesByDoctorIdAndStartDateIsLessThanAndEndDateGreaterThan(
-            eq(id1), eq(end), eq(start)))
+    when(appointmentRepository.findOverlapping(
+            eq(id1), eq(start.minus(AppointmentRepository.MAX_SPAN)), eq(start), eq(end)))
         .thenReturn(Collections.emptyList());
 
     AvailabilityResponse response = doctorService.getAvailability(UUID.randomUUID());
@@ -320,8 +480,8 @@ public class DoctorServiceTest {
 
     AppointmentEntity appointmentEntity = AppointmentEntity.builder().startDate(start).endDate(start.plus(1, ChronoUnit.HOURS)).build();
 
-    when(appointmentRepository.findAppointmentEntitiesByDoctorIdAndStartDateIsLessThanAndEndDateGreaterThan(
-            eq(id1), eq(start.plus(1, ChronoUnit.HOURS)), eq(start)))
+    when(appointmentRepository.findOverlapping(
+            eq(id1), eq(start.minus(AppointmentRepository.MAX_SPAN)), eq(start), eq(end)))
             .thenReturn(List.of(appointmentEntity));
 
     AvailabilityResponse response = doctorService.getAvailability(id1);
@@ -331,4 +491,175 @@ public class DoctorServiceTest {
     assertFalse(response.getAvailableTimeSlots().stream().anyMatch(timeSlot -> timeSlot.getStartDate().equals(start)));
   }
 
+  @Test
+  public void getAvailability_shouldQueryTheWindowOnceAndSkipLeaves() {
+
+    UUID id1 = UUID.randomUUID();
+
+    Instant start = clock.instant();
+    Instant end = start.plus(7, ChronoUnit.DAYS);
+
+    AppointmentEntity leave =
+        AppointmentEntity.builder()
+            .startDate(start.plus(1, ChronoUnit.HOURS))
+            .endDate(start.plus(4, ChronoUnit.HOURS))
+            .reason("Sick")
+            .build();
+
+    when(appointmentRepository.findOverlapping(
+            eq(id1), eq(start.minus(AppointmentRepository.MAX_SPAN)), eq(start), eq(end)))
+        .thenReturn(List.of(leave));
+
+    AvailabilityResponse response = doctorService.getAvailability(id1);
+
+    assertEquals(74, response.getAvailableTimeSlots().size());
+    assertEquals(start, response.getAvailableTimeSlots().get(0).getStartDate());
+    assertEquals(
+        start.plus(4, ChronoUnit.HOURS), response.getAvailableTimeSlots().get(1).getStartDate());
+    verify(appointmentRepository, times(1))
+        .findOverlapping(
+            any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class));
+  }
+
+  @Test
+  public void createAppointment_shouldFailFastWhenAnotherPatientHoldsTheSlot() {
+    UUID id1 = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    slotHoldService.hold(id1, UUID.randomUUID(), now);
+
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> doctorService.createAppointment(id1, UUID.randomUUID(), now));
+
+    assertEquals("The selected date is on hold for another patient", thrown.getMessage());
+    verify(appointmentBatchWriter, never()).insertAll(anyList());
+  }
+
+  @Test
+  public void createAppointment_shouldConfirmTheHoldOfThePatient() {
+    UUID id1 = UUID.randomUUID();
+    UUID id2 = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    slotHoldService.hold(id1, id2, now);
+    doctorService.createAppointment(id1, id2, now);
+
+    verify(appointmentBatchWriter, times(1)).insertAll(anyList());
+    assertEquals(0, slotHoldService.size());
+  }
+
+  @Test
+  public void getAvailability_shouldHideHeldSlots() {
+    UUID id1 = UUID.randomUUID();
+    Instant start = clock.instant();
+
+    when(appointmentRepository.findOverlapping(
+            eq(id1), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+    slotHoldService.hold(id1, UUID.randomUUID(), start);
+
+    AvailabilityResponse response = doctorService.getAvailability(id1);
+
+    assertEquals(76, response.getAvailableTimeSlots().size());
+    assertEquals(
+        start.plus(1, ChronoUnit.HOURS), response.getAvailableTimeSlots().get(0).getStartDate());
+  }
+
+  @Test
+  public void getAvailabilityTag_shouldChangeOnlyWhenTheCalendarDoes() {
+    UUID id1 = UUID.randomUUID();
+    UUID id2 = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    doctorService.getAvailability(id1);
+    String initial = doctorService.getAvailabilityTag(id1);
+    assertEquals(initial, doctorService.getAvailabilityTag(id1));
+    assertNotEquals(initial, doctorService.getAvailabilityTag(id2));
+    verify(appointmentRepository, times(1))
+        .findOverlapping(
+            any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class));
+
+    doctorService.createAppointment(id1, id2, now);
+    String afterBooking = doctorService.getAvailabilityTag(id1);
+    assertNotEquals(initial, afterBooking);
+
+    slotHoldService.hold(id1, id2, now.plus(1, ChronoUnit.HOURS));
+    assertNotEquals(afterBooking, doctorService.getAvailabilityTag(id1));
+  }
+
+  @Test
+  public void getAvailabilityTag_shouldChangeWhenTheCalendarIsLoaded() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    String cold = doctorService.getAvailabilityTag(doctorId);
+    calendarCache.getOccupancy(doctorId, now, 168);
+
+    assertNotEquals(cold, doctorService.getAvailabilityTag(doctorId));
+  }
+
+  @Test
+  public void getAvailabilityTag_shouldChangeWhenAHoldExpires() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+    Clock ticking = mock(Clock.class);
+    when(ticking.instant()).thenReturn(now);
+    SlotHoldService holds =
+        new SlotHoldService(
+            calendarCache, workingHoursService, versionRegistry, ticking, Duration.ofMinutes(2), 3);
+    DoctorService service =
+        new DoctorService(
+            appointmentRepository,
+            bookingExecutor,
+            appointmentBatchWriter,
+            calendarCache,
+            holds,
+            workingHoursService,
+            versionRegistry,
+            ticking,
+            Duration.ofDays(365));
+
+    holds.hold(doctorId, UUID.randomUUID(), now.plus(1, ChronoUnit.HOURS));
+    service.getAvailability(doctorId);
+    String held = service.getAvailabilityTag(doctorId);
+
+    // No sweep has run, so nothing bumped the doctor's version.
+    when(ticking.instant()).thenReturn(now.plus(2, ChronoUnit.MINUTES));
+    assertNotEquals(held, service.getAvailabilityTag(doctorId));
+  }
+
+  private AppointmentListing listing(
+      UUID id, Instant start, String doctorName, String patientName, String specialty) {
+    return projectionFactory.createProjection(
+        AppointmentListing.class,
+        Map.of(
+            "id", id,
+            "doctorName", doctorName,
+            "patientName", patientName,
+            "specialty", specialty,
+            "startDate", start,
+            "endDate", start.plus(1, ChronoUnit.HOURS)));
+  }
+
+  @SuppressWarnings("unchecked")
+  private AppointmentEntity insertedAppointment() {
+    ArgumentCaptor<List<AppointmentEntity>> inserted = ArgumentCaptor.forClass(List.class);
+    verify(appointmentBatchWriter, times(1)).insertAll(inserted.capture());
+    assertEquals(1, inserted.getValue().size());
+    return inserted.getValue().get(0);
+  }
+
+  private void rejectInserts(String sqlState) {
+    doThrow(constraintViolation(sqlState)).when(appointmentBatchWriter).insertAll(anyList());
+    doThrow(constraintViolation(sqlState))
+        .when(appointmentBatchWriter)
+        .insert(any(AppointmentEntity.class));
+  }
+
+  private DataIntegrityViolationException constraintViolation(String sqlState) {
+    return new DataIntegrityViolationException(
+        "constraint violation", new SQLException("constraint violation", sqlState));
+  }
 }
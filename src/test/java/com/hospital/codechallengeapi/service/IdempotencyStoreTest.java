@@ -0,0 +1,185 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.exception.IdempotencyConflictException;
+import com.hospital.codechallengeapi.model.request.PatientRegisterRequest;
+import com.hospital.codechallengeapi.model.response.IdResponse;
+import com.hospital.codechallengeapi.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IdempotencyStoreTest {
+
+  private final IdempotencyRecordRepository idempotencyRecordRepository =
+      mock(IdempotencyRecordRepository.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final IdempotencyStore idempotencyStore =
+      new IdempotencyStore(idempotencyRecordRepository, clock, Duration.ofHours(24), 100, "secret");
+
+  @Test
+  public void execute_shouldReplayTheFirstResponse() {
+    when(idempotencyRecordRepository.claim(
+            eq("register"), eq("key"), anyString(), any(Instant.class), any(Instant.class)))
+        .thenReturn(true);
+    AtomicInteger calls = new AtomicInteger();
+    UUID id = UUID.randomUUID();
+
+    IdResponse first =
+        idempotencyStore.execute(
+            "register", "key", "patient1", () -> new IdResponse(id(calls, id)));
+    IdResponse retry =
+        idempotencyStore.execute(
+            "register", "key", "patient1", () -> new IdResponse(id(calls, id)));
+
+    assertEquals(id, first.getId());
+    assertEquals(id, retry.getId());
+    assertEquals(1, calls.get());
+    verify(idempotencyRecordRepository, times(1))
+        .claim(eq("register"), eq("key"), anyString(), any(Instant.class), any(Instant.class));
+    verify(idempotencyRecordRepository, times(1)).complete("register", "key", id);
+  }
+
+  @Test
+  public void execute_shouldReturnTheResponseStoredByAnotherInstance() {
+    UUID id = UUID.randomUUID();
+    when(idempotencyRecordRepository.claim(
+            eq("register"), eq("key"), anyString(), any(Instant.class), any(Instant.class)))
+        .thenReturn(false);
+    AtomicInteger calls = new AtomicInteger();
+
+    when(idempotencyRecordRepository.find("register", "key"))
+        .thenReturn(
+            new IdempotencyRecordRepository.IdempotencyRecord(
+                idempotencyStore.hash("register", "key", "patient1"), id));
+
+    IdResponse response =
+        idempotencyStore.execute(
+            "register", "key", "patient1", () -> new IdResponse(id(calls, UUID.randomUUID())));
+
+    assertEquals(id, response.getId());
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  public void execute_shouldRejectAKeyReusedForAnotherRequest() {
+    when(idempotencyRecordRepository.claim(
+            anyString(), anyString(), anyString(), any(Instant.class), any(Instant.class)))
+        .thenReturn(true);
+
+    idempotencyStore.execute(
+        "register", "key", "patient1", () -> new IdResponse(UUID.randomUUID()));
+
+    assertThrows(
+        IdempotencyConflictException.class,
+        () ->
+            idempotencyStore.execute(
+                "register", "key", "patient2", () -> new IdResponse(UUID.randomUUID())));
+  }
+
+  @Test
+  public void execute_shouldReleaseTheKeyWhenTheRequestFails() {
+    when(idempotencyRecordRepository.claim(
+            anyString(), anyString(), anyString(), any(Instant.class), any(Instant.class)))
+        .thenReturn(true);
+    UUID id = UUID.randomUUID();
+
+    assertThrows(
+        AppointmentCreationException.class,
+        () ->
+            idempotencyStore.execute(
+                "appointment",
+                "key",
+                "slot",
+                () -> {
+                  throw new AppointmentCreationException("The selected date is already booked");
+                }));
+    IdResponse retry =
+        idempotencyStore.execute("appointment", "key", "slot", () -> new IdResponse(id));
+
+    assertEquals(id, retry.getId());
+    verify(idempotencyRecordRepository, times(1)).release("appointment", "key");
+  }
+
+  @Test
+  public void execute_shouldKeepTheKeyWhenTheResponseCannotBeStored() {
+    when(idempotencyRecordRepository.claim(
+            anyString(), anyString(), anyString(), any(Instant.class), any(Instant.class)))
+        .thenReturn(true);
+    doThrow(new QueryTimeoutException("timeout"))
+        .when(idempotencyRecordRepository)
+        .complete(anyString(), anyString(), any(UUID.class));
+    UUID id = UUID.randomUUID();
+    AtomicInteger calls = new AtomicInteger();
+
+    IdResponse first =
+        idempotencyStore.execute(
+            "appointment", "key", "slot", () -> new IdResponse(id(calls, id)));
+    IdResponse retry =
+        idempotencyStore.execute(
+            "appointment", "key", "slot", () -> new IdResponse(id(calls, UUID.randomUUID())));
+
+    assertEquals(id, first.getId());
+    assertEquals(id, retry.getId());
+    assertEquals(1, calls.get());
+    verify(idempotencyRecordRepository, never()).release(anyString(), anyString());
+  }
+
+  @Test
+  public void fingerprint_shouldCoverTheWholeRequest() {
+    String first =
+        IdempotencyStore.fingerprint(
+            new PatientRegisterRequest("Patient", "patient1", "secret", "cough"));
+
+    assertEquals(
+        first,
+        IdempotencyStore.fingerprint(
+            new PatientRegisterRequest("Patient", "patient1", "secret", "cough")));
+    assertNotEquals(
+        first,
+        IdempotencyStore.fingerprint(
+            new PatientRegisterRequest("Patient", "patient1", "other", "cough")));
+    assertNotEquals(
+        first,
+        IdempotencyStore.fingerprint(
+            new PatientRegisterRequest("Someone else", "patient1", "secret", "cough")));
+  }
+
+  @Test
+  public void hash_shouldBeKeyedWithTheServerSecret() {
+    IdempotencyStore otherSecret =
+        new IdempotencyStore(
+            idempotencyRecordRepository, clock, Duration.ofHours(24), 100, "other secret");
+
+    assertEquals(
+        idempotencyStore.hash("register", "key", "patient1"),
+        idempotencyStore.hash("register", "key", "patient1"));
+    assertNotEquals(
+        idempotencyStore.hash("register", "key", "patient1"),
+        otherSecret.hash("register", "key", "patient1"));
+  }
+
+  private static UUID id(AtomicInteger calls, UUID id) {
+    calls.incrementAndGet();
+    return id;
+  }
+}
@@ -0,0 +1,273 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.entity.LeaveSeriesEntity;
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.request.LeaveRecurrence;
+import com.hospital.codechallengeapi.model.request.LeaveRequest;
+import com.hospital.codechallengeapi.model.response.IdResponse;
+import com.hospital.codechallengeapi.repository.AppointmentBatchWriter;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.DoctorTimeZone;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LeaveSeriesServiceTest {
+
+  private final VersionRegistry versionRegistry = new VersionRegistry();
+
+  private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+
+  private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+
+  private final AppointmentBatchWriter appointmentBatchWriter = mock(AppointmentBatchWriter.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-03-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final DoctorCalendarCache calendarCache =
+      new DoctorCalendarCache(
+          appointmentRepository,
+          clock,
+          new SimpleMeterRegistry(),
+          192,
+          100,
+          Duration.ofMinutes(30),
+          Duration.ofMinutes(5));
+
+  private final WorkingHoursService workingHoursService =
+      new WorkingHoursService(
+          doctorRepository,
+          mock(DoctorWorkingHoursRepository.class),
+          versionRegistry,
+          clock,
+          "UTC",
+          9,
+          20,
+          DayOfWeek.values(),
+          10000,
+          Duration.ofMinutes(5));
+
+  private final SlotHoldService slotHoldService =
+      new SlotHoldService(
+          calendarCache, workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+
+  private final LeaveSeriesService leaveSeriesService =
+      new LeaveSeriesService(
+          appointmentRepository,
+          appointmentBatchWriter,
+          calendarCache,
+          workingHoursService,
+          slotHoldService,
+          versionRegistry,
+          50,
+          Duration.ofDays(731));
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void scheduleRecurringLeave_shouldKeepTheLocalHourAcrossDaylightSaving() {
+    UUID doctorId = UUID.randomUUID();
+    inZone(doctorId, "Europe/Lisbon");
+
+    // Fridays 14:00-18:00 in Lisbon, which moves from UTC to UTC+1 on 2021-03-28.
+    LeaveRequest request =
+        leave(
+            "2021-03-19T14:00:00Z",
+            "2021-03-19T18:00:00Z",
+            LeaveRecurrence.builder().frequency(LeaveRecurrence.Frequency.WEEKLY).count(3).build());
+
+    IdResponse response = leaveSeriesService.scheduleRecurringLeave(doctorId, request);
+
+    ArgumentCaptor<LeaveSeriesEntity> series = ArgumentCaptor.forClass(LeaveSeriesEntity.class);
+    ArgumentCaptor<List<AppointmentEntity>> occurrences = ArgumentCaptor.forClass(List.class);
+    verify(appointmentBatchWriter, times(1)).insertSeries(series.capture(), occurrences.capture());
+
+    assertEquals(response.getId(), series.getValue().getId());
+    assertEquals(3, series.getValue().getOccurrences());
+    assertEquals("Europe/Lisbon", series.getValue().getTimeZone());
+    List<AppointmentEntity> leaves = occurrences.getValue();
+    assertEquals(Instant.parse("2021-03-19T14:00:00Z"), leaves.get(0).getStartDate());
+    assertEquals(Instant.parse("2021-03-26T14:00:00Z"), leaves.get(1).getStartDate());
+    assertEquals(Instant.parse("2021-04-02T13:00:00Z"), leaves.get(2).getStartDate());
+    assertEquals(Instant.parse("2021-04-02T17:00:00Z"), leaves.get(2).getEndDate());
+    assertTrue(leaves.stream().allMatch(leave -> response.getId().equals(leave.getSeriesId())));
+    verify(appointmentRepository, times(1))
+        .findOverlapping(
+            any(UUID.class), any(Instant.class), any(Instant.class), any(Instant.class));
+  }
+
+  @Test
+  public void scheduleRecurringLeave_shouldRejectTheSeriesWhenAnOccurrenceClashes() {
+    UUID doctorId = UUID.randomUUID();
+    inZone(doctorId, null);
+
+    Instant booked = Instant.parse("2021-03-04T10:00:00Z");
+    when(appointmentRepository
+            .findOverlapping(
+                eq(doctorId), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(
+            List.of(
+                AppointmentEntity.builder()
+                    .startDate(booked)
+                    .endDate(booked.plus(1, ChronoUnit.HOURS))
+                    .build()));
+
+    LeaveRequest request =
+        leave(
+            "2021-03-02T09:00:00Z",
+            "2021-03-02T12:00:00Z",
+            LeaveRecurrence.builder()
+                .frequency(LeaveRecurrence.Frequency.DAILY)
+                .until(Instant.parse("2021-03-10T00:00:00Z"))
+                .build());
+
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> leaveSeriesService.scheduleRecurringLeave(doctorId, request));
+
+    assertEquals(
+        "The selected date 2021-03-04T09:00:00Z is already booked", thrown.getMessage());
+    verify(appointmentBatchWriter, never()).insertSeries(any(LeaveSeriesEntity.class), anyList());
+  }
+
+  @Test
+  public void scheduleRecurringLeave_shouldRejectSeriesThatAreTooLong() {
+    UUID doctorId = UUID.randomUUID();
+    inZone(doctorId, null);
+
+    LeaveRequest request =
+        leave(
+            "2021-03-02T09:00:00Z",
+            "2021-03-02T12:00:00Z",
+            LeaveRecurrence.builder().frequency(LeaveRecurrence.Frequency.DAILY).count(51).build());
+
+    assertThrows(
+        InvalidRequestException.class,
+        () -> leaveSeriesService.scheduleRecurringLeave(doctorId, request));
+  }
+
+  @Test
+  public void scheduleRecurringLeave_shouldRejectSeriesThatSpanTooLong() {
+    UUID doctorId = UUID.randomUUID();
+    inZone(doctorId, null);
+
+    LeaveRequest everyYear =
+        leave(
+            "2021-03-02T09:00:00Z",
+            "2021-03-02T12:00:00Z",
+            LeaveRecurrence.builder()
+                .frequency(LeaveRecurrence.Frequency.WEEKLY)
+                .interval(52)
+                .count(4)
+                .build());
+    LeaveRequest hugeInterval =
+        leave(
+            "2021-03-02T09:00:00Z",
+            "2021-03-02T12:00:00Z",
+            LeaveRecurrence.builder()
+                .frequency(LeaveRecurrence.Frequency.WEEKLY)
+                .interval(Integer.MAX_VALUE)
+                .count(2)
+                .build());
+
+    assertThrows(
+        InvalidRequestException.class,
+        () -> leaveSeriesService.scheduleRecurringLeave(doctorId, everyYear));
+    assertThrows(
+        InvalidRequestException.class,
+        () -> leaveSeriesService.scheduleRecurringLeave(doctorId, hugeInterval));
+    verify(appointmentBatchWriter, never()).insertSeries(any(LeaveSeriesEntity.class), anyList());
+  }
+
+  @Test
+  public void scheduleRecurringLeave_shouldRejectSeriesCoveringAHeldHour() {
+    UUID doctorId = UUID.randomUUID();
+    inZone(doctorId, null);
+    slotHoldService.hold(doctorId, UUID.randomUUID(), Instant.parse("2021-03-03T10:00:00Z"));
+
+    LeaveRequest request =
+        leave(
+            "2021-03-02T09:00:00Z",
+            "2021-03-02T12:00:00Z",
+            LeaveRecurrence.builder().frequency(LeaveRecurrence.Frequency.DAILY).count(3).build());
+
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> leaveSeriesService.scheduleRecurringLeave(doctorId, request));
+    assertEquals(
+        "The selected date 2021-03-03T09:00:00Z is on hold for a patient", thrown.getMessage());
+    verify(appointmentBatchWriter, never()).insertSeries(any(LeaveSeriesEntity.class), anyList());
+  }
+
+  @Test
+  public void scheduleRecurringLeave_shouldReportAnUnknownDoctor() {
+    UUID doctorId = UUID.randomUUID();
+    inZone(doctorId, null);
+    doThrow(
+            new DataIntegrityViolationException(
+                "foreign key", new SQLException("foreign key", "23503")))
+        .when(appointmentBatchWriter)
+        .insertSeries(any(LeaveSeriesEntity.class), anyList());
+
+    LeaveRequest request =
+        leave(
+            "2021-03-02T09:00:00Z",
+            "2021-03-02T12:00:00Z",
+            LeaveRecurrence.builder().frequency(LeaveRecurrence.Frequency.DAILY).count(2).build());
+
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> leaveSeriesService.scheduleRecurringLeave(doctorId, request));
+    assertEquals("Doctor with id " + doctorId + " does not exist", thrown.getMessage());
+  }
+
+  private void inZone(UUID doctorId, String zone) {
+    DoctorTimeZone doctorTimeZone = mock(DoctorTimeZone.class);
+    when(doctorTimeZone.getId()).thenReturn(doctorId);
+    when(doctorTimeZone.getTimeZone()).thenReturn(zone);
+    when(doctorRepository.findTimeZonesByIdIn(anyCollection())).thenReturn(List.of(doctorTimeZone));
+    when(appointmentRepository
+            .findOverlapping(
+                eq(doctorId), any(Instant.class), any(Instant.class), any(Instant.class)))
+        .thenReturn(Collections.emptyList());
+  }
+
+  private LeaveRequest leave(String start, String end, LeaveRecurrence recurrence) {
+    return LeaveRequest.builder()
+        .leaveType("Research")
+        .startDate(Instant.parse(start))
+        .endDate(Instant.parse(end))
+        .recurrence(recurrence)
+        .build();
+  }
+}
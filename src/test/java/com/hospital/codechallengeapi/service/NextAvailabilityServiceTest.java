@@ -0,0 +1,168 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.entity.AppointmentEntity;
+import com.hospital.codechallengeapi.exception.NoAvailabilityException;
+import com.hospital.codechallengeapi.model.response.TimeSlot;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class NextAvailabilityServiceTest {
+
+  private final VersionRegistry versionRegistry = new VersionRegistry();
+
+  private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final WorkingHoursService workingHoursService =
+      new WorkingHoursService(
+          mock(DoctorRepository.class),
+          mock(DoctorWorkingHoursRepository.class),
+          versionRegistry,
+          clock,
+          "UTC",
+          9,
+          20,
+          DayOfWeek.values(),
+          10000,
+          Duration.ofMinutes(5));
+
+  private final SlotHoldService slotHoldService =
+      new SlotHoldService(
+          mock(DoctorCalendarCache.class), workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+
+  private final NextAvailabilityService nextAvailabilityService =
+      new NextAvailabilityService(
+          appointmentRepository, workingHoursService, slotHoldService, clock, 2, Duration.ofDays(30));
+
+  @Test
+  public void getNextAvailableSlot_shouldReturnTheCurrentHourWhenFree() {
+    UUID doctorId = UUID.randomUUID();
+
+    when(appointmentRepository
+            .findEndingAfter(
+                eq(doctorId), any(Instant.class), any(Instant.class), any(Pageable.class)))
+        .thenReturn(Collections.emptyList());
+
+    TimeSlot slot = nextAvailabilityService.getNextAvailableSlot(doctorId, null);
+
+    assertEquals(clock.instant(), slot.getStartDate());
+  }
+
+  @Test
+  public void getNextAvailableSlot_shouldSkipOverBookedIntervalsAcrossChunks() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    // Fully booked until 18:00, then a leave from 19:00 spilling into the next morning.
+    AppointmentEntity morning = interval(now, now.plus(3, ChronoUnit.HOURS));
+    AppointmentEntity afternoon =
+        interval(now.plus(3, ChronoUnit.HOURS), now.plus(9, ChronoUnit.HOURS));
+    AppointmentEntity evening =
+        interval(now.plus(9, ChronoUnit.HOURS), now.plus(10, ChronoUnit.HOURS));
+    AppointmentEntity leave =
+        interval(now.plus(10, ChronoUnit.HOURS), Instant.parse("2021-04-02T11:00:00Z"));
+
+    when(appointmentRepository
+            .findEndingAfter(
+                eq(doctorId), any(Instant.class), any(Instant.class), any(Pageable.class)))
+        .thenReturn(List.of(morning, afternoon));
+    when(appointmentRepository
+            .findEndingAfterCursor(
+                eq(doctorId),
+                any(Instant.class),
+                any(Instant.class),
+                eq(afternoon.getStartDate()),
+                eq(afternoon.getId()),
+                argThat(page -> page.getPageNumber() == 0)))
+        .thenReturn(List.of(evening, leave));
+    when(appointmentRepository
+            .findEndingAfterCursor(
+                eq(doctorId),
+                any(Instant.class),
+                any(Instant.class),
+                eq(leave.getStartDate()),
+                eq(leave.getId()),
+                any(Pageable.class)))
+        .thenReturn(Collections.emptyList());
+
+    TimeSlot slot = nextAvailabilityService.getNextAvailableSlot(doctorId, now);
+
+    assertEquals(Instant.parse("2021-04-02T11:00:00Z"), slot.getStartDate());
+    assertEquals(Instant.parse("2021-04-02T12:00:00Z"), slot.getEndDate());
+  }
+
+  @Test
+  public void getNextAvailableSlot_shouldSkipHeldHoursWithoutLosingTheNextInterval() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    // 09:00 is held and 10:00 is booked, so 11:00 is the first hour anyone can take.
+    AppointmentEntity booked =
+        interval(now.plus(1, ChronoUnit.HOURS), now.plus(2, ChronoUnit.HOURS));
+    when(appointmentRepository
+            .findEndingAfter(
+                eq(doctorId), any(Instant.class), any(Instant.class), any(Pageable.class)))
+        .thenReturn(List.of(booked));
+    slotHoldService.hold(doctorId, UUID.randomUUID(), now);
+
+    TimeSlot slot = nextAvailabilityService.getNextAvailableSlot(doctorId, now);
+
+    assertEquals(now.plus(2, ChronoUnit.HOURS), slot.getStartDate());
+  }
+
+  @Test
+  public void getNextAvailableSlot_shouldMoveToTheNextWorkingHour() {
+    UUID doctorId = UUID.randomUUID();
+
+    when(appointmentRepository
+            .findEndingAfter(
+                eq(doctorId), any(Instant.class), any(Instant.class), any(Pageable.class)))
+        .thenReturn(Collections.emptyList());
+
+    TimeSlot slot =
+        nextAvailabilityService.getNextAvailableSlot(
+            doctorId, Instant.parse("2021-04-01T20:30:00Z"));
+
+    assertEquals(Instant.parse("2021-04-02T09:00:00Z"), slot.getStartDate());
+  }
+
+  @Test
+  public void getNextAvailableSlot_shouldGiveUpAfterTheLookahead() {
+    UUID doctorId = UUID.randomUUID();
+    Instant now = clock.instant();
+
+    when(appointmentRepository
+            .findEndingAfter(
+                eq(doctorId), any(Instant.class), any(Instant.class), any(Pageable.class)))
+        .thenReturn(List.of(interval(now, now.plus(60, ChronoUnit.DAYS))));
+
+    assertThrows(
+        NoAvailabilityException.class,
+        () -> nextAvailabilityService.getNextAvailableSlot(doctorId, now));
+  }
+
+  private AppointmentEntity interval(Instant start, Instant end) {
+    return AppointmentEntity.builder().id(UUID.randomUUID()).startDate(start).endDate(end).build();
+  }
+}
@@ -0,0 +1,100 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.response.AppointmentCursorPage;
+import com.hospital.codechallengeapi.repository.AppointmentListing;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class PatientServiceTest {
+
+  private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+  private final PatientService patientService = new PatientService(appointmentRepository, clock);
+
+  @Test
+  public void getAppointments_shouldListUpcomingFromNow() {
+    UUID patientId = UUID.randomUUID();
+    List<AppointmentListing> rows = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      rows.add(listing(clock.instant().plus(i, ChronoUnit.HOURS)));
+    }
+    when(appointmentRepository.findFirstUpcomingPatientAppointments(
+            eq(patientId), eq(clock.instant()), argThat((Pageable page) -> page.getPageSize() == 3)))
+        .thenReturn(rows);
+
+    AppointmentCursorPage page =
+        patientService.getAppointments(patientId, AppointmentPeriod.UPCOMING, null, 2);
+
+    assertEquals(2, page.getContent().size());
+    AppointmentCursor next = AppointmentCursor.decode(page.getNextCursor());
+    assertEquals(rows.get(1).getStartDate(), next.getStartDate());
+    assertEquals(rows.get(1).getId(), next.getId());
+  }
+
+  @Test
+  public void getAppointments_shouldSeekBackwardsThroughPastAppointments() {
+    UUID patientId = UUID.randomUUID();
+    AppointmentCursor cursor =
+        new AppointmentCursor(clock.instant().minus(1, ChronoUnit.DAYS), UUID.randomUUID());
+    AppointmentListing older = listing(clock.instant().minus(2, ChronoUnit.DAYS));
+    when(appointmentRepository.findPastPatientAppointmentsBefore(
+            eq(patientId),
+            eq(cursor.getStartDate()),
+            eq(cursor.getId()),
+            argThat((Pageable page) -> page.getPageSize() == 6)))
+        .thenReturn(List.of(older));
+
+    AppointmentCursorPage page =
+        patientService.getAppointments(patientId, AppointmentPeriod.PAST, cursor.encode(), 5);
+
+    assertEquals(1, page.getContent().size());
+    assertEquals(older.getStartDate(), page.getContent().get(0).getStartDate());
+    assertNull(page.getNextCursor());
+  }
+
+  @Test
+  public void getAppointments_shouldRejectAMalformedCursor() {
+    assertThrows(
+        InvalidRequestException.class,
+        () ->
+            patientService.getAppointments(
+                UUID.randomUUID(), AppointmentPeriod.UPCOMING, "not a cursor", 5));
+    verifyNoMoreInteractions(appointmentRepository);
+  }
+
+  private AppointmentListing listing(Instant start) {
+    return projectionFactory.createProjection(
+        AppointmentListing.class,
+        Map.of(
+            "id", UUID.randomUUID(),
+            "doctorName", "doctor1",
+            "patientName", "patient1",
+            "specialty", "Cardiology",
+            "startDate", start,
+            "endDate", start.plus(1, ChronoUnit.HOURS)));
+  }
+}
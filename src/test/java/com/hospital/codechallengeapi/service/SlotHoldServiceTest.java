@@ -0,0 +1,181 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.AppointmentCreationException;
+import com.hospital.codechallengeapi.model.response.SlotHoldResponse;
+import com.hospital.codechallengeapi.repository.AppointmentRepository;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SlotHoldServiceTest {
+
+  private final VersionRegistry versionRegistry = new VersionRegistry();
+
+  private final Clock clock = Clock.fixed(Instant.parse("2021-04-01T09:00:00Z"), ZoneId.of("UTC"));
+
+  private final DoctorCalendarCache calendarCache =
+      new DoctorCalendarCache(
+          mock(AppointmentRepository.class),
+          clock,
+          new SimpleMeterRegistry(),
+          192,
+          100,
+          Duration.ofMinutes(30),
+          Duration.ofMinutes(5));
+
+  private final WorkingHoursService workingHoursService =
+      new WorkingHoursService(
+          mock(DoctorRepository.class),
+          mock(DoctorWorkingHoursRepository.class),
+          versionRegistry,
+          clock,
+          "UTC",
+          9,
+          20,
+          DayOfWeek.values(),
+          10000,
+          Duration.ofMinutes(5));
+
+  @Test
+  public void hold_shouldLetExactlyOnePatientWinAContendedSlot() throws Exception {
+    SlotHoldService slotHoldService =
+        new SlotHoldService(calendarCache, workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+    UUID doctorId = UUID.randomUUID();
+    Instant slot = clock.instant().plus(1, ChronoUnit.HOURS);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Callable<Boolean>> attempts = new ArrayList<>();
+      for (int i = 0; i < 64; i++) {
+        attempts.add(
+            () -> {
+              try {
+                slotHoldService.hold(doctorId, UUID.randomUUID(), slot);
+                return true;
+              } catch (AppointmentCreationException e) {
+                return false;
+              }
+            });
+      }
+      int won = 0;
+      for (Future<Boolean> attempt : executor.invokeAll(attempts)) {
+        won += attempt.get() ? 1 : 0;
+      }
+      assertEquals(1, won);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void hold_shouldExtendTheHoldOfTheSamePatient() {
+    SlotHoldService slotHoldService =
+        new SlotHoldService(calendarCache, workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+    UUID doctorId = UUID.randomUUID();
+    UUID patientId = UUID.randomUUID();
+
+    SlotHoldResponse first = slotHoldService.hold(doctorId, patientId, clock.instant());
+    SlotHoldResponse second = slotHoldService.hold(doctorId, patientId, clock.instant());
+
+    assertNotEquals(first.getId(), second.getId());
+    assertEquals(1, slotHoldService.size());
+    assertFalse(slotHoldService.isHeldByAnother(doctorId, patientId, clock.instant()));
+  }
+
+  @Test
+  public void hold_shouldTakeOverAndSweepExpiredHolds() {
+    SlotHoldService slotHoldService =
+        new SlotHoldService(calendarCache, workingHoursService, versionRegistry, clock, Duration.ZERO, 3);
+    UUID doctorId = UUID.randomUUID();
+
+    slotHoldService.hold(doctorId, UUID.randomUUID(), clock.instant());
+    slotHoldService.hold(doctorId, UUID.randomUUID(), clock.instant());
+    assertFalse(slotHoldService.isHeld(doctorId, clock.instant()));
+
+    slotHoldService.sweepExpired();
+
+    assertEquals(0, slotHoldService.size());
+  }
+
+  @Test
+  public void nextExpiry_shouldReturnTheEarliestLiveHoldOfTheWindow() {
+    Instant now = clock.instant();
+    Clock ticking = mock(Clock.class);
+    when(ticking.instant()).thenReturn(now);
+    SlotHoldService slotHoldService =
+        new SlotHoldService(calendarCache, workingHoursService, versionRegistry, ticking, Duration.ofMinutes(2), 3);
+    UUID doctorId = UUID.randomUUID();
+
+    assertNull(slotHoldService.nextExpiry(doctorId, now, 168));
+    slotHoldService.hold(doctorId, UUID.randomUUID(), now.plus(2, ChronoUnit.HOURS));
+    when(ticking.instant()).thenReturn(now.plus(1, ChronoUnit.MINUTES));
+    slotHoldService.hold(doctorId, UUID.randomUUID(), now.plus(1, ChronoUnit.HOURS));
+
+    assertEquals(now.plus(2, ChronoUnit.MINUTES), slotHoldService.nextExpiry(doctorId, now, 168));
+    assertNull(slotHoldService.nextExpiry(UUID.randomUUID(), now, 168));
+    assertEquals(
+        now.plus(3, ChronoUnit.MINUTES),
+        slotHoldService.nextExpiry(doctorId, now.plus(1, ChronoUnit.HOURS), 1));
+
+    when(ticking.instant()).thenReturn(now.plus(2, ChronoUnit.MINUTES));
+    assertEquals(now.plus(3, ChronoUnit.MINUTES), slotHoldService.nextExpiry(doctorId, now, 168));
+  }
+
+  @Test
+  public void hold_shouldCapTheHoldsOfAPatient() {
+    SlotHoldService slotHoldService =
+        new SlotHoldService(calendarCache, workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+    UUID doctorId = UUID.randomUUID();
+    UUID patientId = UUID.randomUUID();
+    Instant first = clock.instant();
+
+    for (int i = 0; i < 3; i++) {
+      slotHoldService.hold(doctorId, patientId, first.plus(i, ChronoUnit.HOURS));
+    }
+    AppointmentCreationException thrown =
+        assertThrows(
+            AppointmentCreationException.class,
+            () -> slotHoldService.hold(doctorId, patientId, first.plus(3, ChronoUnit.HOURS)));
+    assertEquals("A patient cannot hold more than 3 slots at once", thrown.getMessage());
+
+    // Renewing a held hour stays within the cap, and releasing one makes room again.
+    slotHoldService.hold(doctorId, patientId, first);
+    slotHoldService.release(doctorId, patientId, first);
+    slotHoldService.hold(doctorId, patientId, first.plus(3, ChronoUnit.HOURS));
+    assertEquals(3, slotHoldService.size());
+
+    slotHoldService.hold(doctorId, UUID.randomUUID(), first.plus(4, ChronoUnit.HOURS));
+    assertEquals(4, slotHoldService.size());
+  }
+
+  @Test
+  public void hold_shouldRejectHoursOutsideTheWorkingHours() {
+    SlotHoldService slotHoldService =
+        new SlotHoldService(calendarCache, workingHoursService, versionRegistry, clock, Duration.ofMinutes(2), 3);
+
+    assertThrows(
+        AppointmentCreationException.class,
+        () ->
+            slotHoldService.hold(
+                UUID.randomUUID(), UUID.randomUUID(), Instant.parse("2021-04-01T21:00:00Z")));
+  }
+}
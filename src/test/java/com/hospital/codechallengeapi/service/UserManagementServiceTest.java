@@ -5,6 +5,7 @@ import com.hospital.codechallengeapi.exception.UserAlreadyExistsException;
 import com.hospital.codechallengeapi.model.request.DoctorRegisterRequest;
 import com.hospital.codechallengeapi.model.request.LoginRequest;
 import com.hospital.codechallengeapi.model.request.PatientRegisterRequest;
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
 import com.hospital.codechallengeapi.model.response.IdResponse;
 import com.hospital.codechallengeapi.model.response.JwtResponse;
 import com.hospital.codechallengeapi.repository.DoctorRepository;
@@ -30,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -49,7 +51,9 @@ public class UserManagementServiceTest {
 
     private final JwtProvider jwtProvider = mock(JwtProvider.class);
 
-    private final UserManagementService userManagementService = new UserManagementService(hospitalUserRepository, doctorRepository, patientRepository, roleRepository, passwordEncoder, authenticationManager, jwtProvider);
+    private final DoctorDirectory doctorDirectory = mock(DoctorDirectory.class);
+
+    private final UserManagementService userManagementService = new UserManagementService(hospitalUserRepository, doctorRepository, patientRepository, roleRepository, passwordEncoder, authenticationManager, jwtProvider, doctorDirectory);
 
     @Test
     public void createDoctor_shouldCreateUser() throws UserAlreadyExistsException {
@@ -67,6 +71,7 @@ public class UserManagementServiceTest {
         IdResponse idResponse = userManagementService.createDoctor(request);
         assertNotNull(idResponse);
         assertEquals(id1, idResponse.getId());
+        verify(doctorDirectory).add(eq(new DoctorResponse(id1, "test1", "specialty1")));
     }
 
     @Test
@@ -0,0 +1,102 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.exception.InvalidRequestException;
+import com.hospital.codechallengeapi.model.response.DayUtilization;
+import com.hospital.codechallengeapi.model.response.DoctorResponse;
+import com.hospital.codechallengeapi.model.response.DoctorUtilization;
+import com.hospital.codechallengeapi.repository.DoctorDayOccupancyRepository;
+import com.hospital.codechallengeapi.repository.DoctorDayOccupancyRepository.DoctorDayOccupancy;
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UtilizationReportServiceTest {
+
+  private final VersionRegistry versionRegistry = new VersionRegistry();
+
+  private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+
+  private final DoctorDayOccupancyRepository occupancyRepository =
+      mock(DoctorDayOccupancyRepository.class);
+
+  private final DoctorDirectory doctorDirectory =
+      new DoctorDirectory(doctorRepository, versionRegistry, new SimpleMeterRegistry());
+
+  private final WorkingHoursService workingHoursService =
+      new WorkingHoursService(
+          doctorRepository,
+          mock(DoctorWorkingHoursRepository.class),
+          versionRegistry,
+          Clock.systemUTC(),
+          "UTC",
+          9,
+          20,
+          new DayOfWeek[] {DayOfWeek.MONDAY, DayOfWeek.TUESDAY},
+          10000,
+          Duration.ofMinutes(5));
+
+  private final UtilizationReportService utilizationReportService =
+      new UtilizationReportService(doctorDirectory, occupancyRepository, workingHoursService, 92);
+
+  @Test
+  public void report_shouldCombineTheSummaryWithTheWorkingHours() {
+    UUID doctorId = UUID.randomUUID();
+    when(doctorRepository.findAllDoctors())
+        .thenReturn(List.of(new DoctorResponse(doctorId, "doctor", "Cardiology")));
+    // 2021-04-05 is a Monday, 2021-04-07 a Wednesday.
+    LocalDate monday = LocalDate.parse("2021-04-05");
+    when(occupancyRepository.find(anyCollection(), eq(monday), eq(monday.plusDays(3))))
+        .thenReturn(
+            List.of(
+                new DoctorDayOccupancy(doctorId, monday, 3, 180, 120),
+                new DoctorDayOccupancy(doctorId, monday.plusDays(2), 0, 0, 1440)));
+
+    Page<DoctorUtilization> report =
+        utilizationReportService.report(monday, monday.plusDays(3), null, 1, 10);
+
+    DoctorUtilization utilization = report.getContent().get(0);
+    assertEquals(doctorId, utilization.getDoctorId());
+    List<DayUtilization> days = utilization.getDays();
+    assertEquals(3, days.size());
+
+    assertEquals(3, days.get(0).getAppointments());
+    assertEquals(11, days.get(0).getWorkingHours());
+    assertEquals(3, days.get(0).getBookedHours());
+    assertEquals(2, days.get(0).getLeaveHours());
+    assertEquals(6, days.get(0).getFreeHours());
+
+    assertEquals(11, days.get(1).getFreeHours());
+
+    assertEquals(0, days.get(2).getWorkingHours());
+    assertEquals(0, days.get(2).getFreeHours());
+
+    assertEquals(3.0 / 22, utilization.getUtilization(), 1e-9);
+  }
+
+  @Test
+  public void report_shouldRejectRangesThatAreTooLong() {
+    LocalDate from = LocalDate.parse("2021-01-01");
+
+    assertThrows(
+        InvalidRequestException.class,
+        () -> utilizationReportService.report(from, from.plusDays(93), null, 1, 10));
+    assertThrows(
+        InvalidRequestException.class,
+        () -> utilizationReportService.report(from, from, null, 1, 10));
+  }
+}
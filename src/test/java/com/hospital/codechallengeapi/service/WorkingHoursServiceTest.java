@@ -0,0 +1,115 @@
+package com.hospital.codechallengeapi.service;
+
+import com.hospital.codechallengeapi.repository.DoctorRepository;
+import com.hospital.codechallengeapi.repository.DoctorTimeZone;
+import com.hospital.codechallengeapi.repository.DoctorWorkingHoursRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WorkingHoursServiceTest {
+
+  private static final Instant NOW = Instant.parse("2021-04-01T09:00:00Z");
+
+  private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+  private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+
+  private final Clock clock = mock(Clock.class);
+
+  private final WorkingHoursService workingHoursService =
+      new WorkingHoursService(
+          doctorRepository,
+          mock(DoctorWorkingHoursRepository.class),
+          new VersionRegistry(),
+          clock,
+          "UTC",
+          9,
+          20,
+          DayOfWeek.values(),
+          2,
+          Duration.ofMinutes(5));
+
+  @BeforeEach
+  public void setUp() {
+    when(clock.instant()).thenReturn(NOW);
+  }
+
+  @Test
+  public void forDoctor_shouldNotCacheUnknownDoctors() {
+    UUID unknown = UUID.randomUUID();
+    when(doctorRepository.findTimeZonesByIdIn(anyCollection())).thenReturn(List.of());
+
+    assertSame(workingHoursService.getDefaultWorkingHours(), workingHoursService.forDoctor(unknown));
+    assertSame(workingHoursService.getDefaultWorkingHours(), workingHoursService.forDoctor(unknown));
+
+    verify(doctorRepository, times(2)).findTimeZonesByIdIn(anyCollection());
+  }
+
+  @Test
+  public void forDoctor_shouldKeepOnlyTheMostRecentlyUsedDoctors() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    UUID third = UUID.randomUUID();
+    when(doctorRepository.findTimeZonesByIdIn(anyCollection()))
+        .thenAnswer(invocation -> timeZones(invocation.getArgument(0)));
+
+    workingHoursService.forDoctor(first);
+    workingHoursService.forDoctor(second);
+    workingHoursService.forDoctor(first);
+    verify(doctorRepository, times(2)).findTimeZonesByIdIn(anyCollection());
+
+    workingHoursService.forDoctor(third);
+    workingHoursService.forDoctor(first);
+    verify(doctorRepository, times(3)).findTimeZonesByIdIn(anyCollection());
+
+    workingHoursService.forDoctor(second);
+    verify(doctorRepository, times(4)).findTimeZonesByIdIn(anyCollection());
+  }
+
+  @Test
+  public void forDoctor_shouldRecompileSchedulesOlderThanTheMaxAge() {
+    UUID doctorId = UUID.randomUUID();
+    when(doctorRepository.findTimeZonesByIdIn(anyCollection()))
+        .thenAnswer(invocation -> timeZones(invocation.getArgument(0)));
+
+    workingHoursService.forDoctor(doctorId);
+    when(clock.instant()).thenReturn(NOW.plus(4, ChronoUnit.MINUTES));
+    workingHoursService.forDoctor(doctorId);
+    verify(doctorRepository, times(1)).findTimeZonesByIdIn(anyCollection());
+
+    // Changed through another instance: only the max age makes this one look again.
+    when(clock.instant()).thenReturn(NOW.plus(5, ChronoUnit.MINUTES));
+    workingHoursService.forDoctor(doctorId);
+    workingHoursService.forDoctor(doctorId);
+    verify(doctorRepository, times(2)).findTimeZonesByIdIn(anyCollection());
+  }
+
+  private List<DoctorTimeZone> timeZones(Collection<UUID> doctorIds) {
+    return doctorIds.stream()
+        .map(
+            id ->
+                projectionFactory.createProjection(
+                    DoctorTimeZone.class, Map.of("id", id, "timeZone", "UTC")))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,69 @@
+package com.hospital.codechallengeapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkingHoursTest {
+
+  @Test
+  public void isWorkingHour_shouldFollowTheWeeklyMaskInUtc() {
+    WorkingHours workingHours =
+        WorkingHours.compile(
+            ZoneOffset.UTC, List.of(new WorkingHours.Range(DayOfWeek.THURSDAY, 9, 20)));
+
+    // 2021-04-01 was a Thursday
+    assertFalse(workingHours.isWorkingHour(Instant.parse("2021-04-01T08:00:00Z")));
+    assertTrue(workingHours.isWorkingHour(Instant.parse("2021-04-01T09:00:00Z")));
+    assertTrue(workingHours.isWorkingHour(Instant.parse("2021-04-01T19:00:00Z")));
+    assertFalse(workingHours.isWorkingHour(Instant.parse("2021-04-01T20:00:00Z")));
+    assertFalse(workingHours.isWorkingHour(Instant.parse("2021-04-02T09:00:00Z")));
+  }
+
+  @Test
+  public void isWorkingHour_shouldFollowTheLocalClockAcrossDaylightSaving() {
+    WorkingHours workingHours =
+        WorkingHours.compile(
+            ZoneId.of("Europe/Lisbon"),
+            List.of(
+                new WorkingHours.Range(DayOfWeek.SATURDAY, 9, 10),
+                new WorkingHours.Range(DayOfWeek.MONDAY, 9, 10)));
+
+    // Lisbon moved from UTC+0 to UTC+1 on Sunday 2021-03-28
+    assertTrue(workingHours.isWorkingHour(Instant.parse("2021-03-27T09:00:00Z")));
+    assertTrue(workingHours.isWorkingHour(Instant.parse("2021-03-29T08:00:00Z")));
+    assertFalse(workingHours.isWorkingHour(Instant.parse("2021-03-29T09:00:00Z")));
+  }
+
+  @Test
+  public void workingHours_shouldReturnOneBitPerHour() {
+    WorkingHours workingHours =
+        WorkingHours.compile(
+            ZoneOffset.UTC, List.of(new WorkingHours.Range(DayOfWeek.THURSDAY, 10, 12)));
+
+    BitSet bits = workingHours.workingHours(Instant.parse("2021-04-01T09:00:00Z"), 24);
+
+    assertEquals(2, bits.cardinality());
+    assertTrue(bits.get(1));
+    assertTrue(bits.get(2));
+  }
+
+  @Test
+  public void nextWorkingHour_shouldWrapToTheNextWeek() {
+    WorkingHours workingHours =
+        WorkingHours.compile(
+            ZoneOffset.UTC, List.of(new WorkingHours.Range(DayOfWeek.WEDNESDAY, 14, 15)));
+
+    assertEquals(
+        Instant.parse("2021-04-07T14:00:00Z"),
+        workingHours.nextWorkingHour(Instant.parse("2021-04-01T09:30:00Z")));
+    assertNull(WorkingHours.compile(ZoneOffset.UTC, List.of()).nextWorkingHour(Instant.now()));
+  }
+}